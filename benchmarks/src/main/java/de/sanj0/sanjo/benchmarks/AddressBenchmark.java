@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJClassView;
+import de.sanj0.sanjo.SanjoBinary;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving and creating {@link SJAddress addresses}
+ * in a tree of a generated document with 10000 top-level classes,
+ * and resolving them against a frozen copy of the tree and a mapped
+ * view of its binary encoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddressBenchmark {
+
+    private static final String HIT = ":entry5000:details.ratio";
+    private static final String MISS = ":entry5000:missing.ratio";
+
+    private SJClass root;
+    private SJClass frozen;
+    private SJAddress hit;
+    private SJAddress miss;
+    private Path binary;
+    private SJClassView view;
+
+    @Setup
+    public void setup() throws IOException {
+        root = new SanjoParser().parse(DocumentGenerator.generate(DocumentGenerator.Shape.MIXED, 1500000, 42));
+        if (!root.get(SJAddress.forString(HIT)).isPresent()) {
+            throw new IllegalStateException("generated document doesn't contain " + HIT);
+        }
+        frozen = root.freeze();
+        hit = SJAddress.forString(HIT);
+        miss = SJAddress.forString(MISS);
+
+        binary = Files.createTempFile("sanjo-address", ".sjb");
+        Files.write(binary, SanjoBinary.toBytes(root));
+        view = SanjoBinary.map(binary);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        view = null;
+        Files.deleteIfExists(binary);
+    }
+
+    @Benchmark
+    public Optional<Object> findCompiled() {
+        return hit.find(root);
+    }
+
+    @Benchmark
+    public Optional<Object> findFromString() {
+        return SJAddress.forString(HIT).find(root);
+    }
+
+    @Benchmark
+    public Optional<Object> findMiss() {
+        return miss.find(root);
+    }
+
+    @Benchmark
+    public Optional<Object> findFrozen() {
+        return hit.find(frozen);
+    }
+
+    @Benchmark
+    public Optional<Object> findMapped() {
+        return hit.find(view);
+    }
+
+    @Benchmark
+    public Object createExisting() {
+        return hit.create(root);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a tree from its binary encoding
+ * with parsing the same document from text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryBenchmark {
+
+    @Param({"FLAT", "DEEP", "WIDE", "LIST_HEAVY"})
+    public DocumentGenerator.Shape shape;
+
+    @Param({"1048576", "104857600"})
+    public long size;
+
+    private SanjoFile text;
+    private SanjoFile binary;
+
+    @Setup
+    public void setup() throws IOException {
+        text = new SanjoFile(DocumentGenerator.file(shape, size, 42).toString());
+        binary = new SanjoFile(text.getPath() + SanjoFile.BINARY_FILE_EXTENSION);
+        binary.writeBinary(text.parser().parse());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binary.toPath());
+    }
+
+    @Benchmark
+    public SJClass parseText() throws IOException {
+        return text.parser().parse();
+    }
+
+    @Benchmark
+    public SJClass readBinary() throws IOException {
+        return binary.readBinary();
+    }
+}
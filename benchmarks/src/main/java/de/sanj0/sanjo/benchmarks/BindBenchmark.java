@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJBinder;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares binding the entries of a generated document to
+ * objects through {@link SJBinder} with reading their values
+ * by hand and with setting their fields through reflection
+ * on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BindBenchmark {
+
+    public static class Details {
+        public double ratio;
+    }
+
+    public static class Entry {
+        public int id;
+        public String name;
+        public boolean enabled;
+        public int[] samples;
+        public Details details;
+    }
+
+    private List<SJClass> entries;
+
+    @Setup
+    public void setup() {
+        entries = new SanjoParser().parse(DocumentGenerator.generate(DocumentGenerator.Shape.MIXED, 1 << 20, 42)).getChildren();
+    }
+
+    @Benchmark
+    public List<Entry> byHand() {
+        final List<Entry> objects = new ArrayList<>(entries.size());
+        for (final SJClass clazz : entries) {
+            final Entry entry = new Entry();
+            entry.id = clazz.getValue("id").get().intValue();
+            entry.name = clazz.getValue("name").get().string();
+            entry.enabled = clazz.getValue("enabled").get().booleanValue();
+            entry.samples = clazz.getValue("samples").get().intArray();
+            final SJClass details = clazz.getChild("details").get();
+            entry.details = new Details();
+            entry.details.ratio = details.getValue("ratio").get().doubleValue();
+            objects.add(entry);
+        }
+        return objects;
+    }
+
+    @Benchmark
+    public List<Entry> binder() {
+        return SJBinder.bindAll(entries, Entry.class);
+    }
+
+    @Benchmark
+    public List<Entry> reflection() throws ReflectiveOperationException {
+        final List<Entry> objects = new ArrayList<>(entries.size());
+        for (final SJClass clazz : entries) {
+            objects.add(reflect(clazz, Entry.class));
+        }
+        return objects;
+    }
+
+    private static < T > T reflect(final SJClass clazz, final Class<T> type) throws ReflectiveOperationException {
+        final T object = type.getDeclaredConstructor().newInstance();
+        for (final Field field : type.getDeclaredFields()) {
+            final SJValue value = clazz.getValue(field.getName()).orElse(null);
+            if (field.getType() == int.class) {
+                field.setInt(object, value.intValue());
+            } else if (field.getType() == boolean.class) {
+                field.setBoolean(object, value.booleanValue());
+            } else if (field.getType() == double.class) {
+                field.setDouble(object, value.doubleValue());
+            } else if (field.getType() == int[].class) {
+                field.set(object, value.intArray());
+            } else if (field.getType() == String.class) {
+                field.set(object, value.string());
+            } else {
+                field.set(object, reflect(clazz.getChild(field.getName()).get(), field.getType()));
+            }
+        }
+        return object;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoCache;
+import de.sanj0.sanjo.SanjoFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a generated file with looking its tree
+ * up in a {@link SanjoCache}, once checked by modification
+ * time and size and once by the hash of its content.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    @Param({"1048576"})
+    public long size;
+
+    private SanjoFile file;
+    private SanjoCache cache;
+    private SanjoCache hashingCache;
+
+    @Setup
+    public void setup() throws IOException {
+        file = new SanjoFile(DocumentGenerator.file(DocumentGenerator.Shape.MIXED, size, 42).toString());
+        cache = new SanjoCache(SanjoCache.DEFAULT_MAX_WEIGHT);
+        hashingCache = new SanjoCache(SanjoCache.DEFAULT_MAX_WEIGHT);
+        hashingCache.setHashContents(true);
+    }
+
+    @Benchmark
+    public SJClass parse() throws IOException {
+        return file.parser().parse();
+    }
+
+    @Benchmark
+    public SJClass cached() throws IOException {
+        return cache.get(file);
+    }
+
+    @Benchmark
+    public SJClass cachedHashed() throws IOException {
+        return hashingCache.get(file);
+    }
+}
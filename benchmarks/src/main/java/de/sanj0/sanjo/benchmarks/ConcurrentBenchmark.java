@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.ConcurrentSJClass;
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating and updating values at random addresses
+ * from several threads, in a {@link ConcurrentSJClass} and in a
+ * plain {@link SJClass} behind a single lock.
+ * <p>Run with e.g. <code>-t 1</code>, <code>-t 4</code> and
+ * <code>-t 16</code> to see how the throughput scales.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+
+    private static final int ADDRESSES = 1024;
+
+    private SJAddress[] addresses;
+    private ConcurrentSJClass concurrent;
+    private SJClass locked;
+
+    @Setup
+    public void setup() {
+        addresses = new SJAddress[ADDRESSES];
+        for (int i = 0; i < ADDRESSES; i++) {
+            addresses[i] = SJAddress.forString(":service" + i % 32 + ":instance" + i / 32 + ".value");
+        }
+        concurrent = ConcurrentSJClass.concurrentDefaultClass();
+        locked = SJClass.defaultClass();
+    }
+
+    @Benchmark
+    public Object createConcurrent() {
+        return addresses[ThreadLocalRandom.current().nextInt(ADDRESSES)].create(concurrent);
+    }
+
+    @Benchmark
+    public Object createLocked() {
+        final SJAddress address = addresses[ThreadLocalRandom.current().nextInt(ADDRESSES)];
+        synchronized (locked) {
+            return address.create(locked);
+        }
+    }
+
+    @Benchmark
+    public Object addValueConcurrent() {
+        final int i = ThreadLocalRandom.current().nextInt(ADDRESSES);
+        return concurrent.addValue("key" + (i & 63), "value");
+    }
+
+    @Benchmark
+    public Object addValueLocked() {
+        final int i = ThreadLocalRandom.current().nextInt(ADDRESSES);
+        synchronized (locked) {
+            return locked.addValue("key" + (i & 63), "value");
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic sanjo documents
+ * for the benchmarks. The same shape, size and seed
+ * always produce the same document.
+ */
+public final class DocumentGenerator {
+
+    private static final String INDENTION = "    ";
+
+    /**
+     * The shapes of generated documents.
+     */
+    public enum Shape {
+        /**
+         * Top-level classes that each hold a few values,
+         * a short list and a subclass.
+         */
+        MIXED,
+        /**
+         * Top-level key-value pairs only.
+         */
+        FLAT,
+        /**
+         * Chains of 32 nested classes, each holding a value.
+         */
+        DEEP,
+        /**
+         * A single class with a very large number of
+         * small subclasses.
+         */
+        WIDE,
+        /**
+         * Top-level classes that each hold a list
+         * of 256 numbers.
+         */
+        LIST_HEAVY
+    }
+
+    private DocumentGenerator() {
+    }
+
+    /**
+     * Generates a document of the given shape
+     * and roughly the given size.
+     *
+     * @param shape the shape of the document
+     * @param size the approximate size of the document in chars
+     * @param seed the seed of the random values
+     * @return the generated document
+     */
+    public static String generate(final Shape shape, final long size, final long seed) {
+        final StringBuilder builder = new StringBuilder((int) Math.min(size + 1024, Integer.MAX_VALUE - 8));
+        try {
+            generate(shape, size, seed, builder);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns a (UTF-8) file that holds the document of the given
+     * shape, size and seed, generating it in the temporary directory
+     * if it doesn't exist yet, so that large documents are only
+     * generated once.
+     *
+     * @param shape the shape of the document
+     * @param size the approximate size of the document in chars
+     * @param seed the seed of the random values
+     * @return the path of the generated file
+     * @throws IOException if something goes wrong writing the file
+     */
+    public static Path file(final Shape shape, final long size, final long seed) throws IOException {
+        final Path path = Paths.get(System.getProperty("java.io.tmpdir"),
+                "sanjo-bench-" + shape.name().toLowerCase() + "-" + size + "-" + seed + ".sj");
+        if (!Files.exists(path)) {
+            final Path tmp = Files.createTempFile(path.getParent(), "sanjo-bench", ".tmp");
+            try (final Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                generate(shape, size, seed, writer);
+            }
+            Files.move(tmp, path);
+        }
+        return path;
+    }
+
+    private static void generate(final Shape shape, final long size, final long seed, final Appendable out) throws IOException {
+        final Random random = new Random(seed);
+        final CountingAppendable counter = new CountingAppendable(out);
+        long i = 0;
+        if (shape == Shape.WIDE) {
+            counter.append(":wide\n");
+        }
+        while (counter.count < size) {
+            switch (shape) {
+                case MIXED:
+                    mixedEntry(counter, i, random);
+                    break;
+                case FLAT:
+                    counter.append(".key").append(Long.toString(i)).append('=').append(Long.toString(random.nextLong())).append('\n');
+                    break;
+                case DEEP:
+                    deepEntry(counter, i, random);
+                    break;
+                case WIDE:
+                    counter.append(INDENTION).append(":child").append(Long.toString(i)).append('\n');
+                    counter.append(INDENTION).append(INDENTION).append(".value=").append(Integer.toString(random.nextInt())).append('\n');
+                    break;
+                case LIST_HEAVY:
+                    counter.append(":list").append(Long.toString(i)).append('\n');
+                    counter.append(INDENTION).append(".samples[]=");
+                    for (int j = 0; j < 256; j++) {
+                        counter.append(j == 0 ? "" : ",").append(Integer.toString(random.nextInt(100000)));
+                    }
+                    counter.append('\n');
+                    break;
+            }
+            i++;
+        }
+    }
+
+    private static void mixedEntry(final Appendable out, final long i, final Random random) throws IOException {
+        out.append(":entry").append(Long.toString(i)).append('\n');
+        out.append(INDENTION).append(".id=").append(Integer.toString(random.nextInt())).append('\n');
+        out.append(INDENTION).append(".name=name ").append(Long.toString(random.nextLong())).append('\n');
+        out.append(INDENTION).append("?enabled:").append(Boolean.toString(random.nextBoolean())).append('\n');
+        out.append(INDENTION).append(".samples[]=");
+        for (int j = 0; j < 8; j++) {
+            out.append(j == 0 ? "" : ",").append(Integer.toString(random.nextInt(1000)));
+        }
+        out.append('\n');
+        out.append(INDENTION).append(":details").append('\n');
+        out.append(INDENTION).append(INDENTION).append(".ratio=").append(Double.toString(random.nextDouble())).append('\n');
+    }
+
+    private static void deepEntry(final Appendable out, final long i, final Random random) throws IOException {
+        final StringBuilder indention = new StringBuilder();
+        for (int depth = 0; depth < 32; depth++) {
+            out.append(indention).append(":level").append(Integer.toString(depth)).append(depth == 0 ? "_" + i : "").append('\n');
+            indention.append(INDENTION);
+            out.append(indention).append(".value=").append(Integer.toString(random.nextInt())).append('\n');
+        }
+    }
+
+    /**
+     * Counts the chars appended to an {@link Appendable}.
+     */
+    private static final class CountingAppendable implements Appendable {
+        private final Appendable out;
+        private long count;
+
+        private CountingAppendable(final Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq) throws IOException {
+            count += csq.length();
+            out.append(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq, final int start, final int end) throws IOException {
+            count += end - start;
+            out.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(final char c) throws IOException {
+            count++;
+            out.append(c);
+            return this;
+        }
+    }
+}
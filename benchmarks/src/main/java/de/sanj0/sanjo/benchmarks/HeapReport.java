@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoParser;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Reports the heap retained by the trees of generated documents
+ * with repeated structure, parsed without interning, with interned
+ * keys and class names and with interned short values as well.
+ * <p>Run with
+ * <code>java -cp target/benchmarks.jar de.sanj0.sanjo.benchmarks.HeapReport [size in bytes]</code>.
+ */
+public final class HeapReport {
+
+    private static final long DEFAULT_SIZE = 50L << 20;
+
+    private HeapReport() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final long size = args.length == 0 ? DEFAULT_SIZE : Long.parseLong(args[0]);
+        System.out.printf("%-12s %14s %14s %14s %8s%n", "shape", "no interning", "names", "names+values", "saved");
+        for (final DocumentGenerator.Shape shape : new DocumentGenerator.Shape[] {
+                DocumentGenerator.Shape.MIXED, DocumentGenerator.Shape.WIDE, DocumentGenerator.Shape.DEEP}) {
+            final SanjoFile file = new SanjoFile(DocumentGenerator.file(shape, size, 42).toString());
+            final long plain = retained(file, false, false);
+            final long names = retained(file, true, false);
+            final long values = retained(file, true, true);
+            System.out.printf("%-12s %12dKB %12dKB %12dKB %7.1f%%%n", shape, plain >> 10, names >> 10, values >> 10,
+                    100.0 * (plain - values) / plain);
+        }
+    }
+
+    private static long retained(final SanjoFile file, final boolean internNames, final boolean internValues)
+            throws IOException {
+        final long before = usedHeap();
+        final SanjoParser parser = file.parser();
+        if (!internNames) {
+            parser.setInternPool(null);
+        }
+        parser.setInternValues(internValues);
+        final SJClass tree = parser.parse();
+        final long after = usedHeap();
+        if (tree.getChildren().isEmpty() && tree.getValues().isEmpty()) {
+            throw new IllegalStateException("empty tree");
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
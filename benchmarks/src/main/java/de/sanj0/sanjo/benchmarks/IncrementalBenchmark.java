@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJDiff;
+import de.sanj0.sanjo.SanjoIncrementalParser;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reparsing a document after a single-line
+ * edit incrementally with a full parse.
+ * <p>The sizes show how the incremental edit scales with
+ * the document: it only reparses the edited block, but
+ * still does linear bookkeeping over the lines and blocks
+ * of the document, which is what the value edits of a
+ * flat document measure.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncrementalBenchmark {
+
+    @Param({"1048576", "10485760", "104857600"})
+    public long size;
+
+    private List<String> lines;
+    private SanjoIncrementalParser parser;
+    private int editedLine;
+    private boolean toggle;
+    private SanjoIncrementalParser flatParser;
+    private int editedValue;
+    private String editedKey;
+
+    @Setup
+    public void setup() throws IOException {
+        lines = Files.readAllLines(DocumentGenerator.file(DocumentGenerator.Shape.MIXED, size, 42));
+        parser = new SanjoIncrementalParser(lines);
+        editedLine = lines.size() / 2;
+        while (!lines.get(editedLine).startsWith("    .id=")) {
+            editedLine++;
+        }
+        final List<String> flatLines = Files.readAllLines(DocumentGenerator.file(DocumentGenerator.Shape.FLAT, size, 42));
+        flatParser = new SanjoIncrementalParser(flatLines);
+        editedValue = flatLines.size() / 2;
+        final String line = flatLines.get(editedValue);
+        editedKey = line.substring(0, line.indexOf('=') + 1);
+    }
+
+    @Benchmark
+    public SJDiff editIncremental() {
+        toggle = !toggle;
+        return parser.edit(editedLine, 1, Collections.singletonList(toggle ? "    .id=1" : "    .id=2"));
+    }
+
+    @Benchmark
+    public SJDiff editTopLevelValue() {
+        toggle = !toggle;
+        return flatParser.edit(editedValue, 1, Collections.singletonList(editedKey + (toggle ? "1" : "2")));
+    }
+
+    @Benchmark
+    public SJClass editFullParse() {
+        toggle = !toggle;
+        lines.set(editedLine, toggle ? "    .id=1" : "    .id=2");
+        return new SanjoParser().parse(lines);
+    }
+}
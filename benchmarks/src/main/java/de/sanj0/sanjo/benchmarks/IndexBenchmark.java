@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJIndex;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares looking up classes by a key-value pair through
+ * a {@link SJIndex} with a walk over the whole tree, and the
+ * cost of filling an index while parsing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexBenchmark {
+
+    private String document;
+    private SJClass root;
+    private SJIndex index;
+    private String id;
+
+    @Setup
+    public void setup() {
+        document = DocumentGenerator.generate(DocumentGenerator.Shape.MIXED, 1500000, 42);
+        root = new SanjoParser().parse(document);
+        index = SJIndex.build(root, true);
+        final List<SJClass> children = root.getChildren();
+        id = children.get(children.size() / 2).getValue("id").get().string();
+    }
+
+    @Benchmark
+    public SJClass walkById() {
+        for (final SJClass entry : root.getChildren()) {
+            if (entry.getValue("id").map(value -> id.equals(value.string())).orElse(false)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public SJClass indexById() {
+        return index.classesWithValue("id", id).get(0);
+    }
+
+    @Benchmark
+    public SJIndex buildIndex() {
+        return SJIndex.build(root, true);
+    }
+
+    @Benchmark
+    public SJClass parse() {
+        return new SanjoParser().parse(document);
+    }
+
+    @Benchmark
+    public SJIndex parseIndexedKeys() {
+        final SanjoParser parser = new SanjoParser();
+        parser.setIndex(new SJIndex(false));
+        parser.parse(document);
+        return parser.getIndex();
+    }
+
+    @Benchmark
+    public SJIndex parseIndexed() {
+        final SanjoParser parser = new SanjoParser();
+        parser.setIndex(new SJIndex(true));
+        parser.parse(document);
+        return parser.getIndex();
+    }
+}
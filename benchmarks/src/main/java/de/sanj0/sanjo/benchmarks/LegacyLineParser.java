@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJValue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The String-based line handling of the parser
+ * before the single-pass tokenizer, kept as a baseline:
+ * one String per line, leading spaces removed through
+ * <code>toCharArray()</code> and <code>substring</code>,
+ * two <code>indexOf</code> scans per value, regex
+ * <code>split</code> for lists and regex <code>replaceFirst</code>
+ * for keys.
+ */
+public final class LegacyLineParser {
+
+    private static final int INDENTION_WIDTH = 4;
+    private static final String LIST_SUFFIX = "[]";
+    private static final String LIST_SEPARATOR = ",";
+
+    private final SJClass defaultClass = SJClass.defaultClass();
+    private final Map<Integer, SJClass> workingClasses = new HashMap<>();
+    private int lastIndentLevel = 1;
+
+    public SJClass parse(final Reader reader) throws IOException {
+        final BufferedReader bufferedReader = new BufferedReader(reader);
+        workingClasses.put(0, defaultClass);
+        String rawLine;
+        while ((rawLine = bufferedReader.readLine()) != null) {
+            parseLine(rawLine);
+        }
+        return defaultClass;
+    }
+
+    private void parseLine(final String rawLine) {
+        final String line = removeLeadingSpaces(rawLine);
+        if (line.isEmpty()) return;
+        final int currentIndent = rawLine.length() - line.length();
+        int currentIndentLevel = currentIndent / INDENTION_WIDTH + 1;
+
+        if (line.charAt(0) == ':' || line.charAt(0) == '>') {
+            final SJClass newClass = new SJClass(line.substring(1));
+            workingClasses.get(currentIndentLevel - 1).addChild(newClass);
+            workingClasses.put(currentIndentLevel, newClass);
+            currentIndentLevel++;
+        } else if (line.charAt(0) == '.' || line.charAt(0) == '?') {
+            final SJValue value = createValue(line);
+            workingClasses.get(currentIndentLevel - 1).getValues().put(value.getKey(), value);
+        } else {
+            return;
+        }
+        lastIndentLevel = currentIndentLevel;
+    }
+
+    private SJValue createValue(final String snippet) {
+        final int eqIndex = snippet.indexOf("=");
+        final int colIndex = snippet.indexOf(":");
+        final int assignmentCharIndex;
+        if (eqIndex == -1) assignmentCharIndex = colIndex;
+        else if (colIndex == -1) assignmentCharIndex = eqIndex;
+        else assignmentCharIndex = Math.min(eqIndex, colIndex);
+
+        String keyString = snippet.substring(0, assignmentCharIndex);
+        final String valueString = snippet.substring(assignmentCharIndex + 1);
+        final Object value;
+        if (keyString.endsWith(LIST_SUFFIX)) {
+            value = new ArrayList<>(Arrays.asList(valueString.split(LIST_SEPARATOR)));
+            keyString = keyString.substring(0, keyString.length() - LIST_SUFFIX.length());
+        } else {
+            value = valueString;
+        }
+
+        return new SJValue(keyString.replaceFirst(".", ""), value);
+    }
+
+    private static String removeLeadingSpaces(final String s) {
+        int spaceCount = 0;
+        for (final char c : s.toCharArray()) {
+            if (c == ' ') {
+                spaceCount++;
+            } else {
+                break;
+            }
+        }
+        return s.substring(spaceCount);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the end-to-end time of loading and merging
+ * a few hundred small generated files, once by parsing
+ * them one after another and once through a {@link SanjoLoader}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+
+    @Param({"200"})
+    public int fileCount;
+
+    @Param({"8192"})
+    public long fileSize;
+
+    private List<SanjoFile> files;
+
+    @Setup
+    public void setup() throws IOException {
+        files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            files.add(new SanjoFile(DocumentGenerator.file(DocumentGenerator.Shape.MIXED, fileSize, i).toString()));
+        }
+    }
+
+    @Benchmark
+    public SJClass sequential() throws IOException {
+        final SJClass root = files.get(0).parser().parse();
+        for (int i = 1; i < files.size(); i++) {
+            SanjoLoader.merge(root, files.get(i).parser().parse());
+        }
+        return root;
+    }
+
+    @Benchmark
+    public SJClass loader() throws IOException {
+        return new SanjoLoader().load(files);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a generated document in the default format
+ * with parsing the same document in a custom format specified
+ * by a leading meta class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetaBenchmark {
+
+    @Param({"MIXED", "LIST_HEAVY"})
+    public DocumentGenerator.Shape shape;
+
+    private String defaultFormat;
+    private String customFormat;
+
+    @Setup
+    public void setup() {
+        defaultFormat = DocumentGenerator.generate(shape, 4 << 20, 42);
+        customFormat = ":meta\n    .indentation=2\n    .list_suffix=<>\n    .list_separator=;;\n"
+                + defaultFormat.replace("    ", "  ").replace("[]=", "<>=").replace(",", ";;");
+    }
+
+    @Benchmark
+    public SJClass parseDefaultFormat() {
+        return new SanjoParser().parse(defaultFormat);
+    }
+
+    @Benchmark
+    public SJClass parseCustomFormat() {
+        return new SanjoParser().parse(customFormat);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoMetrics;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of instrumentation on parsing a generated
+ * document and resolving an address in its tree, once without a
+ * listener and once with {@link SanjoMetrics} installed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private static final String HIT = ":entry500:details.ratio";
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private String document;
+    private SJClass root;
+    private SJAddress hit;
+
+    @Setup
+    public void setup() {
+        document = DocumentGenerator.generate(DocumentGenerator.Shape.MIXED, 150000, 42);
+        root = new SanjoParser().parse(document);
+        hit = SJAddress.forString(HIT);
+        if (!hit.find(root).isPresent()) {
+            throw new IllegalStateException("generated document doesn't contain " + HIT);
+        }
+        SanjoMetrics.setListener(instrumented ? new SanjoMetrics() : null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SanjoMetrics.setListener(null);
+    }
+
+    @Benchmark
+    public SJClass parse() {
+        return new SanjoParser().parse(document);
+    }
+
+    @Benchmark
+    public Optional<Object> find() {
+        return hit.find(root);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing generated documents of different
+ * shapes and sizes from a file.
+ * <p>The largest size needs a large heap for the resulting tree,
+ * e.g. <code>-jvmArgsAppend -Xmx8g</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"FLAT", "DEEP", "WIDE", "LIST_HEAVY"})
+    public DocumentGenerator.Shape shape;
+
+    @Param({"1024", "1048576", "104857600", "524288000"})
+    public long size;
+
+    private SanjoFile file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = new SanjoFile(DocumentGenerator.file(shape, size, 42).toString());
+    }
+
+    @Benchmark
+    public SJClass parse() throws IOException {
+        return file.parser().parse();
+    }
+
+    @Benchmark
+    public SJClass parseLazy() throws IOException {
+        final SanjoParser parser = file.parser();
+        parser.setLazy(true);
+        return parser.parse();
+    }
+
+    @Benchmark
+    public SJClass parseParallel() throws IOException {
+        return file.parseParallel();
+    }
+}
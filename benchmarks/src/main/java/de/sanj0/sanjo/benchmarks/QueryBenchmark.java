@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJQuery;
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluating wildcard queries over a generated
+ * document with 10000 top-level classes with walking the
+ * tree by hand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    private SJClass root;
+    private SJQuery wildcard;
+    private SJQuery recursive;
+
+    @Setup
+    public void setup() {
+        root = new SanjoParser().parse(DocumentGenerator.generate(DocumentGenerator.Shape.MIXED, 1500000, 42));
+        wildcard = SJQuery.forString(":*:details.ratio");
+        recursive = SJQuery.forString(":**.ratio");
+    }
+
+    @Benchmark
+    public double manualWalk() {
+        double sum = 0;
+        for (final SJClass entry : root.getChildren()) {
+            final SJClass details = entry.getChild("details").orElse(null);
+            if (details != null) {
+                final SJValue ratio = details.getValue("ratio").orElse(null);
+                if (ratio != null) {
+                    sum += ratio.doubleValue();
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double wildcardQuery() {
+        return wildcard.stream(root).mapToDouble(value -> ((SJValue) value).doubleValue()).sum();
+    }
+
+    @Benchmark
+    public double recursiveQuery() {
+        return recursive.stream(root).mapToDouble(value -> ((SJValue) value).doubleValue()).sum();
+    }
+
+    @Benchmark
+    public double recursiveQueryParallel() {
+        return recursive.parallelStream(root).mapToDouble(value -> ((SJValue) value).doubleValue()).sum();
+    }
+}
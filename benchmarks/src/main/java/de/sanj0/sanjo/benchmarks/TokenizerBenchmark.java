@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoEventReader;
+import de.sanj0.sanjo.SanjoHandler;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass tokenizer of the {@link SanjoParser}
+ * with the {@link LegacyLineParser String-based line handling} it replaced.
+ * <p>The allocation rates are reported by the GC profiler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    private String document;
+
+    @Setup
+    public void setup() {
+        document = DocumentGenerator.generate(DocumentGenerator.Shape.MIXED, size, 42);
+    }
+
+    @Benchmark
+    public SJClass legacy() throws IOException {
+        return new LegacyLineParser().parse(new StringReader(document));
+    }
+
+    @Benchmark
+    public SJClass tokenizer() throws IOException {
+        return new SanjoParser().parse(new StringReader(document));
+    }
+
+    @Benchmark
+    public void eventsOnly(final Blackhole blackhole) throws IOException {
+        new SanjoEventReader().read(new StringReader(document), new SanjoHandler() {
+            @Override
+            public void value(final CharSequence key, final CharSequence value, final boolean list, final int depth, final int lineNumber) {
+                blackhole.consume(value.length());
+            }
+        });
+    }
+}
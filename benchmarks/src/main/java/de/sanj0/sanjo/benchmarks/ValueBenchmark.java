@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding a list of 10000 numbers: through
+ * {@link SJValue#getList()} and {@link Integer#parseInt(String)}
+ * versus {@link SJValue#intArray()} on an eagerly and a lazily
+ * parsed value. Every invocation works on a freshly parsed
+ * value, so the cache of {@link SJValue#intArray()} isn't hit.
+ * <p>Also measures repeated reads of a scalar value through the
+ * cached {@link SJValue#intValue()} and {@link SJValue#doubleValue()}
+ * versus parsing {@link SJValue#string()} on every read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValueBenchmark {
+
+    private String document;
+    private SJValue scalar;
+
+    @Setup
+    public void setup() {
+        scalar = new SJValue("port", "8080");
+        final StringBuilder builder = new StringBuilder(".samples[]=");
+        for (int i = 0; i < 10000; i++) {
+            builder.append(i == 0 ? "" : ",").append(i * 31);
+        }
+        document = builder.toString();
+    }
+
+    @Benchmark
+    public int[] parseAndBoxedList() {
+        final List<String> list = new SanjoParser().parse(document).getValue("samples").get().getList();
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = Integer.parseInt(list.get(i));
+        }
+        return array;
+    }
+
+    @Benchmark
+    public int[] parseAndIntArray() {
+        return new SanjoParser().parse(document).getValue("samples").get().intArray();
+    }
+
+    @Benchmark
+    public int[] parseLazyAndIntArray() {
+        final SanjoParser parser = new SanjoParser();
+        parser.setLazy(true);
+        return parser.parse(document).getValue("samples").get().intArray();
+    }
+
+    @Benchmark
+    public int intValueUncached() {
+        return Integer.parseInt(scalar.string());
+    }
+
+    @Benchmark
+    public int intValueCached() {
+        return scalar.intValue();
+    }
+
+    @Benchmark
+    public double doubleValueUncached() {
+        return Double.parseDouble(scalar.string());
+    }
+
+    @Benchmark
+    public double doubleValueCached() {
+        return scalar.doubleValue();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo.benchmarks;
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing trees parsed from generated
+ * documents of different shapes and sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteBenchmark {
+
+    @Param({"FLAT", "DEEP", "WIDE", "LIST_HEAVY"})
+    public DocumentGenerator.Shape shape;
+
+    @Param({"1024", "1048576", "16777216"})
+    public long size;
+
+    private SJClass root;
+
+    @Setup
+    public void setup() {
+        root = new SanjoParser().parse(DocumentGenerator.generate(shape, size, 42));
+    }
+
+    @Benchmark
+    public String write() {
+        return root.write();
+    }
+
+    @Benchmark
+    public void writeStreamed(final Blackhole blackhole) throws IOException {
+        root.write(new Writer() {
+            @Override
+            public void write(final char[] cbuf, final int off, final int len) {
+                blackhole.consume(cbuf);
+            }
+
+            @Override
+            public Writer append(final CharSequence csq) {
+                blackhole.consume(csq);
+                return this;
+            }
+
+            @Override
+            public Writer append(final char c) {
+                blackhole.consume(c);
+                return this;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CharSequence} view of a range of a
+ * <code>char[]</code>, used to pass the tokens of a
+ * line to a {@link SanjoHandler} without copying them.
+ * <p>Instances are reused for every line, so
+ * they are only valid until the next line is read.
+ */
+final class CharSlice implements CharSequence {
+
+    private char[] chars;
+    private int offset;
+    private int length;
+
+    CharSlice() {
+    }
+
+    CharSlice(final char[] chars, final int offset, final int length) {
+        set(chars, offset, length);
+    }
+
+    CharSlice set(final char[] chars, final int offset, final int length) {
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Returns the characters in the given range
+     * of the given sequence as a String, without an
+     * intermediate copy if the sequence is a slice.
+     *
+     * @param s a char sequence
+     * @param start the start index, inclusive
+     * @param end the end index, exclusive
+     * @return the characters in the given range as a String
+     */
+    static String substring(final CharSequence s, final int start, final int end) {
+        if (s instanceof CharSlice) {
+            final CharSlice slice = (CharSlice) s;
+            return new String(slice.chars, slice.offset + start, end - start);
+        }
+        return s.subSequence(start, end).toString();
+    }
+
+    /**
+     * Splits the given sequence at every occurrence
+     * of the given literal separator in a single pass.
+     * <p>Like {@link String#split(String)}, the whole sequence
+     * is returned if the separator doesn't occur, and trailing
+     * empty strings are removed otherwise.
+     *
+     * @param s the sequence to split
+     * @param separator the literal separator
+     * @return the parts of the given sequence
+     */
+    static List<String> split(final CharSequence s, final String separator) {
+        final List<String> parts = new ArrayList<>();
+        final int length = s.length();
+        final int separatorLength = separator.length();
+        if (separatorLength == 0) {
+            parts.add(s.toString());
+            return parts;
+        }
+
+        final char first = separator.charAt(0);
+        final int last = length - separatorLength;
+        int start = 0;
+        int i = 0;
+        while (i <= last) {
+            if (s.charAt(i) == first && regionMatches(s, i, separator)) {
+                parts.add(substring(s, start, i));
+                i += separatorLength;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        if (start == 0) {
+            parts.add(s.toString());
+            return parts;
+        }
+        parts.add(substring(s, start, length));
+
+        int size = parts.size();
+        while (size > 0 && parts.get(size - 1).isEmpty()) {
+            parts.remove(--size);
+        }
+        return parts;
+    }
+
+    /**
+     * Checks if the given sequence contains the
+     * given string starting at the given index.
+     *
+     * @param s the sequence to check
+     * @param index the index in the sequence
+     * @param other the string to look for
+     * @return whether or not <code>other</code> occurs at <code>index</code>
+     */
+    static boolean regionMatches(final CharSequence s, final int index, final String other) {
+        if (index < 0 || index + other.length() > s.length()) {
+            return false;
+        }
+        for (int i = 0; i < other.length(); i++) {
+            if (s.charAt(index + i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    char[] array() {
+        return chars;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return chars[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return new CharSlice(chars, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, offset, length);
+    }
+}
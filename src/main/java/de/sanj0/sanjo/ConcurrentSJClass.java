@@ -0,0 +1,321 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * A {@link SJClass} that can be read and modified
+ * by several threads at the same time.
+ * <p>Values are kept in a {@link ConcurrentHashMap}. Children
+ * are kept in an array that is appended to in amortized constant
+ * time and read through immutable snapshots, so that iterating them
+ * never fails, together with a concurrent index of the first child
+ * of every name. Lookups don't lock at all. {@link SJAddress#create(SJClass)}
+ * creates missing children and values atomically, so threads that
+ * create the same address concurrently all end up with the same
+ * class or value.
+ * <p>Children created through {@link #addChild(String)} are
+ * concurrent classes as well. Unlike with {@link SJClass}, the
+ * values of a concurrent class are not kept in insertion order.
+ */
+public class ConcurrentSJClass extends SJClass {
+
+    public ConcurrentSJClass(final String name, final SJClass parentClass, final MetaInf metaInf) {
+        super(name, parentClass, metaInf, new ConcurrentHashMap<>(), new ConcurrentChildList());
+    }
+
+    public ConcurrentSJClass(final String name, final MetaInf metaInf) {
+        this(name, null, metaInf);
+    }
+
+    public ConcurrentSJClass(final String name) {
+        this(name, null, MetaInf.DEFAULT_META_INF);
+    }
+
+    /**
+     * Creates a new concurrent class
+     * with the {@link #DEFAULT default} name.
+     *
+     * @return a new <code>ConcurrentSJClass</code> with the {@link #DEFAULT default} name
+     */
+    public static ConcurrentSJClass concurrentDefaultClass() {
+        return new ConcurrentSJClass(DEFAULT);
+    }
+
+    @Override
+    SJClass child(final String name) {
+        return ((ConcurrentChildList) getChildren()).find(name);
+    }
+
+    @Override
+    SJClass childOrCreate(final String name) {
+        final ConcurrentChildList children = (ConcurrentChildList) getChildren();
+        final SJClass child = children.find(name);
+        if (child != null) {
+            return child;
+        }
+        return children.findOrAdd(name, () -> new ConcurrentSJClass(name, this, getMetaInf()));
+    }
+
+    @Override
+    SJValue valueOrCreate(final String key) {
+        final ConcurrentMap<String, SJValue> values = (ConcurrentMap<String, SJValue>) getValues();
+        final SJValue value = values.get(key);
+        if (value != null) {
+            return value;
+        }
+        return values.computeIfAbsent(key, k -> new SJValue(k, ""));
+    }
+
+    @Override
+    public SJClass addChild(final String name) {
+        final SJClass child = new ConcurrentSJClass(name, this, getMetaInf());
+        getChildren().add(child);
+        return child;
+    }
+
+    @Override
+    public void setName(final String name) {
+        final SJClass parentClass = getParentClass();
+        if (parentClass != null && parentClass.getChildren() instanceof ConcurrentChildList) {
+            final ConcurrentChildList siblings = (ConcurrentChildList) parentClass.getChildren();
+            siblings.rename(this, name);
+        } else {
+            super.setName(name);
+        }
+    }
+
+    /**
+     * Replaces the values with a concurrent copy of the given map.
+     *
+     * @param values the new values
+     */
+    @Override
+    public void setValues(final Map<String, SJValue> values) {
+        super.setValues(new ConcurrentHashMap<>(values));
+    }
+
+    /**
+     * Replaces the children with a concurrent copy of the given list.
+     *
+     * @param children the new children
+     */
+    @Override
+    public void setChildren(final List<SJClass> children) {
+        final ConcurrentChildList list = new ConcurrentChildList();
+        list.addAll(children);
+        super.setChildren(list);
+    }
+
+    private void rename(final String name) {
+        super.setName(name);
+    }
+
+    /**
+     * A list of children with a concurrent index of the
+     * first child of every name.
+     * <p>The children are kept in an array that is read through
+     * a volatile snapshot of the array and its size. Appending
+     * writes the slot after the last child and publishes a new
+     * snapshot, so it takes amortized constant time, and slots
+     * below the size of a published snapshot are never written
+     * again. Every other modification copies the array and
+     * rebuilds the index. Modifications are serialized by a lock,
+     * so that the indexed child of a name is always the first one
+     * in the list. Reads never lock and iterators never fail.
+     */
+    private static final class ConcurrentChildList extends AbstractList<SJClass> implements RandomAccess {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private volatile Snapshot snapshot = new Snapshot(new SJClass[INITIAL_CAPACITY], 0);
+        private volatile ConcurrentMap<String, SJClass> index = new ConcurrentHashMap<>();
+        private final Object lock = new Object();
+
+        private SJClass find(final String name) {
+            return index.get(name);
+        }
+
+        private SJClass findOrAdd(final String name, final Supplier<SJClass> factory) {
+            synchronized (lock) {
+                final SJClass existing = index.get(name);
+                if (existing != null) {
+                    return existing;
+                }
+                final SJClass child = factory.get();
+                append(child);
+                index.put(name, child);
+                return child;
+            }
+        }
+
+        private void rename(final ConcurrentSJClass child, final String name) {
+            synchronized (lock) {
+                child.rename(name);
+                rebuildIndex(snapshot);
+            }
+        }
+
+        /**
+         * Appends the given child, the caller holds the lock.
+         */
+        private void append(final SJClass child) {
+            final Snapshot current = snapshot;
+            SJClass[] elements = current.elements;
+            if (current.size == elements.length) {
+                elements = Arrays.copyOf(elements, elements.length * 2);
+            }
+            elements[current.size] = child;
+            snapshot = new Snapshot(elements, current.size + 1);
+        }
+
+        /**
+         * Publishes a modified copy of the children and
+         * rebuilds the index, the caller holds the lock.
+         */
+        private void replace(final SJClass[] elements, final int size) {
+            final Snapshot replaced = new Snapshot(elements, size);
+            snapshot = replaced;
+            rebuildIndex(replaced);
+        }
+
+        private void rebuildIndex(final Snapshot snapshot) {
+            final ConcurrentMap<String, SJClass> index = new ConcurrentHashMap<>();
+            for (int i = 0; i < snapshot.size; i++) {
+                index.putIfAbsent(snapshot.elements[i].getName(), snapshot.elements[i]);
+            }
+            this.index = index;
+        }
+
+        @Override
+        public SJClass get(final int index) {
+            final Snapshot snapshot = this.snapshot;
+            if (index < 0 || index >= snapshot.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + snapshot.size);
+            }
+            return snapshot.elements[index];
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size;
+        }
+
+        @Override
+        public Iterator<SJClass> iterator() {
+            // a snapshot that never fails
+            final Snapshot snapshot = this.snapshot;
+            return Collections.unmodifiableList(Arrays.asList(snapshot.elements).subList(0, snapshot.size)).iterator();
+        }
+
+        @Override
+        public boolean add(final SJClass child) {
+            synchronized (lock) {
+                append(child);
+                index.putIfAbsent(child.getName(), child);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean addAll(final Collection<? extends SJClass> children) {
+            synchronized (lock) {
+                for (final SJClass child : children) {
+                    add(child);
+                }
+            }
+            return !children.isEmpty();
+        }
+
+        @Override
+        public void add(final int index, final SJClass child) {
+            synchronized (lock) {
+                final Snapshot current = snapshot;
+                if (index < 0 || index > current.size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + current.size);
+                }
+                final SJClass[] elements = new SJClass[Math.max(INITIAL_CAPACITY, current.size * 2)];
+                System.arraycopy(current.elements, 0, elements, 0, index);
+                elements[index] = child;
+                System.arraycopy(current.elements, index, elements, index + 1, current.size - index);
+                replace(elements, current.size + 1);
+            }
+        }
+
+        @Override
+        public SJClass set(final int index, final SJClass child) {
+            synchronized (lock) {
+                final Snapshot current = snapshot;
+                final SJClass previous = get(index);
+                final SJClass[] elements = Arrays.copyOf(current.elements, current.elements.length);
+                elements[index] = child;
+                replace(elements, current.size);
+                return previous;
+            }
+        }
+
+        @Override
+        public SJClass remove(final int index) {
+            synchronized (lock) {
+                final Snapshot current = snapshot;
+                final SJClass previous = get(index);
+                final SJClass[] elements = new SJClass[current.elements.length];
+                System.arraycopy(current.elements, 0, elements, 0, index);
+                System.arraycopy(current.elements, index + 1, elements, index, current.size - index - 1);
+                replace(elements, current.size - 1);
+                return previous;
+            }
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            synchronized (lock) {
+                final int index = indexOf(o);
+                if (index == -1) {
+                    return false;
+                }
+                remove(index);
+                return true;
+            }
+        }
+
+        @Override
+        public void clear() {
+            synchronized (lock) {
+                replace(new SJClass[INITIAL_CAPACITY], 0);
+            }
+        }
+    }
+
+    /**
+     * The children of a {@link ConcurrentChildList}: the first
+     * <code>size</code> elements of the array, which are never
+     * written again once the snapshot is published.
+     */
+    private static final class Snapshot {
+        private final SJClass[] elements;
+        private final int size;
+
+        private Snapshot(final SJClass[] elements, final int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+    }
+}
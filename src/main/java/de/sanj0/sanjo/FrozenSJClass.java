@@ -0,0 +1,342 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.*;
+
+/**
+ * A deeply immutable copy of a {@link SJClass}.
+ * <p>Values and children are stored in arrays with open-addressing
+ * hash tables over precomputed hashes, every value is materialized
+ * and all state is reachable through final fields that are written
+ * while the root of the copy is constructed. A frozen tree can
+ * therefore be published through a data race and read by any
+ * number of threads without synchronization.
+ * <p>Every modification throws an {@link UnsupportedOperationException}.
+ *
+ * @see SJClass#freeze()
+ */
+final class FrozenSJClass extends SJClass {
+
+    private final String name;
+    private final SJClass parentClass;
+    private final MetaInf metaInf;
+    private final Values values;
+    private final Children children;
+
+    /**
+     * @param source the class to copy
+     * @param parentClass the frozen parent of the copy or <code>null</code>
+     * @param metaInf a copy of the format of the source that
+     *                isn't shared with any mutable class
+     */
+    FrozenSJClass(final SJClass source, final SJClass parentClass, final MetaInf metaInf) {
+        super(source.getName(), parentClass, metaInf, Collections.emptyMap(), Collections.emptyList());
+        this.name = source.getName();
+        this.parentClass = parentClass;
+        this.metaInf = metaInf;
+
+        final Collection<SJValue> sourceValues = source.getValues().values();
+        final SJValue[] valueArray = new SJValue[sourceValues.size()];
+        int i = 0;
+        for (final SJValue value : sourceValues) {
+            valueArray[i++] = new FrozenSJValue(value);
+        }
+        values = new Values(valueArray);
+
+        final List<SJClass> sourceChildren = source.getChildren();
+        final SJClass[] childArray = new SJClass[sourceChildren.size()];
+        for (int j = 0; j < childArray.length; j++) {
+            final SJClass child = sourceChildren.get(j);
+            // children usually share the format of their parent
+            childArray[j] = new FrozenSJClass(child, this,
+                    child.getMetaInf() == source.getMetaInf() ? metaInf : copy(child.getMetaInf()));
+        }
+        children = new Children(childArray);
+    }
+
+    /**
+     * Returns a copy of the given format for a frozen tree.
+     * The default format is shared, as it is never modified.
+     */
+    static MetaInf copy(final MetaInf metaInf) {
+        return metaInf == null || metaInf == MetaInf.DEFAULT_META_INF ? metaInf : new MetaInf(metaInf);
+    }
+
+    @Override
+    public SJClass freeze() {
+        return this;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return true;
+    }
+
+    @Override
+    SJClass child(final String name) {
+        return children.find(name);
+    }
+
+    @Override
+    public Optional<SJValue> getValue(final String key) {
+        return Optional.ofNullable(values.get(key));
+    }
+
+    @Override
+    public SJClass getParentClass() {
+        return parentClass;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public MetaInf getMetaInf() {
+        return metaInf;
+    }
+
+    @Override
+    public Map<String, SJValue> getValues() {
+        return values;
+    }
+
+    @Override
+    public List<SJClass> getChildren() {
+        return children;
+    }
+
+    @Override
+    public SJValue addValue(final SJValue val) {
+        throw new UnsupportedOperationException("frozen class");
+    }
+
+    @Override
+    public SJClass addChild(final String name) {
+        throw new UnsupportedOperationException("frozen class");
+    }
+
+    @Override
+    public SJClass addChild(final SJClass clazz) {
+        throw new UnsupportedOperationException("frozen class");
+    }
+
+    @Override
+    public void setName(final String name) {
+        throw new UnsupportedOperationException("frozen class");
+    }
+
+    @Override
+    public void setValues(final Map<String, SJValue> values) {
+        throw new UnsupportedOperationException("frozen class");
+    }
+
+    @Override
+    public void setChildren(final List<SJClass> children) {
+        throw new UnsupportedOperationException("frozen class");
+    }
+
+    @Override
+    public void setMetaInf(final MetaInf metaInf) {
+        throw new UnsupportedOperationException("frozen class");
+    }
+
+    /**
+     * Returns the size of an open-addressing table
+     * with a load factor of at most one half.
+     */
+    private static int tableSize(final int size) {
+        int tableSize = 2;
+        while (tableSize < size * 2) {
+            tableSize <<= 1;
+        }
+        return tableSize;
+    }
+
+    /**
+     * Spreads the higher bits of a hash to the lower
+     * bits that are used to index a table.
+     */
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * The values of a frozen class in their original order,
+     * looked up by key through a table of indices.
+     */
+    private static final class Values extends AbstractMap<String, SJValue> {
+        private final SJValue[] values;
+        private final int[] hashes;
+        /**
+         * The index of a value plus one at the slot of its key
+         */
+        private final int[] table;
+
+        private Values(final SJValue[] values) {
+            this.values = values;
+            hashes = new int[values.length];
+            table = new int[tableSize(values.length)];
+            final int mask = table.length - 1;
+            for (int i = 0; i < values.length; i++) {
+                hashes[i] = spread(values[i].getKey().hashCode());
+                int slot = hashes[i] & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+        }
+
+        @Override
+        public SJValue get(final Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            final int hash = spread(key.hashCode());
+            final int mask = table.length - 1;
+            for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                final int index = table[slot] - 1;
+                if (hashes[index] == hash && values[index].getKey().equals(key)) {
+                    return values[index];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Set<Entry<String, SJValue>> entrySet() {
+            return new AbstractSet<Entry<String, SJValue>>() {
+                @Override
+                public Iterator<Entry<String, SJValue>> iterator() {
+                    return new Iterator<Entry<String, SJValue>>() {
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, SJValue> next() {
+                            if (index == values.length) {
+                                throw new NoSuchElementException();
+                            }
+                            final SJValue value = values[index++];
+                            return new SimpleImmutableEntry<>(value.getKey(), value);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+        }
+
+        @Override
+        public Collection<SJValue> values() {
+            return Collections.unmodifiableList(Arrays.asList(values));
+        }
+    }
+
+    /**
+     * The children of a frozen class, looked up by name
+     * through a table of the first child of every name.
+     */
+    private static final class Children extends AbstractList<SJClass> implements RandomAccess {
+        private final SJClass[] children;
+        private final int[] hashes;
+        /**
+         * The index of a child plus one at the slot of its name,
+         * <code>null</code> for lists that are scanned
+         */
+        private final int[] table;
+
+        private Children(final SJClass[] children) {
+            this.children = children;
+            if (children.length <= SJChildList.INDEX_THRESHOLD) {
+                hashes = null;
+                table = null;
+                return;
+            }
+            hashes = new int[children.length];
+            table = new int[tableSize(children.length)];
+            final int mask = table.length - 1;
+            for (int i = 0; i < children.length; i++) {
+                final String name = children[i].getName();
+                hashes[i] = spread(name.hashCode());
+                int slot = hashes[i] & mask;
+                boolean duplicate = false;
+                while (table[slot] != 0) {
+                    final int index = table[slot] - 1;
+                    if (hashes[index] == hashes[i] && children[index].getName().equals(name)) {
+                        duplicate = true;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                if (!duplicate) {
+                    table[slot] = i + 1;
+                }
+            }
+        }
+
+        private SJClass find(final String name) {
+            if (table == null) {
+                for (final SJClass child : children) {
+                    if (child.getName().equals(name)) {
+                        return child;
+                    }
+                }
+                return null;
+            }
+            final int hash = spread(name.hashCode());
+            final int mask = table.length - 1;
+            for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                final int index = table[slot] - 1;
+                if (hashes[index] == hash && children[index].getName().equals(name)) {
+                    return children[index];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public SJClass get(final int index) {
+            return children[index];
+        }
+
+        @Override
+        public int size() {
+            return children.length;
+        }
+    }
+}
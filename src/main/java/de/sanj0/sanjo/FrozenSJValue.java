@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable, materialized copy of a {@link SJValue}
+ * in a {@link FrozenSJClass frozen} tree.
+ * <p>Decoded numbers and arrays are still cached,
+ * as these caches are safe to share between threads.
+ * <p>As the value of a {@link SJValue} is transient, frozen
+ * values are serialized as their key and value and read
+ * back as frozen values.
+ */
+final class FrozenSJValue extends SJValue {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+
+    FrozenSJValue(final SJValue source) {
+        super(source.getKey(), freeze(source.getValue()));
+        key = source.getKey();
+    }
+
+    private static Object freeze(final Object value) {
+        if (value instanceof List) {
+            final List<String> list = new ArrayList<>(((List<?>) value).size());
+            for (final Object element : (List<?>) value) {
+                list.add(element.toString());
+            }
+            return Collections.unmodifiableList(list);
+        }
+        return value instanceof String ? value : value.toString();
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public void setKey(final String key) {
+        throw new UnsupportedOperationException("frozen value");
+    }
+
+    @Override
+    public void setValue(final Object value) {
+        throw new UnsupportedOperationException("frozen value");
+    }
+
+    private Object writeReplace() {
+        return new SerializedForm(key, getValue());
+    }
+
+    private void readObject(final ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("frozen values are read from their serialized form");
+    }
+
+    /**
+     * The key and the String or list of Strings of a frozen value.
+     */
+    private static final class SerializedForm implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String key;
+        private final Object value;
+
+        SerializedForm(final String key, final Object value) {
+            this.key = key;
+            this.value = value instanceof List ? new ArrayList<>((List<?>) value) : value;
+        }
+
+        private Object readResolve() {
+            return new FrozenSJValue(new SJValue(key, value));
+        }
+    }
+}
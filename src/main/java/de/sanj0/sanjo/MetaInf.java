@@ -16,6 +16,8 @@
 
 package de.sanj0.sanjo;
 
+import java.util.Objects;
+
 /**
  * Stores meta information about sanjo file formatting.
  */
@@ -59,6 +61,15 @@ public class MetaInf {
         this.listSeparator = listSeparator;
     }
 
+    /**
+     * Creates a copy of the given meta information.
+     *
+     * @param metaInf the meta information to copy
+     */
+    public MetaInf(final MetaInf metaInf) {
+        this(metaInf.indentionWidth, metaInf.listSuffix, metaInf.listSeparator);
+    }
+
     /**
      * All-default constructor.
      */
@@ -77,4 +88,22 @@ public class MetaInf {
     public String getListSeparator() {
         return listSeparator;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MetaInf)) {
+            return false;
+        }
+        final MetaInf metaInf = (MetaInf) o;
+        return indentionWidth == metaInf.indentionWidth && listSuffix.equals(metaInf.listSuffix)
+                && listSeparator.equals(metaInf.listSeparator);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(indentionWidth, listSuffix, listSeparator);
+    }
 }
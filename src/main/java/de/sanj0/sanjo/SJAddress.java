@@ -16,10 +16,12 @@
 
 package de.sanj0.sanjo;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.BiConsumer;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An address of a specified format
@@ -43,27 +45,56 @@ import java.util.function.BiConsumer;
  * the value "name" (currently holding the value "Jonas")
  * would be
  * <br>{@code :data:save0.name}<br>
+ * <p>Addresses are immutable. The address string is
+ * evaluated once on construction, so resolving the same
+ * address repeatedly should reuse the same instance, e.g.
+ * through the cache behind {@link #forString(String)}.
  */
 public class SJAddress {
 
+    /**
+     * The maximum number of addresses
+     * cached by {@link #forString(String)}
+     */
+    public static final int CACHE_SIZE = 4096;
+    private static final Map<String, SJAddress> CACHE = new ConcurrentHashMap<>();
+
     private final String address;
-    private final List<AddressComponent> addressComponents;
+    private final AddressComponent[] addressComponents;
 
     public SJAddress(String address) {
         this.address = address;
-        addressComponents = new ArrayList<>();
-        evaluateAddress();
+        addressComponents = evaluateAddress();
     }
 
+    /**
+     * Returns the address for the given string.
+     * <p>Addresses are interned: the first {@link #CACHE_SIZE}
+     * distinct address strings are cached, so repeated calls with
+     * the same string return the same, already evaluated instance.
+     *
+     * @param address the address string
+     * @return the address for the given string
+     */
     public static SJAddress forString(final String address) {
-        return new SJAddress(address);
+        final SJAddress cached = CACHE.get(address);
+        if (cached != null) {
+            return cached;
+        }
+        final SJAddress sjAddress = new SJAddress(address);
+        if (CACHE.size() < CACHE_SIZE) {
+            final SJAddress previous = CACHE.putIfAbsent(address, sjAddress);
+            return previous == null ? sjAddress : previous;
+        }
+        return sjAddress;
     }
 
     public Target getTargetType() {
-        return addressComponents.get(addressComponents.size() - 1).targetType;
+        return addressComponents[addressComponents.length - 1].targetType;
     }
 
-    private void evaluateAddress() {
+    private AddressComponent[] evaluateAddress() {
+        final List<AddressComponent> addressComponents = new ArrayList<>();
         final char[] addressChars = address.toCharArray();
         StringBuilder currentData = new StringBuilder();
         Target currentTarget = null;
@@ -72,22 +103,24 @@ public class SJAddress {
             switch (c) {
                 case SanjoParser.CLASS_PREFIX:
                 case SanjoParser.CLASS_PREFIX_GT:
-                    currentData = addAddressComponent(currentData, currentTarget);
+                    currentData = addAddressComponent(addressComponents, currentData, currentTarget);
                     currentTarget = Target.CLASS;
                     break;
                 case SanjoParser.KEY_PREFIX:
                 case SanjoParser.KEY_PREFIX_QM:
-                    currentData = addAddressComponent(currentData, currentTarget);
+                    currentData = addAddressComponent(addressComponents, currentData, currentTarget);
                     currentTarget = Target.VALUE;
                     break;
                 default:
                     currentData.append(c);
             }
         }
-        addAddressComponent(currentData, currentTarget);
+        addAddressComponent(addressComponents, currentData, currentTarget);
+        return addressComponents.toArray(new AddressComponent[0]);
     }
 
-    private StringBuilder addAddressComponent(final StringBuilder builder, final Target target) {
+    private static StringBuilder addAddressComponent(final List<AddressComponent> addressComponents,
+                                                     final StringBuilder builder, final Target target) {
         if (builder.length() != 0) {
             addressComponents.add(new AddressComponent(builder.toString(), target));
             return new StringBuilder();
@@ -102,6 +135,8 @@ public class SJAddress {
      * Creates every subclass so that
      * this address' target exists with the given
      * {@link SJClass class} as the entry point.
+     * <p>Missing classes and values are created atomically
+     * in a {@link ConcurrentSJClass}.
      * <p>In case this address points to a
      * {@link SJValue value}, an empty value
      * is added in the according (maybe just generated)
@@ -110,36 +145,128 @@ public class SJAddress {
      * @return the target of this address
      */
     public Object create(final SJClass root) {
-        return walk(root, (c, ac) -> {
-            if (ac.targetType == Target.CLASS) {
-                if (!c.getChild(ac.target).isPresent()) {
-                    c.getChildren().add(new SJClass(ac.target, c, c.getMetaInf()));
-                }
-            } else if (!c.getValue(ac.target).isPresent()) {
-                c.getValues().put(ac.target, new SJValue(ac.target, ""));
+        SJClass targetClass = root;
+        for (final AddressComponent addressComponent : addressComponents) {
+            if (addressComponent.targetType == Target.CLASS) {
+                targetClass = targetClass.childOrCreate(addressComponent.target);
+            } else {
+                return Optional.of(targetClass.valueOrCreate(addressComponent.target));
             }
-        });
+        }
+
+        return targetClass.getName().isEmpty() ? Optional.empty() : Optional.of(targetClass);
     }
 
+    /**
+     * Resolves this address against the given tree. Every lookup
+     * is reported to the {@link SanjoListener} installed through
+     * {@link SanjoMetrics#setListener(SanjoListener)}.
+     *
+     * @param root the class to resolve this address from
+     * @return the {@link SJClass} or {@link SJValue} this
+     * address points to or an empty optional
+     */
     public Optional<Object> find(final SJClass root) {
-        return (Optional<Object>) walk(root, (c, ac) -> {});
+        final SanjoListener listener = SanjoMetrics.listener;
+        if (listener == null) {
+            return find0(root);
+        }
+        final long start = System.nanoTime();
+        final Optional<Object> result = find0(root);
+        listener.lookup(this, result.isPresent(), System.nanoTime() - start);
+        return result;
     }
 
-    private Optional<?> walk(final SJClass root, final BiConsumer<SJClass, AddressComponent> preVisitAction) {
+    private Optional<Object> find0(final SJClass root) {
         SJClass targetClass = root;
         for (final AddressComponent addressComponent : addressComponents) {
             if (addressComponent.targetType == Target.CLASS) {
-                preVisitAction.accept(targetClass, addressComponent);
-                targetClass = targetClass.getChild(addressComponent.target).orElse(new SJClass(""));
+                targetClass = targetClass.child(addressComponent.target);
+                if (targetClass == null) {
+                    return Optional.empty();
+                }
+            } else {
+                return Optional.ofNullable(targetClass.getValues().get(addressComponent.target));
+            }
+        }
+
+        return targetClass.getName().isEmpty() ? Optional.empty() : Optional.of(targetClass);
+    }
+
+    /**
+     * Resolves this address against a read-only view of
+     * {@link SanjoBinary binary} sanjo data.
+     * <p>The UTF-8 form of every component is computed once per
+     * address, so lookups only compare bytes of the underlying buffer.
+     *
+     * @param root the view of the class to resolve this address from
+     * @return the {@link SJClassView} or {@link SJValueView} this
+     * address points to or an empty optional
+     */
+    public Optional<Object> find(final SJClassView root) {
+        final SanjoListener listener = SanjoMetrics.listener;
+        if (listener == null) {
+            return find0(root);
+        }
+        final long start = System.nanoTime();
+        final Optional<Object> result = find0(root);
+        listener.lookup(this, result.isPresent(), System.nanoTime() - start);
+        return result;
+    }
+
+    private Optional<Object> find0(final SJClassView root) {
+        SJClassView targetClass = root;
+        for (final AddressComponent addressComponent : addressComponents) {
+            if (addressComponent.targetType == Target.CLASS) {
+                targetClass = targetClass.child(addressComponent.utf8());
+                if (targetClass == null) {
+                    return Optional.empty();
+                }
             } else {
-                preVisitAction.accept(targetClass, addressComponent);
-                return targetClass.getValue(addressComponent.target);
+                return Optional.ofNullable(targetClass.value(addressComponent.utf8()));
             }
         }
 
         return targetClass.getName().isEmpty() ? Optional.empty() : Optional.of(targetClass);
     }
 
+    int componentCount() {
+        return addressComponents.length;
+    }
+
+    String componentTarget(final int index) {
+        return addressComponents[index].target;
+    }
+
+    Target componentTargetType(final int index) {
+        return addressComponents[index].targetType;
+    }
+
+    /**
+     * Returns a query for this address, in which <code>*</code>
+     * and <code>**</code> are wildcards.
+     *
+     * @return a query for this address
+     * @see SJQuery
+     */
+    public SJQuery toQuery() {
+        return new SJQuery(this);
+    }
+
+    /**
+     * Returns the string this address was created from.
+     *
+     * @return the address string
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public String toString() {
+        return address;
+    }
+
     public enum Target {
         VALUE,
         CLASS
@@ -148,6 +275,7 @@ public class SJAddress {
     private static class AddressComponent {
         private final String target;
         private final Target targetType;
+        private volatile byte[] utf8;
 
         public AddressComponent(final String target, final Target targetType) {
             this.target = target;
@@ -161,5 +289,15 @@ public class SJAddress {
         public Target getTargetType() {
             return targetType;
         }
+
+        private byte[] utf8() {
+            // every thread that races here computes the same bytes
+            byte[] utf8 = this.utf8;
+            if (utf8 == null) {
+                utf8 = target.getBytes(StandardCharsets.UTF_8);
+                this.utf8 = utf8;
+            }
+            return utf8;
+        }
     }
 }
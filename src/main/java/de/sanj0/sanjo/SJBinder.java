@@ -0,0 +1,425 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Binds {@link SJClass classes} to plain Java objects and records.
+ * <p>Every value of a class is bound to the field named like its
+ * key and every subclass to the field named like the subclass,
+ * unless the field sets another name with {@link SJKey}.
+ * Fields can have the following types:
+ * <ul>
+ *     <li>String, enums, primitives and their wrappers for single values</li>
+ *     <li><code>int[]</code>, <code>long[]</code>, <code>double[]</code>,
+ *     <code>String[]</code> and Lists of Strings, Integers, Longs or Doubles
+ *     for list values</li>
+ *     <li>{@link SJValue} and {@link SJClass} for the value or subclass itself</li>
+ *     <li>any other bindable type for a subclass, and Lists of such a
+ *     type for all subclasses with the name of the field</li>
+ * </ul>
+ * <p>Objects are created through their no-argument constructor,
+ * their fields are set through a setter (a public method named
+ * <code>set</code> followed by the capitalized name of the field)
+ * if there is one and directly otherwise. Static, transient and final
+ * fields are skipped. Records are created through their canonical
+ * constructor. Fields without value or subclass keep their initial
+ * value, record components without one are <code>null</code>,
+ * <code>0</code> or <code>false</code>.
+ * <p>The first time a type is bound, its fields are looked up and
+ * turned into a plan of conversions and {@link MethodHandle method
+ * handles}, which is cached for the lifetime of the type. Binding
+ * an object therefore costs about as much as reading its values by
+ * hand, no reflection is involved after the first call.
+ * <p>Binding is thread-safe.
+ */
+public final class SJBinder {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final ClassValue<Plan> PLANS = new ClassValue<Plan>() {
+        @Override
+        protected Plan computeValue(final Class<?> type) {
+            return plan(type);
+        }
+    };
+    /**
+     * The record methods of the reflection API, which
+     * are <code>null</code> on versions without records
+     */
+    private static final Method IS_RECORD = method("java.lang.Class", "isRecord");
+    private static final Method GET_RECORD_COMPONENTS = method("java.lang.Class", "getRecordComponents");
+    private static final Method COMPONENT_NAME = method("java.lang.reflect.RecordComponent", "getName");
+    private static final Method COMPONENT_TYPE = method("java.lang.reflect.RecordComponent", "getType");
+    private static final Method COMPONENT_GENERIC_TYPE = method("java.lang.reflect.RecordComponent", "getGenericType");
+    /**
+     * Returned by converters for a missing value or subclass
+     */
+    private static final Object MISSING = new Object();
+
+    private SJBinder() { }
+
+    /**
+     * Binds the given class to a new instance of the given type.
+     *
+     * @param clazz the class to bind
+     * @param type the type to bind the class to
+     * @param <T> the type to bind the class to
+     * @return a new instance of the given type
+     * @throws IllegalArgumentException if the type can't be bound or
+     *                                  a value can't be converted to its field
+     */
+    public static < T > T bind(final SJClass clazz, final Class<T> type) {
+        return type.cast(PLANS.get(type).bind(clazz));
+    }
+
+    /**
+     * Binds every given class to a new instance of the given type.
+     *
+     * @param classes the classes to bind
+     * @param type the type to bind the classes to
+     * @param <T> the type to bind the classes to
+     * @return a new instance of the given type for every class
+     * @throws IllegalArgumentException if the type can't be bound or
+     *                                  a value can't be converted to its field
+     * @see #bind(SJClass, Class)
+     */
+    public static < T > List<T> bindAll(final Collection<? extends SJClass> classes, final Class<T> type) {
+        final Plan plan = PLANS.get(type);
+        final List<T> objects = new ArrayList<>(classes.size());
+        for (final SJClass clazz : classes) {
+            objects.add(type.cast(plan.bind(clazz)));
+        }
+        return objects;
+    }
+
+    private static Plan plan(final Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum()
+                || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("cannot bind classes to " + type.getName());
+        }
+        try {
+            return isRecord(type) ? recordPlan(type) : objectPlan(type);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("cannot bind classes to " + type.getName() + ": " + e, e);
+        }
+    }
+
+    private static Plan objectPlan(final Class<?> type) throws ReflectiveOperationException {
+        final Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        final List<Property> properties = new ArrayList<>();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (final Field field : c.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (field.isSynthetic() || Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                        || Modifier.isFinal(modifiers)) {
+                    continue;
+                }
+                properties.add(new Property(key(field), converter(field.getType(), field.getGenericType()),
+                        setter(type, field).asType(MethodType.methodType(void.class, Object.class, Object.class))));
+            }
+        }
+        return new Plan(type, LOOKUP.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class)),
+                properties.toArray(new Property[0]), null);
+    }
+
+    private static MethodHandle setter(final Class<?> type, final Field field) throws IllegalAccessException {
+        final String name = field.getName();
+        try {
+            final Method setter = type.getMethod("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1), field.getType());
+            if (!Modifier.isStatic(setter.getModifiers())) {
+                return LOOKUP.unreflect(setter);
+            }
+        } catch (final NoSuchMethodException e) {
+            // set the field directly
+        }
+        field.setAccessible(true);
+        return LOOKUP.unreflectSetter(field);
+    }
+
+    private static Plan recordPlan(final Class<?> type) throws ReflectiveOperationException {
+        final Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+        final Class<?>[] types = new Class<?>[components.length];
+        final Property[] properties = new Property[components.length];
+        final Object[] defaults = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            types[i] = (Class<?>) COMPONENT_TYPE.invoke(components[i]);
+            final String name = (String) COMPONENT_NAME.invoke(components[i]);
+            // annotations of record components are propagated to their fields
+            properties[i] = new Property(key(type.getDeclaredField(name)),
+                    converter(types[i], (Type) COMPONENT_GENERIC_TYPE.invoke(components[i])), null);
+            defaults[i] = types[i].isPrimitive() ? Array.get(Array.newInstance(types[i], 1), 0) : null;
+        }
+        final Constructor<?> constructor = type.getDeclaredConstructor(types);
+        constructor.setAccessible(true);
+        return new Plan(type, LOOKUP.unreflectConstructor(constructor)
+                .asSpreader(Object[].class, components.length)
+                .asType(MethodType.methodType(Object.class, Object[].class)), properties, defaults);
+    }
+
+    private static boolean isRecord(final Class<?> type) throws ReflectiveOperationException {
+        return IS_RECORD != null && (Boolean) IS_RECORD.invoke(type);
+    }
+
+    private static String key(final Field field) {
+        final SJKey key = field.getAnnotation(SJKey.class);
+        return key == null ? field.getName() : key.value();
+    }
+
+    private static Converter converter(final Class<?> type, final Type genericType) {
+        if (type == String.class) {
+            return value(SJValue::string);
+        } else if (type == int.class || type == Integer.class) {
+            return value(SJValue::intValue);
+        } else if (type == long.class || type == Long.class) {
+            return value(SJValue::longValue);
+        } else if (type == double.class || type == Double.class) {
+            return value(SJValue::doubleValue);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return value(SJValue::booleanValue);
+        } else if (type == float.class || type == Float.class) {
+            return value(SJValue::floatValue);
+        } else if (type == short.class || type == Short.class) {
+            return value(SJBinder::shortValue);
+        } else if (type == byte.class || type == Byte.class) {
+            return value(SJBinder::byteValue);
+        } else if (type == char.class || type == Character.class) {
+            return value(SJBinder::charValue);
+        } else if (type == int[].class) {
+            return value(SJValue::intArray);
+        } else if (type == long[].class) {
+            return value(SJValue::longArray);
+        } else if (type == double[].class) {
+            return value(SJValue::doubleArray);
+        } else if (type == String[].class) {
+            return value(value -> value.getList().toArray(new String[0]));
+        } else if (type == SJValue.class) {
+            return value(value -> value);
+        } else if (type == SJClass.class) {
+            return (owner, key) -> {
+                final SJClass child = owner.child(key);
+                return child == null ? MISSING : child;
+            };
+        } else if (type.isEnum()) {
+            return enumConverter(type);
+        } else if (type == List.class) {
+            return listConverter(genericType);
+        }
+        return (owner, key) -> {
+            final SJClass child = owner.child(key);
+            return child == null ? MISSING : PLANS.get(type).bind(child);
+        };
+    }
+
+    private static Converter listConverter(final Type genericType) {
+        final Type element = genericType instanceof ParameterizedType
+                ? ((ParameterizedType) genericType).getActualTypeArguments()[0] : null;
+        if (element == String.class) {
+            return value(value -> new ArrayList<>(value.getList()));
+        } else if (element == Integer.class) {
+            return value(value -> boxed(value.intArray()));
+        } else if (element == Long.class) {
+            return value(value -> boxed(value.longArray()));
+        } else if (element == Double.class) {
+            return value(value -> boxed(value.doubleArray()));
+        } else if (element instanceof Class) {
+            final Class<?> type = (Class<?>) element;
+            return (owner, key) -> {
+                final Plan plan = PLANS.get(type);
+                final List<Object> objects = new ArrayList<>();
+                for (final SJClass child : owner.getChildren()) {
+                    if (child.getName().equals(key)) {
+                        objects.add(plan.bind(child));
+                    }
+                }
+                return objects;
+            };
+        }
+        throw new IllegalArgumentException("cannot bind to " + genericType);
+    }
+
+    private static Converter value(final Function<SJValue, Object> conversion) {
+        return (owner, key) -> {
+            final SJValue value = owner.getValues().get(key);
+            return value == null ? MISSING : conversion.apply(value);
+        };
+    }
+
+    // SJValue has no short or byte accessor, and Number's defaults
+    // truncate silently, so values out of range are rejected here
+    private static short shortValue(final SJValue value) {
+        final int i = value.intValue();
+        if (i < Short.MIN_VALUE || i > Short.MAX_VALUE) {
+            throw new NumberFormatException("value out of range for short: " + i);
+        }
+        return (short) i;
+    }
+
+    private static byte byteValue(final SJValue value) {
+        final int i = value.intValue();
+        if (i < Byte.MIN_VALUE || i > Byte.MAX_VALUE) {
+            throw new NumberFormatException("value out of range for byte: " + i);
+        }
+        return (byte) i;
+    }
+
+    private static char charValue(final SJValue value) {
+        final String s = value.string();
+        if (s.length() != 1) {
+            throw new IllegalArgumentException("not a single char: " + s);
+        }
+        return s.charAt(0);
+    }
+
+    private static Converter enumConverter(final Class<?> type) {
+        final Map<String, Object> constants = new HashMap<>();
+        for (final Object constant : type.getEnumConstants()) {
+            constants.put(((Enum<?>) constant).name(), constant);
+        }
+        return value(value -> {
+            final Object constant = constants.get(value.string());
+            if (constant == null) {
+                throw new IllegalArgumentException("no enum constant " + type.getName() + "." + value.string());
+            }
+            return constant;
+        });
+    }
+
+    private static List<Integer> boxed(final int[] array) {
+        final List<Integer> list = new ArrayList<>(array.length);
+        for (final int i : array) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    private static List<Long> boxed(final long[] array) {
+        final List<Long> list = new ArrayList<>(array.length);
+        for (final long l : array) {
+            list.add(l);
+        }
+        return list;
+    }
+
+    private static List<Double> boxed(final double[] array) {
+        final List<Double> list = new ArrayList<>(array.length);
+        for (final double d : array) {
+            list.add(d);
+        }
+        return list;
+    }
+
+    private static Method method(final String className, final String name) {
+        try {
+            return Class.forName(className).getMethod(name);
+        } catch (final ClassNotFoundException | NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts the value or subclass with a
+     * given name of a class to the type of a field.
+     */
+    @FunctionalInterface
+    private interface Converter {
+        /**
+         * @return the converted value or {@link #MISSING}
+         */
+        Object convert(SJClass owner, String key);
+    }
+
+    private static final class Property {
+        private final String key;
+        private final Converter converter;
+        /**
+         * <code>(Object, Object)void</code> or
+         * <code>null</code> for record components
+         */
+        private final MethodHandle setter;
+
+        private Property(final String key, final Converter converter, final MethodHandle setter) {
+            this.key = key;
+            this.converter = converter;
+            this.setter = setter;
+        }
+
+        private Object convert(final SJClass owner) {
+            try {
+                return converter.convert(owner, key);
+            } catch (final RuntimeException e) {
+                throw new IllegalArgumentException("cannot bind " + key + " of class " + owner.getName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * How to create and fill the instances of a type.
+     */
+    private static final class Plan {
+        private final Class<?> type;
+        /**
+         * <code>()Object</code> for objects and
+         * <code>(Object[])Object</code> for records
+         */
+        private final MethodHandle constructor;
+        private final Property[] properties;
+        /**
+         * The values of missing record components or
+         * <code>null</code> for other objects
+         */
+        private final Object[] defaults;
+
+        private Plan(final Class<?> type, final MethodHandle constructor, final Property[] properties, final Object[] defaults) {
+            this.type = type;
+            this.constructor = constructor;
+            this.properties = properties;
+            this.defaults = defaults;
+        }
+
+        private Object bind(final SJClass clazz) {
+            try {
+                if (defaults != null) {
+                    final Object[] arguments = new Object[properties.length];
+                    for (int i = 0; i < arguments.length; i++) {
+                        final Object value = properties[i].convert(clazz);
+                        arguments[i] = value == MISSING ? defaults[i] : value;
+                    }
+                    return (Object) constructor.invokeExact(arguments);
+                }
+                final Object object = (Object) constructor.invokeExact();
+                for (final Property property : properties) {
+                    final Object value = property.convert(clazz);
+                    if (value != MISSING) {
+                        property.setter.invokeExact(object, value);
+                    }
+                }
+                return object;
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable t) {
+                throw new IllegalArgumentException("cannot create " + type.getName() + ": " + t, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.*;
+
+/**
+ * The list of children of a {@link SJClass} that
+ * additionally maintains an index of the children by name,
+ * so that {@link SJClass#getChild(String)} doesn't have
+ * to scan the whole list.
+ * <p>The index is only built for lists with more than
+ * {@link #INDEX_THRESHOLD} elements, smaller lists are
+ * scanned. Appending keeps the index up to date, every other
+ * modification drops it and it is rebuilt on the next lookup.
+ * Just like {@link SJClass#getChild(String)}, the index
+ * resolves a name to the first child of that name.
+ * <p>The index is only published once it is complete, so
+ * any number of threads may look up children of a list that
+ * isn't modified concurrently.
+ */
+class SJChildList extends AbstractList<SJClass> implements RandomAccess {
+
+    static final int INDEX_THRESHOLD = 8;
+
+    private final List<SJClass> children;
+    private volatile Map<String, SJClass> index;
+
+    SJChildList() {
+        children = new ArrayList<>();
+    }
+
+    SJChildList(final Collection<? extends SJClass> children) {
+        this.children = new ArrayList<>(children);
+    }
+
+    /**
+     * Returns the first child with the given name.
+     *
+     * @param name the name of the child
+     * @return the first child with the given name or <code>null</code>
+     */
+    SJClass find(final String name) {
+        if (children.size() <= INDEX_THRESHOLD) {
+            for (int i = 0; i < children.size(); i++) {
+                final SJClass child = children.get(i);
+                if (child.getName().equals(name)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        Map<String, SJClass> index = this.index;
+        if (index == null) {
+            index = rebuildIndex();
+        }
+        final SJClass child = index.get(name);
+        if (child != null && !child.getName().equals(name)) {
+            // renamed without notice
+            return rebuildIndex().get(name);
+        }
+        return child;
+    }
+
+    /**
+     * Drops the index, e.g. when a child is renamed.
+     */
+    void invalidateIndex() {
+        index = null;
+    }
+
+    /**
+     * Builds the index and publishes it when it is complete.
+     *
+     * @return the new index
+     */
+    private Map<String, SJClass> rebuildIndex() {
+        final Map<String, SJClass> index = new HashMap<>(children.size() * 2);
+        for (int i = 0; i < children.size(); i++) {
+            final SJClass child = children.get(i);
+            index.putIfAbsent(child.getName(), child);
+        }
+        this.index = index;
+        return index;
+    }
+
+    @Override
+    public SJClass get(final int index) {
+        return children.get(index);
+    }
+
+    @Override
+    public int size() {
+        return children.size();
+    }
+
+    @Override
+    public SJClass set(final int index, final SJClass element) {
+        this.index = null;
+        return children.set(index, element);
+    }
+
+    @Override
+    public void add(final int index, final SJClass element) {
+        final Map<String, SJClass> nameIndex = this.index;
+        if (index == children.size() && nameIndex != null) {
+            nameIndex.putIfAbsent(element.getName(), element);
+        } else {
+            this.index = null;
+        }
+        children.add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public SJClass remove(final int index) {
+        this.index = null;
+        modCount++;
+        return children.remove(index);
+    }
+
+    @Override
+    public boolean addAll(final int index, final Collection<? extends SJClass> c) {
+        this.index = null;
+        modCount++;
+        return children.addAll(index, c);
+    }
+
+    @Override
+    protected void removeRange(final int fromIndex, final int toIndex) {
+        index = null;
+        modCount++;
+        children.subList(fromIndex, toIndex).clear();
+    }
+
+    @Override
+    public void clear() {
+        index = null;
+        modCount++;
+        children.clear();
+    }
+}
@@ -16,11 +16,16 @@
 
 package de.sanj0.sanjo;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
  * A class in a {@link SanjoFile}
  * that holds a map of {@link SJValue values}.
+ * <p>Values are kept in insertion order (the order of the
+ * source for parsed trees) and children in a list, so a tree
+ * is always written in the same order.
  */
 public class SJClass {
 
@@ -28,15 +33,22 @@ public class SJClass {
     public static final String META = "meta";
 
     private String name;
-    private final MetaInf metaInf;
-    private Map<String, SJValue> values = new HashMap<>();
-    private List<SJClass> children = new ArrayList<>();
-    SJClass parentClass = null;
+    private MetaInf metaInf;
+    private Map<String, SJValue> values;
+    private List<SJClass> children;
+    SJClass parentClass;
 
     public SJClass(final String name, final SJClass parentClass, final MetaInf metaInf) {
+        this(name, parentClass, metaInf, new LinkedHashMap<>(), new SJChildList());
+    }
+
+    SJClass(final String name, final SJClass parentClass, final MetaInf metaInf,
+            final Map<String, SJValue> values, final List<SJClass> children) {
         this.name = name;
         this.parentClass = parentClass;
         this.metaInf = metaInf;
+        this.values = values;
+        this.children = children;
     }
 
     public SJClass(final String name, final MetaInf metaInf) {
@@ -48,7 +60,19 @@ public class SJClass {
     }
 
     public String write(final String... startIndention) {
-        return write(metaInf, startIndention);
+        return write(getMetaInf(), startIndention);
+    }
+
+    /**
+     * Writes this class with all of its values
+     * and subclasses directly to the given sink.
+     *
+     * @param out the sink to write to
+     * @throws IOException if something goes wrong writing to the sink
+     * @see SanjoWriter
+     */
+    public void write(final Appendable out) throws IOException {
+        new SanjoWriter(out, getMetaInf()).write(this);
     }
 
     public < T > Optional<T> get(final SJAddress address) {
@@ -56,13 +80,59 @@ public class SJClass {
     }
 
     public Optional<SJClass> getChild(final String name) {
+        return Optional.ofNullable(child(name));
+    }
+
+    /**
+     * Returns the first child with the given name
+     * through the name index of the children list.
+     *
+     * @param name the name of the child
+     * @return the first child with the given name or <code>null</code>
+     */
+    SJClass child(final String name) {
+        if (children instanceof SJChildList) {
+            return ((SJChildList) children).find(name);
+        }
         for (int i = 0; i < children.size(); i++) {
             final SJClass classI = children.get(i);
             if (classI.getName().equals(name)) {
-                return Optional.of(classI);
+                return classI;
             }
         }
-        return Optional.empty();
+        return null;
+    }
+
+    /**
+     * Returns the first child with the given name,
+     * adding a new child if there is none.
+     *
+     * @param name the name of the child
+     * @return the first child with the given name
+     */
+    SJClass childOrCreate(final String name) {
+        SJClass child = child(name);
+        if (child == null) {
+            child = new SJClass(name, this, metaInf);
+            children.add(child);
+        }
+        return child;
+    }
+
+    /**
+     * Returns the value with the given key,
+     * adding an empty value if there is none.
+     *
+     * @param key the key of the value
+     * @return the value with the given key
+     */
+    SJValue valueOrCreate(final String key) {
+        SJValue value = values.get(key);
+        if (value == null) {
+            value = new SJValue(key, "");
+            values.put(key, value);
+        }
+        return value;
     }
 
     public SJValue addValue(final SJValue val) {
@@ -94,23 +164,38 @@ public class SJClass {
 
     public String write(final MetaInf metaInf, final String... startIndention) {
         final StringBuilder builder = new StringBuilder();
-        final int indentionWidth = metaInf.getIndentionWidth();
-        String indention = startIndention.length == 0 ? "" : startIndention[0];
-        if(parentClass != null) {
-            builder.append(indention);
-            builder.append(SanjoParser.CLASS_PREFIX).append(name).append(System.lineSeparator());
-            for (int i = 0; i < indentionWidth; i++) indention += SanjoParser.SPACE;
-        }
-        for (final SJValue value : values.values()) {
-            builder.append(indention);
-            builder.append(value.write(metaInf)).append(System.lineSeparator());
+        try {
+            new SanjoWriter(builder, metaInf).write(this, startIndention.length == 0 ? "" : startIndention[0]);
+        } catch (final IOException e) {
+            // a StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
         }
+        return builder.toString();
+    }
 
-        for (final SJClass child : children) {
-            builder.append(child.write(metaInf, indention));
-        }
+    /**
+     * Returns a deeply immutable copy of this class.
+     * <p>The copy stores its values and children in arrays
+     * and materializes every {@link SanjoParser#setLazy(boolean)
+     * lazily parsed} value. It can be shared between any number
+     * of threads without synchronization, every attempt to modify
+     * it throws an {@link UnsupportedOperationException}.
+     * The copy of a class that isn't a root has no parent class.
+     *
+     * @return a frozen copy of this class or this class if it is frozen
+     */
+    public SJClass freeze() {
+        return new FrozenSJClass(this, null, FrozenSJClass.copy(metaInf));
+    }
 
-        return builder.toString();
+    /**
+     * Returns whether or not this class is an immutable
+     * copy created by {@link #freeze()}.
+     *
+     * @return whether or not this class is frozen
+     */
+    public boolean isFrozen() {
+        return false;
     }
 
     /**
@@ -138,6 +223,9 @@ public class SJClass {
 
     public void setName(final String name) {
         this.name = name;
+        if (parentClass != null && parentClass.children instanceof SJChildList) {
+            ((SJChildList) parentClass.children).invalidateIndex();
+        }
     }
 
     public Map<String, SJValue> getValues() {
@@ -159,4 +247,14 @@ public class SJClass {
     public MetaInf getMetaInf() {
         return metaInf;
     }
+
+    /**
+     * Sets the format this class is {@link #write(String...) written}
+     * in, e.g. the one specified by the meta class of a parsed document.
+     *
+     * @param metaInf the format of this class
+     */
+    public void setMetaInf(final MetaInf metaInf) {
+        this.metaInf = metaInf;
+    }
 }
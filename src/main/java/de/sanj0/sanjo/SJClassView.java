@@ -0,0 +1,243 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+/**
+ * A read-only view of a class in {@link SanjoBinary binary} sanjo data.
+ * <p>Views don't copy anything out of the underlying buffer:
+ * they only store the position of their record, and lookups
+ * compare names directly against the string table of the data.
+ * Larger classes are searched through the sorted indices of the
+ * encoding instead of a scan.
+ * A view of a {@link SanjoBinary#map(java.nio.file.Path) mapped}
+ * file therefore costs no heap besides the view objects themselves,
+ * and several processes that map the same file share its pages.
+ * <p>Views are immutable and can be used from any number of
+ * threads. Unlike {@link SJClass classes} they don't know their
+ * parent class.
+ *
+ * @see SJValueView
+ * @see SJAddress#find(SJClassView)
+ */
+public final class SJClassView {
+
+    private final SanjoBinary.StringTable strings;
+    private final int offset;
+
+    SJClassView(final SanjoBinary.StringTable strings, final int offset) {
+        this.strings = strings;
+        this.offset = offset;
+    }
+
+    public String getName() {
+        return strings.get(nameIndex());
+    }
+
+    /**
+     * Returns the first child with the given name.
+     *
+     * @param name the name of the child
+     * @return the first child with the given name or an empty optional
+     */
+    public Optional<SJClassView> getChild(final String name) {
+        return Optional.ofNullable(child(name.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Returns the value with the given key.
+     *
+     * @param key the key of the value
+     * @return the value with the given key or an empty optional
+     */
+    public Optional<SJValueView> getValue(final String key) {
+        return Optional.ofNullable(value(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    SJClassView child(final byte[] name) {
+        final int nameIndex = strings.indexOf(name);
+        if (nameIndex < 0) {
+            return null;
+        }
+        final ByteBuffer buffer = strings.buffer;
+        final int valueCount = valueCount();
+        final int childCount = childCount();
+        final int children = offset + 12 + 8 * valueCount;
+        if (childCount > SanjoBinary.INDEX_THRESHOLD) {
+            // the first child of the name in the index is also the first in order
+            final int index = children + 4 * childCount
+                    + (valueCount > SanjoBinary.INDEX_THRESHOLD ? 8 * valueCount : 0);
+            int low = 0;
+            int high = childCount;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (buffer.getInt(buffer.getInt(index + 4 * mid)) < nameIndex) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low < childCount) {
+                final int childOffset = buffer.getInt(index + 4 * low);
+                if (buffer.getInt(childOffset) == nameIndex) {
+                    return new SJClassView(strings, childOffset);
+                }
+            }
+            return null;
+        }
+        for (int i = 0; i < childCount; i++) {
+            final int childOffset = buffer.getInt(children + 4 * i);
+            if (buffer.getInt(childOffset) == nameIndex) {
+                return new SJClassView(strings, childOffset);
+            }
+        }
+        return null;
+    }
+
+    SJValueView value(final byte[] key) {
+        final int keyIndex = strings.indexOf(key);
+        if (keyIndex < 0) {
+            return null;
+        }
+        final ByteBuffer buffer = strings.buffer;
+        final int valueCount = valueCount();
+        if (valueCount > SanjoBinary.INDEX_THRESHOLD) {
+            final int index = offset + 12 + 8 * valueCount + 4 * childCount();
+            int low = 0;
+            int high = valueCount - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int midKey = buffer.getInt(index + 8 * mid);
+                if (midKey < keyIndex) {
+                    low = mid + 1;
+                } else if (midKey > keyIndex) {
+                    high = mid - 1;
+                } else {
+                    return new SJValueView(strings, keyIndex, buffer.getInt(index + 8 * mid + 4));
+                }
+            }
+            return null;
+        }
+        for (int i = 0; i < valueCount; i++) {
+            final int position = offset + 12 + 8 * i;
+            if (buffer.getInt(position) == keyIndex) {
+                return new SJValueView(strings, keyIndex, buffer.getInt(position + 4));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the children of this class as a
+     * read-only list that creates views on access.
+     *
+     * @return the children of this class
+     */
+    public List<SJClassView> getChildren() {
+        return new Children();
+    }
+
+    /**
+     * Returns the values of this class in their original
+     * order as a read-only list that creates views on access.
+     *
+     * @return the values of this class
+     */
+    public List<SJValueView> getValues() {
+        return new Values();
+    }
+
+    private int nameIndex() {
+        return strings.buffer.getInt(offset);
+    }
+
+    private int valueCount() {
+        return strings.buffer.getInt(offset + 4);
+    }
+
+    private int childCount() {
+        return strings.buffer.getInt(offset + 8);
+    }
+
+    private int childrenPosition() {
+        return offset + 12 + 8 * valueCount();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SJClassView)) {
+            return false;
+        }
+        final SJClassView that = (SJClassView) o;
+        return strings == that.strings && offset == that.offset;
+    }
+
+    @Override
+    public int hashCode() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        return SanjoParser.CLASS_PREFIX + getName();
+    }
+
+    private final class Children extends AbstractList<SJClassView> implements RandomAccess {
+        private final int position = childrenPosition();
+        private final int size = childCount();
+
+        @Override
+        public SJClassView get(final int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return new SJClassView(strings, strings.buffer.getInt(position + 4 * index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private final class Values extends AbstractList<SJValueView> implements RandomAccess {
+        private final int size = valueCount();
+
+        @Override
+        public SJValueView get(final int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            final int position = offset + 12 + 8 * index;
+            return new SJValueView(strings, strings.buffer.getInt(position), strings.buffer.getInt(position + 4));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
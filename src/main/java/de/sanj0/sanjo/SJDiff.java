@@ -0,0 +1,193 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.*;
+
+/**
+ * The structural difference between two trees of
+ * {@link SJClass classes} and {@link SJValue values}.
+ * <p>Children are matched by name and, among children of
+ * the same name, by their order. A class that only exists in
+ * one of the trees is reported as a single change without its
+ * contents, values are compared by their String or list.
+ *
+ * @see #compare(SJClass, SJClass)
+ * @see SanjoIncrementalParser
+ */
+public final class SJDiff {
+
+    private final List<Change> changes;
+
+    SJDiff(final List<Change> changes) {
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Compares the given trees, which are usually
+     * two versions of the same document.
+     *
+     * @param before the old version of the tree
+     * @param after the new version of the tree
+     * @return the difference between the trees
+     */
+    public static SJDiff compare(final SJClass before, final SJClass after) {
+        final List<Change> changes = new ArrayList<>();
+        compareClasses("", before, after, changes);
+        return new SJDiff(changes);
+    }
+
+    static void compareClasses(final String address, final SJClass before, final SJClass after,
+                               final List<Change> changes) {
+        compareValues(address, before.getValues(), after.getValues(), changes);
+        compareChildren(address, before.getChildren(), after.getChildren(), changes);
+    }
+
+    static void compareValues(final String address, final Map<String, SJValue> before,
+                              final Map<String, SJValue> after, final List<Change> changes) {
+        for (final SJValue value : before.values()) {
+            final SJValue afterValue = after.get(value.getKey());
+            final String valueAddress = address + SanjoParser.KEY_PREFIX + value.getKey();
+            if (afterValue == null) {
+                changes.add(new Change(Kind.REMOVED, SJAddress.Target.VALUE, valueAddress, value, null));
+            } else if (!value.getValue().equals(afterValue.getValue())) {
+                changes.add(new Change(Kind.CHANGED, SJAddress.Target.VALUE, valueAddress, value, afterValue));
+            }
+        }
+        for (final SJValue value : after.values()) {
+            if (!before.containsKey(value.getKey())) {
+                changes.add(new Change(Kind.ADDED, SJAddress.Target.VALUE,
+                        address + SanjoParser.KEY_PREFIX + value.getKey(), null, value));
+            }
+        }
+    }
+
+    static void compareChildren(final String address, final List<SJClass> before, final List<SJClass> after,
+                                final List<Change> changes) {
+        // the unmatched children of the new version by name, in order
+        final Map<String, Deque<SJClass>> unmatched = new LinkedHashMap<>();
+        for (final SJClass child : after) {
+            unmatched.computeIfAbsent(child.getName(), name -> new ArrayDeque<>()).add(child);
+        }
+        final Set<SJClass> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final SJClass child : before) {
+            final String childAddress = address + SanjoParser.CLASS_PREFIX + child.getName();
+            final Deque<SJClass> candidates = unmatched.get(child.getName());
+            if (candidates == null || candidates.isEmpty()) {
+                changes.add(new Change(Kind.REMOVED, SJAddress.Target.CLASS, childAddress, child, null));
+            } else {
+                final SJClass afterChild = candidates.poll();
+                matched.add(afterChild);
+                compareClasses(childAddress, child, afterChild, changes);
+            }
+        }
+        for (final SJClass child : after) {
+            if (!matched.contains(child)) {
+                changes.add(new Change(Kind.ADDED, SJAddress.Target.CLASS,
+                        address + SanjoParser.CLASS_PREFIX + child.getName(), null, child));
+            }
+        }
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Change change : changes) {
+            builder.append(change).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+    public enum Kind {
+        ADDED,
+        REMOVED,
+        CHANGED
+    }
+
+    /**
+     * A single added, removed or changed value or class.
+     */
+    public static final class Change {
+        private final Kind kind;
+        private final SJAddress.Target target;
+        private final String address;
+        private final Object before;
+        private final Object after;
+
+        Change(final Kind kind, final SJAddress.Target target, final String address,
+               final Object before, final Object after) {
+            this.kind = kind;
+            this.target = target;
+            this.address = address;
+            this.before = before;
+            this.after = after;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public SJAddress.Target getTarget() {
+            return target;
+        }
+
+        /**
+         * Returns the address of the changed value or class.
+         * Of several classes with the same name, the address
+         * only resolves to the first one.
+         *
+         * @return the address of the changed value or class
+         */
+        public SJAddress getAddress() {
+            return new SJAddress(address);
+        }
+
+        /**
+         * Returns the {@link SJValue} or {@link SJClass} in
+         * the old version of the tree.
+         *
+         * @return the old value or class or <code>null</code> if it was added
+         */
+        public Object getBefore() {
+            return before;
+        }
+
+        /**
+         * Returns the {@link SJValue} or {@link SJClass} in
+         * the new version of the tree.
+         *
+         * @return the new value or class or <code>null</code> if it was removed
+         */
+        public Object getAfter() {
+            return after;
+        }
+
+        @Override
+        public String toString() {
+            final char sign = kind == Kind.ADDED ? '+' : kind == Kind.REMOVED ? '-' : '~';
+            return sign + " " + address;
+        }
+    }
+}
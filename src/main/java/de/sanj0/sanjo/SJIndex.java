@@ -0,0 +1,282 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.*;
+
+/**
+ * A reverse index from keys, and optionally key-value pairs,
+ * to the {@link SJClass classes} that define them.
+ * <p>Looking up every class with a given key through the index
+ * costs time proportional to the number of matches instead of a
+ * walk over the whole tree. An index is either filled while a
+ * document is parsed (see {@link SanjoParser#setIndex(SJIndex)}) or
+ * {@link #build(SJClass, boolean) built} for an existing tree.
+ * <p>The index is a snapshot: classes and values that are added
+ * to or removed from the tree afterwards aren't reflected by it.
+ * An index that is no longer modified can be read by any number of
+ * threads, indexes of {@link SJClass#freeze() frozen} trees are built
+ * from the frozen tree.
+ */
+public class SJIndex {
+
+    private final boolean indexValues;
+    /**
+     * The classes of every key, a single {@link SJClass} or a list
+     * of several, as most values of a document are unique
+     */
+    private final Map<String, Object> classesByKey = new HashMap<>();
+    private final Map<String, Map<String, Object>> classesByValue = new HashMap<>();
+    private SJClass root;
+
+    /**
+     * @param indexValues whether or not single values should be
+     *                    indexed by their key and value as well,
+     *                    which creates a String for every value
+     *                    of a {@link SanjoParser#setLazy(boolean)
+     *                    lazily} parsed document
+     */
+    public SJIndex(final boolean indexValues) {
+        this.indexValues = indexValues;
+    }
+
+    public SJIndex() {
+        this(false);
+    }
+
+    /**
+     * Builds an index of all values in the given tree.
+     *
+     * @param root the class to index the values and subclasses of
+     * @param indexValues whether or not single values should be
+     *                    indexed by their key and value as well
+     * @return an index of the given tree
+     */
+    public static SJIndex build(final SJClass root, final boolean indexValues) {
+        final SJIndex index = new SJIndex(indexValues);
+        index.root = root;
+        final Deque<SJClass> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final SJClass clazz = stack.pop();
+            for (final SJValue value : clazz.getValues().values()) {
+                index.add(clazz, value.getKey(), index.indexValues ? scalar(value) : null, null);
+            }
+            final List<SJClass> children = clazz.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        return index;
+    }
+
+    public static SJIndex build(final SJClass root) {
+        return build(root, false);
+    }
+
+    /**
+     * Adds a value of the given class to this index.
+     *
+     * @param owner the class of the value
+     * @param key the key of the value
+     * @param value the chars of a single value or <code>null</code> for a list
+     * @param previous the value with the same key that the
+     *                 value replaces or <code>null</code>
+     */
+    void add(final SJClass owner, final String key, final CharSequence value, final SJValue previous) {
+        if (previous == null) {
+            add(classesByKey, key, owner);
+        }
+        if (!indexValues) {
+            return;
+        }
+        Map<String, Object> byValue = classesByValue.get(key);
+        if (byValue == null) {
+            byValue = new HashMap<>();
+            classesByValue.put(key, byValue);
+        }
+        if (previous != null) {
+            remove(byValue, scalar(previous), owner);
+        }
+        if (value != null) {
+            add(byValue, value.toString(), owner);
+        }
+    }
+
+    private static void add(final Map<String, Object> map, final String key, final SJClass owner) {
+        final Object classes = map.putIfAbsent(key, owner);
+        if (classes instanceof SJClass) {
+            final ClassList list = new ClassList();
+            list.add((SJClass) classes);
+            list.add(owner);
+            map.put(key, list);
+        } else if (classes != null) {
+            ((ClassList) classes).add(owner);
+        }
+    }
+
+    private static void remove(final Map<String, Object> map, final String key, final SJClass owner) {
+        final Object classes = map.get(key);
+        if (classes == owner) {
+            map.remove(key);
+        } else if (classes instanceof ClassList) {
+            ((ClassList) classes).remove(owner);
+        }
+    }
+
+    private static List<SJClass> classes(final Object classes) {
+        if (classes instanceof SJClass) {
+            return Collections.singletonList((SJClass) classes);
+        }
+        return classes == null ? Collections.emptyList() : Collections.unmodifiableList((ClassList) classes);
+    }
+
+    /**
+     * The classes of a key or value that is shared by more than one
+     * class; a single class is stored without a list.
+     */
+    private static final class ClassList extends ArrayList<SJClass> {
+        private static final long serialVersionUID = 1L;
+
+        ClassList() {
+            super(4);
+        }
+    }
+
+    /**
+     * Sets the class that {@link #addresses(String) addresses}
+     * are relative to, if no class has been set yet.
+     */
+    void setRoot(final SJClass root) {
+        if (this.root == null) {
+            this.root = root;
+        }
+    }
+
+    /**
+     * Returns every class that has a value with
+     * the given key, in the order they were indexed:
+     * the order of the source for indexes filled while
+     * parsing and depth-first order for built indexes.
+     *
+     * @param key the key of the value
+     * @return every class with a value with the given key
+     */
+    public List<SJClass> classesWithKey(final String key) {
+        return classes(classesByKey.get(key));
+    }
+
+    /**
+     * Returns every class that has a single value
+     * with the given key that equals the given value.
+     *
+     * @param key the key of the value
+     * @param value the value
+     * @return every class with the given key-value pair
+     * @throws IllegalStateException if this index doesn't index values
+     */
+    public List<SJClass> classesWithValue(final String key, final String value) {
+        if (!indexValues) {
+            throw new IllegalStateException("values are not indexed");
+        }
+        final Map<String, Object> byValue = classesByValue.get(key);
+        return classes(byValue == null ? null : byValue.get(value));
+    }
+
+    /**
+     * Returns every value with the given key.
+     *
+     * @param key the key of the values
+     * @return every value with the given key
+     * @see #classesWithKey(String)
+     */
+    public List<SJValue> values(final String key) {
+        final List<SJClass> classes = classesWithKey(key);
+        final List<SJValue> values = new ArrayList<>(classes.size());
+        for (final SJClass clazz : classes) {
+            final SJValue value = clazz.getValues().get(key);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the addresses of every value with the given key.
+     * <p>Addresses are computed from the parents of the classes,
+     * so the address of a class that has a sibling with the same
+     * name before it resolves to that sibling.
+     *
+     * @param key the key of the values
+     * @return the addresses of every value with the given key
+     */
+    public List<SJAddress> addresses(final String key) {
+        return addresses(classesWithKey(key), key);
+    }
+
+    /**
+     * Returns the addresses of every single value
+     * with the given key that equals the given value.
+     *
+     * @param key the key of the values
+     * @param value the value
+     * @return the addresses of every value with the given key-value pair
+     * @throws IllegalStateException if this index doesn't index values
+     * @see #addresses(String)
+     */
+    public List<SJAddress> addresses(final String key, final String value) {
+        return addresses(classesWithValue(key, value), key);
+    }
+
+    private List<SJAddress> addresses(final List<SJClass> classes, final String key) {
+        final List<SJAddress> addresses = new ArrayList<>(classes.size());
+        final StringBuilder builder = new StringBuilder();
+        for (final SJClass clazz : classes) {
+            builder.setLength(0);
+            appendAddress(builder, clazz);
+            builder.append(SanjoParser.KEY_PREFIX).append(key);
+            addresses.add(new SJAddress(builder.toString()));
+        }
+        return addresses;
+    }
+
+    private void appendAddress(final StringBuilder builder, final SJClass clazz) {
+        if (clazz == root || clazz.getParentClass() == null) {
+            return;
+        }
+        appendAddress(builder, clazz.getParentClass());
+        builder.append(SanjoParser.CLASS_PREFIX).append(clazz.getName());
+    }
+
+    /**
+     * Returns every indexed key.
+     *
+     * @return an unmodifiable view of the indexed keys
+     */
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(classesByKey.keySet());
+    }
+
+    public boolean isIndexValues() {
+        return indexValues;
+    }
+
+    private static String scalar(final SJValue value) {
+        return value.getValue() instanceof List ? null : value.string();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.lang.annotation.*;
+
+/**
+ * Sets the key or class name that a field (or record component)
+ * is {@link SJBinder bound} to, which is the name of the field by
+ * default.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface SJKey {
+
+    /**
+     * Returns the key of the value or the
+     * name of the class the field is bound to.
+     *
+     * @return the key or class name of the field
+     */
+    String value();
+}
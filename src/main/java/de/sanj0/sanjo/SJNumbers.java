@@ -0,0 +1,222 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+/**
+ * Parses numbers and booleans directly from ranges
+ * of {@link CharSequence CharSequences}, with the same
+ * results as {@link Integer#parseInt(String)},
+ * {@link Long#parseLong(String)}, {@link Double#parseDouble(String)}
+ * and {@link Boolean#parseBoolean(String)}, but without
+ * creating a String first.
+ */
+final class SJNumbers {
+
+    /**
+     * All powers of ten that are exactly representable as a double
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /**
+     * The largest integer up to which all
+     * integers are exactly representable as a double
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private SJNumbers() {
+    }
+
+    static int parseInt(final CharSequence s, final int start, final int end) {
+        final long l = parseLong(s, start, end);
+        if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
+            throw numberFormatException(s, start, end);
+        }
+        return (int) l;
+    }
+
+    static long parseLong(final CharSequence s, final int start, final int end) {
+        if (start >= end) {
+            throw numberFormatException(s, start, end);
+        }
+        int i = start;
+        boolean negative = false;
+        long limit = -Long.MAX_VALUE;
+        final char first = s.charAt(i);
+        if (first == '-' || first == '+') {
+            if (end - start == 1) {
+                throw numberFormatException(s, start, end);
+            }
+            if (first == '-') {
+                negative = true;
+                limit = Long.MIN_VALUE;
+            }
+            i++;
+        }
+
+        // accumulate negatively to be
+        // able to represent Long.MIN_VALUE
+        final long multiplicationLimit = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            final int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplicationLimit) {
+                throw numberFormatException(s, start, end);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormatException(s, start, end);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a double. Plain decimal numbers with a mantissa
+     * of at most 2^53 and a decimal exponent of at most 22 are
+     * computed with a single exact multiplication or division,
+     * which is correctly rounded; everything else is passed on to
+     * {@link Double#parseDouble(String)}.
+     */
+    static double parseDouble(final CharSequence s, final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        boolean exact = true;
+        for (; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa > (MAX_EXACT_MANTISSA - 9) / 10) {
+                    exact = false;
+                    break;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (point) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+
+        int exponent = 0;
+        if (exact && digits != 0 && i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                negativeExponent = s.charAt(i) == '-';
+                i++;
+            }
+            final int exponentStart = i;
+            for (; i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9' && exponent < 1000; i++) {
+                exponent = exponent * 10 + (s.charAt(i) - '0');
+            }
+            if (i == exponentStart) {
+                exact = false;
+            }
+            exponent = negativeExponent ? -exponent : exponent;
+        }
+
+        exponent -= fractionDigits;
+        if (!exact || digits == 0 || i != end || exponent < -22 || exponent > 22) {
+            return Double.parseDouble(s.subSequence(start, end).toString());
+        }
+        final double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Counts the elements of the given list value with the
+     * same rules as {@link CharSlice#split(CharSequence, String)}:
+     * a value without separator is a single element, trailing
+     * empty elements are not counted otherwise.
+     *
+     * @param s the list value
+     * @param separator the list separator or <code>null</code> for a single value
+     * @return the number of elements
+     */
+    static int elementCount(final CharSequence s, final String separator) {
+        if (separator == null || separator.isEmpty()) {
+            return 1;
+        }
+        int elements = 0;
+        int nonEmptyElements = 0;
+        int start = 0;
+        int end;
+        while ((end = elementEnd(s, start, separator)) != s.length()) {
+            elements++;
+            if (end != start) {
+                nonEmptyElements = elements;
+            }
+            start = end + separator.length();
+        }
+        if (elements == 0) {
+            return 1;
+        }
+        return start != s.length() ? elements + 1 : nonEmptyElements;
+    }
+
+    /**
+     * Returns the end of the list element starting at the given
+     * index, i.e. the index of the next separator or the end of
+     * the value.
+     *
+     * @param s the list value
+     * @param start the start of the element
+     * @param separator the list separator or <code>null</code> for a single value
+     * @return the end of the element
+     */
+    static int elementEnd(final CharSequence s, final int start, final String separator) {
+        final int length = s.length();
+        if (separator == null || separator.isEmpty()) {
+            return length;
+        }
+        final char first = separator.charAt(0);
+        final int last = length - separator.length();
+        for (int i = start; i <= last; i++) {
+            if (s.charAt(i) == first && CharSlice.regionMatches(s, i, separator)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static boolean parseBoolean(final CharSequence s, final int start, final int end) {
+        if (end - start != 4) {
+            return false;
+        }
+        return Character.toLowerCase(s.charAt(start)) == 't' && Character.toLowerCase(s.charAt(start + 1)) == 'r'
+                && Character.toLowerCase(s.charAt(start + 2)) == 'u' && Character.toLowerCase(s.charAt(start + 3)) == 'e';
+    }
+
+    private static NumberFormatException numberFormatException(final CharSequence s, final int start, final int end) {
+        return new NumberFormatException("For input string: \"" + s.subSequence(start, end) + "\"");
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An {@link SJAddress address} with wildcards that matches
+ * any number of classes or values in a tree.
+ * <p>A class or key named <code>*</code> matches any single class
+ * or value, a class named <code>**</code> matches any number of
+ * nested classes, including none. For example
+ * <pre>
+ * :service:*.port    the port of every child of :service
+ * :**.id             every value named id anywhere in the tree
+ * :**:entry:*        every child of any class named entry
+ * </pre>
+ * <p>A query is evaluated in a single depth-first traversal: every
+ * class carries the set of query positions that can still match it
+ * (as a bit set, which limits queries to 63 components), so the tree
+ * is walked once no matter how many <code>**</code> the query has,
+ * and subtrees that can't match are skipped. Matches are returned in
+ * document order. {@link #parallelStream(SJClass) Parallel} streams
+ * split large lists of children between threads.
+ * <p>Queries are immutable and can be used by several threads.
+ */
+public class SJQuery {
+
+    public static final String WILDCARD = "*";
+    public static final String RECURSIVE_WILDCARD = "**";
+    private static final int MAX_COMPONENTS = 63;
+
+    private final SJAddress address;
+    private final String[] targets;
+    /**
+     * Whether or not a component matches a value
+     */
+    private final boolean[] values;
+    private final int length;
+
+    public SJQuery(final String query) {
+        this(SJAddress.forString(query));
+    }
+
+    SJQuery(final SJAddress address) {
+        this.address = address;
+        length = address.componentCount();
+        if (length > MAX_COMPONENTS) {
+            throw new IllegalArgumentException("query with more than " + MAX_COMPONENTS + " components: " + address);
+        }
+        targets = new String[length];
+        values = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            targets[i] = address.componentTarget(i);
+            values[i] = address.componentTargetType(i) == SJAddress.Target.VALUE;
+            if (values[i] && i != length - 1) {
+                throw new IllegalArgumentException("value before the end of query " + address);
+            }
+            if (values[i] && RECURSIVE_WILDCARD.equals(targets[i])) {
+                throw new IllegalArgumentException("recursive wildcard for a value in query " + address);
+            }
+        }
+    }
+
+    public static SJQuery forString(final String query) {
+        return new SJQuery(query);
+    }
+
+    /**
+     * Returns a sequential stream of all classes or values
+     * that match this query, in document order.
+     *
+     * @param root the class to evaluate this query from
+     * @return the matching {@link SJClass classes} or {@link SJValue values}
+     */
+    public Stream<Object> stream(final SJClass root) {
+        return StreamSupport.stream(new MatchSpliterator(root), false);
+    }
+
+    /**
+     * Returns a parallel stream of all classes or
+     * values that match this query.
+     *
+     * @param root the class to evaluate this query from
+     * @return the matching {@link SJClass classes} or {@link SJValue values}
+     */
+    public Stream<Object> parallelStream(final SJClass root) {
+        return StreamSupport.stream(new MatchSpliterator(root), true);
+    }
+
+    /**
+     * Returns all classes or values that
+     * match this query, in document order.
+     *
+     * @param root the class to evaluate this query from
+     * @return the matching {@link SJClass classes} or {@link SJValue values}
+     */
+    public List<Object> findAll(final SJClass root) {
+        return stream(root).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns whether this query matches classes or values.
+     *
+     * @return the type of the matches of this query
+     */
+    public SJAddress.Target getTargetType() {
+        return length != 0 && values[length - 1] ? SJAddress.Target.VALUE : SJAddress.Target.CLASS;
+    }
+
+    public SJAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public String toString() {
+        return address.toString();
+    }
+
+    /**
+     * Adds the positions after every recursive wildcard in the
+     * given set, as the wildcard may match no class at all.
+     */
+    private long closure(long states) {
+        for (int i = 0; i < length; i++) {
+            if ((states & 1L << i) != 0 && !values[i] && RECURSIVE_WILDCARD.equals(targets[i])) {
+                states |= 1L << i + 1;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Returns the positions that match the contents of
+     * a child with the given name of a class that is matched
+     * by the given positions.
+     */
+    private long step(final long states, final String name) {
+        long next = 0;
+        for (int i = 0; i < length; i++) {
+            if ((states & 1L << i) == 0 || values[i]) {
+                continue;
+            }
+            final String target = targets[i];
+            if (RECURSIVE_WILDCARD.equals(target)) {
+                next |= 1L << i;
+            } else if (WILDCARD.equals(target) || target.equals(name)) {
+                next |= 1L << i + 1;
+            }
+        }
+        return next == 0 ? 0 : closure(next);
+    }
+
+    /**
+     * Returns whether or not the given positions
+     * can match any child of a class.
+     */
+    private boolean descends(final long states) {
+        for (int i = 0; i < length; i++) {
+            if ((states & 1L << i) != 0 && !values[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the class matched by the given positions and
+     * its values that match them to the given queue.
+     */
+    private void collect(final SJClass clazz, final long states, final Deque<Object> matches) {
+        if ((states & 1L << length) != 0 && getTargetType() == SJAddress.Target.CLASS) {
+            matches.add(clazz);
+        }
+        final int last = length - 1;
+        if (last >= 0 && values[last] && (states & 1L << last) != 0) {
+            if (WILDCARD.equals(targets[last])) {
+                matches.addAll(clazz.getValues().values());
+            } else {
+                final SJValue value = clazz.getValues().get(targets[last]);
+                if (value != null) {
+                    matches.add(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * A range of the children of a class that is still to be
+     * visited, along with the query positions of the class.
+     */
+    private static final class Frame {
+        private final SJClass parent;
+        private final long states;
+        private int from;
+        private final int to;
+
+        private Frame(final SJClass parent, final long states, final int from, final int to) {
+            this.parent = parent;
+            this.states = states;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Traverses the tree depth-first with an explicit stack of
+     * child ranges. Splitting hands the first half of the outermost
+     * range that has at least two children left, together with
+     * everything that comes before it, to the new spliterator.
+     */
+    private final class MatchSpliterator implements Spliterator<Object> {
+        private Deque<Frame> stack = new ArrayDeque<>();
+        private Deque<Object> matches = new ArrayDeque<>();
+
+        private MatchSpliterator(final SJClass root) {
+            final long states = closure(1L);
+            collect(root, states, matches);
+            if (descends(states) && !root.getChildren().isEmpty()) {
+                stack.add(new Frame(root, states, 0, root.getChildren().size()));
+            }
+        }
+
+        private MatchSpliterator(final Deque<Frame> stack, final Deque<Object> matches) {
+            this.stack = stack;
+            this.matches = matches;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super Object> action) {
+            while (matches.isEmpty()) {
+                final Frame frame = stack.peekLast();
+                if (frame == null) {
+                    return false;
+                }
+                final SJClass child = frame.parent.getChildren().get(frame.from++);
+                if (frame.from == frame.to) {
+                    stack.removeLast();
+                }
+                final long states = step(frame.states, child.getName());
+                if (states != 0) {
+                    collect(child, states, matches);
+                    if (descends(states) && !child.getChildren().isEmpty()) {
+                        stack.addLast(new Frame(child, states, 0, child.getChildren().size()));
+                    }
+                }
+            }
+            action.accept(matches.poll());
+            return true;
+        }
+
+        @Override
+        public Spliterator<Object> trySplit() {
+            final Deque<Frame> prefix = new ArrayDeque<>();
+            final Deque<Frame> suffix = new ArrayDeque<>();
+            boolean split = false;
+            for (final Frame frame : stack) {
+                if (split) {
+                    prefix.addLast(frame);
+                } else if (frame.to - frame.from >= 2) {
+                    final int mid = (frame.from + frame.to) >>> 1;
+                    prefix.addLast(new Frame(frame.parent, frame.states, frame.from, mid));
+                    suffix.addLast(new Frame(frame.parent, frame.states, mid, frame.to));
+                    split = true;
+                } else {
+                    suffix.addLast(frame);
+                }
+            }
+            if (!split) {
+                return null;
+            }
+            final MatchSpliterator first = new MatchSpliterator(prefix, matches);
+            stack = suffix;
+            matches = new ArrayDeque<>();
+            return first;
+        }
+
+        /**
+         * Estimates the size by the number of children left
+         * to visit, which bounds how finely a stream splits.
+         */
+        @Override
+        public long estimateSize() {
+            long size = matches.size();
+            for (final Frame frame : stack) {
+                size += frame.to - frame.from;
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
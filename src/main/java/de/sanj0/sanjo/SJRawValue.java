@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+/**
+ * The unparsed value of a lazily parsed {@link SJValue}:
+ * a range of the source text of the document.
+ * <p>The value is materialized into a String or a list
+ * the first time it is accessed as such, numbers are parsed
+ * directly from the source text.
+ *
+ * @see SanjoParser#setLazy(boolean)
+ */
+final class SJRawValue implements CharSequence {
+
+    private final char[] chars;
+    private final int offset;
+    private final int length;
+    private final boolean list;
+    private final String listSeparator;
+
+    SJRawValue(final char[] chars, final int offset, final int length, final boolean list, final String listSeparator) {
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+        this.list = list;
+        this.listSeparator = listSeparator;
+    }
+
+    /**
+     * Parses this value into the String or the list
+     * of Strings that an eager parse would have produced.
+     *
+     * @return the parsed value
+     */
+    Object materialize() {
+        return list ? CharSlice.split(this, listSeparator) : toString();
+    }
+
+    boolean isList() {
+        return list;
+    }
+
+    String getListSeparator() {
+        return listSeparator;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return chars[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return new CharSlice(chars, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, offset, length);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the tree of {@link SJClass classes} and
+ * {@link SJValue values} from the events of a
+ * {@link SanjoEventReader}.
+ */
+class SJTreeBuilder implements SanjoHandler {
+
+    private MetaInf metaInf;
+    private final SJClass root;
+    private final List<SJClass> openClasses = new ArrayList<>();
+    private final boolean lazy;
+    private final SanjoInternPool internPool;
+    private final boolean internValues;
+    private final SJIndex index;
+    private int classCount;
+    private int valueCount;
+    private int maxDepth;
+
+    /**
+     * @param root the class to add the top-level values and classes to
+     * @param metaInf the meta information of the document
+     * @param lazy whether or not the values should reference the
+     *             source text instead of being parsed right away,
+     *             requires the slices passed to {@link #value(CharSequence,
+     *             CharSequence, boolean, int, int) value} to be ranges of the whole,
+     *             unmodified document
+     * @param internPool the pool to intern keys and class names with
+     *                   or <code>null</code> to not intern them
+     * @param internValues whether or not short single values
+     *                     should be interned as well
+     * @param index the index to add the values to or <code>null</code>
+     */
+    SJTreeBuilder(final SJClass root, final MetaInf metaInf, final boolean lazy,
+                  final SanjoInternPool internPool, final boolean internValues, final SJIndex index) {
+        this.root = root;
+        this.metaInf = metaInf;
+        this.lazy = lazy;
+        this.internPool = internPool;
+        this.internValues = internValues && internPool != null;
+        this.index = index;
+        if (index != null) {
+            index.setRoot(root);
+        }
+    }
+
+    SJTreeBuilder(final SJClass root, final MetaInf metaInf) {
+        this(root, metaInf, false, null, false, null);
+    }
+
+    @Override
+    public void startDocument() {
+        openClasses.clear();
+        openClasses.add(root);
+    }
+
+    @Override
+    public void startClass(final CharSequence name, final int depth, final int lineNumber) {
+        final SJClass parent = openClasses.get(openClasses.size() - 1);
+        final SJClass newClass = new SJClass(internPool == null ? name.toString() : internPool.intern(name));
+        newClass.parentClass = parent;
+        parent.getChildren().add(newClass);
+        openClasses.add(newClass);
+        classCount++;
+        if (depth >= maxDepth) {
+            maxDepth = depth + 1;
+        }
+    }
+
+    @Override
+    public void value(final CharSequence key, final CharSequence value, final boolean list, final int depth, final int lineNumber) {
+        final String keyString = internPool == null ? key.toString() : internPool.intern(key);
+        final Object valueObject;
+        if (lazy && value instanceof CharSlice) {
+            final CharSlice slice = (CharSlice) value;
+            valueObject = new SJRawValue(slice.array(), slice.offset(), slice.length(), list, metaInf.listSeparator);
+        } else if (list) {
+            valueObject = CharSlice.split(value, metaInf.listSeparator);
+        } else if (internValues && value.length() <= SanjoInternPool.MAX_VALUE_LENGTH) {
+            valueObject = internPool.intern(value);
+        } else {
+            valueObject = value.toString();
+        }
+        valueCount++;
+        final SJClass owner = openClasses.get(openClasses.size() - 1);
+        final SJValue previous = owner.getValues().put(keyString, new SJValue(keyString, valueObject));
+        if (index != null) {
+            index.add(owner, keyString, list ? null : valueObject instanceof String ? (String) valueObject : value, previous);
+        }
+    }
+
+    @Override
+    public void meta(final MetaInf metaInf, final int lineNumber) {
+        this.metaInf = metaInf;
+        root.setMetaInf(metaInf);
+    }
+
+    @Override
+    public void endClass(final int depth, final int lineNumber) {
+        openClasses.remove(openClasses.size() - 1);
+    }
+
+    SJClass getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the number of classes built, not counting the root
+     */
+    int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * @return the number of values read, including ones that
+     * replaced a value with the same key
+     */
+    int getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * @return the number of levels of classes below the root
+     */
+    int getMaxDepth() {
+        return maxDepth;
+    }
+}
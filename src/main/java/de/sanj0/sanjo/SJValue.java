@@ -16,13 +16,36 @@
 
 package de.sanj0.sanjo;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+/**
+ * A key-value pair of a {@link SJClass}.
+ * <p>The value is either a String or a list of Strings.
+ * Values of {@link SanjoParser#setLazy(boolean) lazily} parsed
+ * documents are kept as references into the source text until
+ * they are first accessed.
+ */
 public class SJValue extends Number {
 
+    private static final AtomicReferenceFieldUpdater<SJValue, Object> VALUE =
+            AtomicReferenceFieldUpdater.newUpdater(SJValue.class, Object.class, "value");
+
     private String key;
-    private transient Object value;
+    private transient volatile Object value;
+    /**
+     * The decoded form of the last call to {@link #intArray()},
+     * {@link #longArray()} or {@link #doubleArray()}
+     */
+    private transient volatile DecodedArray decodedArray;
+    /**
+     * The last decoded primitive, so that repeated
+     * reads of the same type don't parse the value again
+     */
+    private transient volatile Decoded decoded;
 
     public SJValue(final String key, final Object value) {
         this.key = key;
@@ -35,30 +58,63 @@ public class SJValue extends Number {
 
     public String write(final MetaInf metaInf) {
         final StringBuilder builder = new StringBuilder();
-        builder.append(SanjoParser.KEY_PREFIX).append(getKey());
+        try {
+            write(builder, metaInf);
+        } catch (final IOException e) {
+            // a StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
 
+    /**
+     * Writes this value as a single line
+     * (without line separator) to the given sink.
+     *
+     * @param out the sink to write to
+     * @param metaInf the meta information to format the value with
+     * @throws IOException if something goes wrong writing to the sink
+     */
+    public void write(final Appendable out, final MetaInf metaInf) throws IOException {
+        out.append(SanjoParser.KEY_PREFIX).append(getKey());
+
+        // unparsed single values are written straight
+        // from the source text without materializing them
+        Object value = this.value;
+        if (!(value instanceof SJRawValue) || ((SJRawValue) value).isList()) {
+            value = value();
+        }
         if (value instanceof List) {
             final String separator = metaInf.getListSeparator();
-            builder.append(metaInf.getListSuffix());
-            builder.append(SanjoParser.ASSIGNMENT_OPERATOR);
+            out.append(metaInf.getListSuffix());
+            out.append(SanjoParser.ASSIGNMENT_OPERATOR);
             final List<?> list = (List<?>) value;
-            for (final Object o : list) {
-                builder.append(o.toString()).append(separator);
+            for (int i = 0; i < list.size(); i++) {
+                if (i != 0) {
+                    out.append(separator);
+                }
+                out.append(list.get(i).toString());
             }
-            builder.delete(builder.length() - separator.length(), builder.length());
         } else {
-            builder.append(SanjoParser.ASSIGNMENT_OPERATOR);
-            builder.append(value.toString());
+            out.append(SanjoParser.ASSIGNMENT_OPERATOR);
+            out.append(value instanceof CharSequence ? (CharSequence) value : value.toString());
         }
-        return builder.toString();
     }
 
     public boolean booleanValue() {
-        return Boolean.parseBoolean(string());
+        final Object value = this.value;
+        final Decoded decoded = this.decoded;
+        if (decoded != null && decoded.type == Decoded.BOOLEAN && decoded.source == value) {
+            return decoded.bits != 0;
+        }
+        final CharSequence scalar = chars(value);
+        final boolean result = SJNumbers.parseBoolean(scalar, 0, scalar.length());
+        this.decoded = new Decoded(Decoded.BOOLEAN, value, result ? 1 : 0);
+        return result;
     }
 
     public List<String> getList() {
-        return (List<String>) value;
+        return (List<String>) value();
     }
 
     public < T > List<T> typedList() {
@@ -80,6 +136,129 @@ public class SJValue extends Number {
         return list;
     }
 
+    /**
+     * Returns the elements of this list value as ints.
+     * <p>The elements are parsed straight from the source text of
+     * {@link SanjoParser#setLazy(boolean) lazily} parsed values, so
+     * neither boxed numbers nor Strings are created for them. The
+     * decoded array is cached until the value changes, every call
+     * returns a copy of it. A single value is returned as an array
+     * of one element.
+     *
+     * @return the elements of this list value as ints
+     * @throws NumberFormatException if an element is not an int
+     */
+    public int[] intArray() {
+        final Object value = this.value;
+        final DecodedArray cached = decodedArray;
+        if (cached != null && cached.source == value && cached.array instanceof int[]) {
+            return ((int[]) cached.array).clone();
+        }
+        final int[] array;
+        if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = Integer.parseInt(list.get(i).toString());
+            }
+        } else {
+            final CharSequence chars = chars(value);
+            final String separator = listSeparator(value);
+            array = new int[SJNumbers.elementCount(chars, separator)];
+            int start = 0;
+            for (int i = 0; i < array.length; i++) {
+                final int end = SJNumbers.elementEnd(chars, start, separator);
+                array[i] = SJNumbers.parseInt(chars, start, end);
+                start = end + (separator == null ? 0 : separator.length());
+            }
+        }
+        decodedArray = new DecodedArray(value, array);
+        return array.clone();
+    }
+
+    /**
+     * Returns the elements of this list value as longs.
+     *
+     * @return the elements of this list value as longs
+     * @throws NumberFormatException if an element is not a long
+     * @see #intArray()
+     */
+    public long[] longArray() {
+        final Object value = this.value;
+        final DecodedArray cached = decodedArray;
+        if (cached != null && cached.source == value && cached.array instanceof long[]) {
+            return ((long[]) cached.array).clone();
+        }
+        final long[] array;
+        if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            array = new long[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = Long.parseLong(list.get(i).toString());
+            }
+        } else {
+            final CharSequence chars = chars(value);
+            final String separator = listSeparator(value);
+            array = new long[SJNumbers.elementCount(chars, separator)];
+            int start = 0;
+            for (int i = 0; i < array.length; i++) {
+                final int end = SJNumbers.elementEnd(chars, start, separator);
+                array[i] = SJNumbers.parseLong(chars, start, end);
+                start = end + (separator == null ? 0 : separator.length());
+            }
+        }
+        decodedArray = new DecodedArray(value, array);
+        return array.clone();
+    }
+
+    /**
+     * Returns the elements of this list value as doubles.
+     *
+     * @return the elements of this list value as doubles
+     * @throws NumberFormatException if an element is not a double
+     * @see #intArray()
+     */
+    public double[] doubleArray() {
+        final Object value = this.value;
+        final DecodedArray cached = decodedArray;
+        if (cached != null && cached.source == value && cached.array instanceof double[]) {
+            return ((double[]) cached.array).clone();
+        }
+        final double[] array;
+        if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            array = new double[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = Double.parseDouble(list.get(i).toString());
+            }
+        } else {
+            final CharSequence chars = chars(value);
+            final String separator = listSeparator(value);
+            array = new double[SJNumbers.elementCount(chars, separator)];
+            int start = 0;
+            for (int i = 0; i < array.length; i++) {
+                final int end = SJNumbers.elementEnd(chars, start, separator);
+                array[i] = SJNumbers.parseDouble(chars, start, end);
+                start = end + (separator == null ? 0 : separator.length());
+            }
+        }
+        decodedArray = new DecodedArray(value, array);
+        return array.clone();
+    }
+
+    private static CharSequence chars(final Object value) {
+        return value instanceof CharSequence ? (CharSequence) value : value.toString();
+    }
+
+    /**
+     * Returns the separator of an unparsed list value
+     * or <code>null</code> for a single value.
+     */
+    private static String listSeparator(final Object value) {
+        return value instanceof SJRawValue && ((SJRawValue) value).isList()
+                ? ((SJRawValue) value).getListSeparator() : null;
+    }
+
     /**
      * Used to force generic type.
      * The actually argument is fully ignored
@@ -99,28 +278,84 @@ public class SJValue extends Number {
         return string();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>The parsed number is cached until the next
+     * call to another primitive conversion or to
+     * {@link #setValue(Object)}.
+     */
     @Override
     public int intValue() {
-        return Integer.parseInt(string());
+        final Object value = this.value;
+        final Decoded decoded = this.decoded;
+        if (decoded != null && decoded.type == Decoded.INT && decoded.source == value) {
+            return (int) decoded.bits;
+        }
+        final CharSequence scalar = chars(value);
+        final int result = SJNumbers.parseInt(scalar, 0, scalar.length());
+        this.decoded = new Decoded(Decoded.INT, value, result);
+        return result;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>The parsed number is cached until the next
+     * call to another primitive conversion or to
+     * {@link #setValue(Object)}.
+     */
     @Override
     public long longValue() {
-        return Long.parseLong(string());
+        final Object value = this.value;
+        final Decoded decoded = this.decoded;
+        if (decoded != null && decoded.type == Decoded.LONG && decoded.source == value) {
+            return decoded.bits;
+        }
+        final CharSequence scalar = chars(value);
+        final long result = SJNumbers.parseLong(scalar, 0, scalar.length());
+        this.decoded = new Decoded(Decoded.LONG, value, result);
+        return result;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>The parsed number is cached until the next
+     * call to another primitive conversion or to
+     * {@link #setValue(Object)}.
+     */
     @Override
     public float floatValue() {
-        return Float.parseFloat(string());
+        final Object value = this.value;
+        final Decoded decoded = this.decoded;
+        if (decoded != null && decoded.type == Decoded.FLOAT && decoded.source == value) {
+            return Float.intBitsToFloat((int) decoded.bits);
+        }
+        final float result = Float.parseFloat(chars(value).toString());
+        this.decoded = new Decoded(Decoded.FLOAT, value, Float.floatToRawIntBits(result));
+        return result;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>The parsed number is cached until the next
+     * call to another primitive conversion or to
+     * {@link #setValue(Object)}.
+     */
     @Override
     public double doubleValue() {
-        return Double.parseDouble(string());
+        final Object value = this.value;
+        final Decoded decoded = this.decoded;
+        if (decoded != null && decoded.type == Decoded.DOUBLE && decoded.source == value) {
+            return Double.longBitsToDouble(decoded.bits);
+        }
+        final CharSequence scalar = chars(value);
+        final double result = SJNumbers.parseDouble(scalar, 0, scalar.length());
+        this.decoded = new Decoded(Decoded.DOUBLE, value, Double.doubleToRawLongBits(result));
+        return result;
     }
 
     public String string() {
-        return value.toString();
+        final Object value = value();
+        return value instanceof String ? (String) value : value.toString();
     }
 
     public String getKey() {
@@ -132,10 +367,77 @@ public class SJValue extends Number {
     }
 
     public Object getValue() {
+        return value();
+    }
+
+    /**
+     * Returns the value, materializing
+     * it first if it is still unparsed.
+     * <p>The materialized value is only published if the value
+     * hasn't been replaced in the meantime, so a concurrent
+     * {@link #setValue(Object)} is never overwritten.
+     *
+     * @return the String or list value
+     */
+    private Object value() {
+        Object value = this.value;
+        while (value instanceof SJRawValue) {
+            final Object materialized = ((SJRawValue) value).materialize();
+            if (VALUE.compareAndSet(this, value, materialized)) {
+                return materialized;
+            }
+            value = this.value;
+        }
         return value;
     }
 
     public void setValue(final Object value) {
         this.value = value;
+        decodedArray = null;
+        decoded = null;
+    }
+
+    /**
+     * A decoded array along with the value it was decoded
+     * from, so that an array decoded concurrently to
+     * {@link #setValue(Object)} is never returned for
+     * the new value.
+     */
+    private static final class DecodedArray {
+        private final Object source;
+        private final Object array;
+
+        private DecodedArray(final Object source, final Object array) {
+            this.source = source;
+            this.array = array;
+        }
+    }
+
+    /**
+     * An immutable decoded primitive value:
+     * the type of the conversion, the value it was
+     * parsed from and the raw bits of its result,
+     * published through a single field.
+     * <p>The cache is only used while its source is
+     * still the current value, so a number parsed
+     * concurrently to {@link #setValue(Object)} is
+     * never returned for the new value.
+     */
+    private static final class Decoded {
+        private static final byte INT = 0;
+        private static final byte LONG = 1;
+        private static final byte FLOAT = 2;
+        private static final byte DOUBLE = 3;
+        private static final byte BOOLEAN = 4;
+
+        private final byte type;
+        private final Object source;
+        private final long bits;
+
+        private Decoded(final byte type, final Object source, final long bits) {
+            this.type = type;
+            this.source = source;
+            this.bits = bits;
+        }
     }
 }
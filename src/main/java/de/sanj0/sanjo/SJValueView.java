@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only view of a value in {@link SanjoBinary binary} sanjo data.
+ * <p>Like {@link SJValue}, a view is a {@link Number}: numbers and
+ * booleans are parsed straight from the bytes of the value
+ * without creating a String first.
+ * <p>Views are bound to the buffer of their data, so a view is
+ * serialized as a detached, {@link SJClass#freeze() frozen}
+ * {@link SJValue} with the same key and value.
+ *
+ * @see SJClassView
+ */
+public final class SJValueView extends Number {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient SanjoBinary.StringTable strings;
+    private final int keyIndex;
+    private final int offset;
+
+    SJValueView(final SanjoBinary.StringTable strings, final int keyIndex, final int offset) {
+        this.strings = strings;
+        this.keyIndex = keyIndex;
+        this.offset = offset;
+    }
+
+    private Object writeReplace() {
+        return new FrozenSJValue(new SJValue(getKey(), isList() ? getList() : string()));
+    }
+
+    private void readObject(final ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("views are serialized as frozen values");
+    }
+
+    public String getKey() {
+        return strings.get(keyIndex);
+    }
+
+    public boolean isList() {
+        return strings.buffer.get(offset) == SanjoBinary.LIST;
+    }
+
+    /**
+     * Returns the elements of this list value
+     * or a list of the single value.
+     *
+     * @return the elements of this value
+     */
+    public List<String> getList() {
+        final ByteBuffer buffer = strings.buffer;
+        if (!isList()) {
+            final List<String> list = new ArrayList<>(1);
+            list.add(SanjoBinary.readString(buffer, offset + 1));
+            return list;
+        }
+        final int size = buffer.getInt(offset + 1);
+        final List<String> list = new ArrayList<>(size);
+        int position = offset + 5;
+        for (int i = 0; i < size; i++) {
+            list.add(SanjoBinary.readString(buffer, position));
+            position += 4 + buffer.getInt(position);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the String of a single value or the
+     * String representation of the list of a list value,
+     * like {@link SJValue#string()}.
+     *
+     * @return the value as a String
+     */
+    public String string() {
+        return isList() ? getList().toString() : SanjoBinary.readString(strings.buffer, offset + 1);
+    }
+
+    public boolean booleanValue() {
+        final CharSequence scalar = scalar();
+        return SJNumbers.parseBoolean(scalar, 0, scalar.length());
+    }
+
+    @Override
+    public int intValue() {
+        final CharSequence scalar = scalar();
+        return SJNumbers.parseInt(scalar, 0, scalar.length());
+    }
+
+    @Override
+    public long longValue() {
+        final CharSequence scalar = scalar();
+        return SJNumbers.parseLong(scalar, 0, scalar.length());
+    }
+
+    @Override
+    public float floatValue() {
+        return Float.parseFloat(string());
+    }
+
+    @Override
+    public double doubleValue() {
+        final CharSequence scalar = scalar();
+        return SJNumbers.parseDouble(scalar, 0, scalar.length());
+    }
+
+    /**
+     * Returns the bytes of a single value as chars, which
+     * is exact for the ASCII characters of numbers and booleans.
+     */
+    private CharSequence scalar() {
+        if (isList()) {
+            return string();
+        }
+        return new ByteChars(strings.buffer, offset + 5, strings.buffer.getInt(offset + 1));
+    }
+
+    @Override
+    public String toString() {
+        return string();
+    }
+
+    /**
+     * The bytes of a buffer range as chars, one char per byte.
+     */
+    private static final class ByteChars implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        private ByteChars(final ByteBuffer buffer, final int offset, final int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return new ByteChars(buffer, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                builder.append(charAt(i));
+            }
+            return builder.toString();
+        }
+    }
+}
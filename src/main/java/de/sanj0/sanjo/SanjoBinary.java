@@ -0,0 +1,576 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Reads and writes trees of {@link SJClass classes} and
+ * {@link SJValue values} in a compact binary encoding, which
+ * is loaded with a bulk read instead of a line by line parse.
+ * <p>The encoding (all numbers are big-endian ints unless
+ * noted otherwise, all strings are UTF-8):
+ * <pre>
+ * header:
+ *     magic          0x534A4201 ("SJB" and the version 1)
+ *     indention      the indention width of the {@link MetaInf}
+ *     list suffix    length-prefixed string
+ *     list separator length-prefixed string
+ *     string count   the number of entries in the string table
+ *     string offsets the offset of every entry in the string table
+ *     string table   every distinct key and class name as a length-prefixed
+ *                    string, sorted by their unsigned UTF-8 bytes
+ * values:
+ *     kind           one byte, {@link #STRING} or {@link #LIST}
+ *     string         a length-prefixed string, or
+ *     list           the element count followed by length-prefixed strings
+ * classes:
+ *     name           the index of the name in the string table
+ *     value count
+ *     child count
+ *     values         key index and value offset for every value
+ *     children       the offset of every child
+ *     value index    only with more than {@link #INDEX_THRESHOLD} values:
+ *                    the values again, sorted by key index
+ *     child index    only with more than {@link #INDEX_THRESHOLD} children:
+ *                    the child offsets again, sorted by name index and
+ *                    then by position
+ * trailer:
+ *     root offset    the offset of the root class
+ * </pre>
+ * Values and classes are written children first, so that every
+ * offset is known when the record that refers to it is written.
+ * Offsets are absolute positions in the encoded data, which is
+ * therefore limited to 2GB.
+ * <p>The order of values and children is preserved, so a text
+ * document survives a round trip through the binary encoding
+ * unchanged. The indices of larger classes let {@link SJClassView views}
+ * look up values and children by binary search.
+ *
+ * @see SanjoFile#writeBinary(SJClass)
+ * @see SanjoFile#readBinary()
+ */
+public final class SanjoBinary {
+
+    public static final int MAGIC = 0x534A4201;
+    public static final byte STRING = 0;
+    public static final byte LIST = 1;
+    /**
+     * The number of values or children above which
+     * a class record contains a sorted index of them
+     */
+    public static final int INDEX_THRESHOLD = 8;
+
+    private SanjoBinary() {
+    }
+
+    /**
+     * Encodes the given tree to the given stream.
+     * The stream is not closed.
+     *
+     * @param root the root of the tree, usually the default class
+     * @param out the stream to write to
+     * @throws IOException if something goes wrong writing to the stream
+     */
+    public static void write(final SJClass root, final OutputStream out) throws IOException {
+        new Encoder(root, out).encode();
+    }
+
+    /**
+     * Encodes the given tree into a byte array.
+     *
+     * @param root the root of the tree, usually the default class
+     * @return the encoded tree
+     */
+    public static byte[] toBytes(final SJClass root) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(root, out);
+        } catch (final IOException e) {
+            // a ByteArrayOutputStream doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads the encoded tree from the given file
+     * with a single bulk read.
+     *
+     * @param path the path of the file
+     * @return the root of the decoded tree
+     * @throws IOException if something goes wrong reading the file
+     */
+    public static SJClass read(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("binary sanjo data larger than 2GB: " + path);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // read until full
+            }
+            buffer.flip();
+            return read(buffer);
+        }
+    }
+
+    /**
+     * Decodes the tree in the given buffer, from
+     * position 0 to the buffer's limit.
+     *
+     * @param buffer the encoded tree
+     * @return the root of the decoded tree
+     * @throws IOException if the data is not a valid encoded tree
+     */
+    public static SJClass read(final ByteBuffer buffer) throws IOException {
+        return new Decoder(buffer).decode();
+    }
+
+    /**
+     * Maps the given file into memory and returns a read-only
+     * {@link SJClassView view} of the root class stored in it.
+     * <p>Nothing is copied out of the mapping: lookups on the view
+     * resolve directly against the mapped pages, which are shared
+     * with every other process that maps the same file. The file must
+     * not be modified while it is mapped.
+     *
+     * @param path the path of the file
+     * @return a view of the root class stored in the file
+     * @throws IOException if something goes wrong mapping the file
+     * or if it doesn't contain binary sanjo data
+     */
+    public static SJClassView map(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("binary sanjo data larger than 2GB: " + path);
+            }
+            return view(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Returns a read-only {@link SJClassView view} of the
+     * root class of the tree encoded in the given buffer.
+     * The buffer must not be modified while the view is used.
+     *
+     * @param buffer the encoded tree
+     * @return a view of the root class
+     * @throws IOException if the buffer doesn't contain binary sanjo data
+     */
+    public static SJClassView view(final ByteBuffer buffer) throws IOException {
+        final StringTable strings = new StringTable(buffer);
+        final int rootOffset = buffer.getInt(buffer.limit() - 4);
+        if (rootOffset < 0 || rootOffset > buffer.limit() - 16) {
+            throw new IOException("corrupt binary sanjo data");
+        }
+        return new SJClassView(strings, rootOffset);
+    }
+
+    /**
+     * Returns the position of the first entry of the string table
+     * (the string count), i.e. the size of the header before it.
+     */
+    static int stringTablePosition(final ByteBuffer buffer) throws IOException {
+        checkMagic(buffer);
+        int position = 8;
+        position += 4 + buffer.getInt(position);
+        position += 4 + buffer.getInt(position);
+        return position;
+    }
+
+    static void checkMagic(final ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < 8 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("not binary sanjo data");
+        }
+    }
+
+    static String readString(final ByteBuffer buffer, final int position) {
+        final int length = buffer.getInt(position);
+        if (length < 0 || length > buffer.limit() - position - 4) {
+            throw new IndexOutOfBoundsException("string of length " + length + " at " + position);
+        }
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + position + 4, length, StandardCharsets.UTF_8);
+        }
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Orders UTF-8 encoded strings by their unsigned bytes,
+     * which is the order of their code points.
+     */
+    static int compareUnsigned(final byte[] a, final byte[] b) {
+        final int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            final int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * The string table of encoded data, looked up by binary
+     * search over the unsigned UTF-8 bytes of its entries.
+     */
+    static final class StringTable {
+        final ByteBuffer buffer;
+        private final int offsetsPosition;
+        private final int count;
+
+        StringTable(final ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            final int position = stringTablePosition(buffer);
+            count = buffer.getInt(position);
+            offsetsPosition = position + 4;
+            if (count < 0 || count > buffer.limit() / 4) {
+                throw new IOException("corrupt binary sanjo data");
+            }
+        }
+
+        String get(final int index) {
+            return readString(buffer, buffer.getInt(offsetsPosition + 4 * index));
+        }
+
+        /**
+         * Returns the index of the given UTF-8 encoded
+         * string or a negative number if it isn't in the table.
+         */
+        int indexOf(final byte[] utf8) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int c = compare(buffer.getInt(offsetsPosition + 4 * mid), utf8);
+                if (c < 0) {
+                    low = mid + 1;
+                } else if (c > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compare(final int position, final byte[] utf8) {
+            final int length = buffer.getInt(position);
+            final int common = Math.min(length, utf8.length);
+            for (int i = 0; i < common; i++) {
+                final int c = (buffer.get(position + 4 + i) & 0xFF) - (utf8[i] & 0xFF);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return length - utf8.length;
+        }
+    }
+
+    private static final class Encoder {
+        private final SJClass root;
+        private final DataOutputStream out;
+        private final Map<String, Integer> stringIndices = new HashMap<>();
+
+        private Encoder(final SJClass root, final OutputStream out) {
+            this.root = root;
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+        }
+
+        private void encode() throws IOException {
+            final MetaInf metaInf = root.getMetaInf();
+            out.writeInt(MAGIC);
+            out.writeInt(metaInf.getIndentionWidth());
+            writeString(metaInf.getListSuffix());
+            writeString(metaInf.getListSeparator());
+            writeStringTable();
+            final int rootOffset = writeTree(root);
+            out.writeInt(rootOffset);
+            out.flush();
+        }
+
+        private void writeStringTable() throws IOException {
+            final Set<String> names = new HashSet<>();
+            collectNames(root, names);
+            final byte[][] encoded = new byte[names.size()][];
+            int i = 0;
+            for (final String name : names) {
+                encoded[i++] = name.getBytes(StandardCharsets.UTF_8);
+            }
+            Arrays.sort(encoded, SanjoBinary::compareUnsigned);
+
+            out.writeInt(encoded.length);
+            int offset = out.size() + 4 * encoded.length;
+            for (final byte[] bytes : encoded) {
+                out.writeInt(offset);
+                offset += 4 + bytes.length;
+            }
+            for (int j = 0; j < encoded.length; j++) {
+                out.writeInt(encoded[j].length);
+                out.write(encoded[j]);
+                stringIndices.put(new String(encoded[j], StandardCharsets.UTF_8), j);
+            }
+        }
+
+        private void collectNames(final SJClass root, final Set<String> names) {
+            final Deque<SJClass> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                final SJClass clazz = stack.pop();
+                names.add(clazz.getName());
+                names.addAll(clazz.getValues().keySet());
+                for (final SJClass child : clazz.getChildren()) {
+                    stack.push(child);
+                }
+            }
+        }
+
+        /**
+         * Writes the given class and all of its subclasses
+         * children first, walking the tree with an explicit
+         * stack so that deep trees don't overflow the call stack.
+         *
+         * @return the offset of the given class
+         */
+        private int writeTree(final SJClass root) throws IOException {
+            final Deque<PendingClass> stack = new ArrayDeque<>();
+            stack.push(new PendingClass(root));
+            while (true) {
+                final PendingClass pending = stack.peek();
+                if (pending.written < pending.childOffsets.length) {
+                    stack.push(new PendingClass(pending.clazz.getChildren().get(pending.written)));
+                    continue;
+                }
+                stack.pop();
+                final int offset = writeClass(pending.clazz, pending.childOffsets);
+                final PendingClass parent = stack.peek();
+                if (parent == null) {
+                    return offset;
+                }
+                parent.childOffsets[parent.written++] = offset;
+            }
+        }
+
+        private int writeClass(final SJClass clazz, final int[] childOffsets) throws IOException {
+            final List<SJClass> children = clazz.getChildren();
+            final Collection<SJValue> values = clazz.getValues().values();
+            final int[] valueOffsets = new int[values.size()];
+            final int[] keyIndices = new int[values.size()];
+            int i = 0;
+            for (final SJValue value : values) {
+                keyIndices[i] = stringIndices.get(value.getKey());
+                valueOffsets[i++] = writeValue(value);
+            }
+
+            final int offset = position();
+            out.writeInt(stringIndices.get(clazz.getName()));
+            out.writeInt(valueOffsets.length);
+            out.writeInt(childOffsets.length);
+            for (int j = 0; j < valueOffsets.length; j++) {
+                out.writeInt(keyIndices[j]);
+                out.writeInt(valueOffsets[j]);
+            }
+            for (final int childOffset : childOffsets) {
+                out.writeInt(childOffset);
+            }
+
+            if (valueOffsets.length > INDEX_THRESHOLD) {
+                // keys are unique, so the index is the position
+                final long[] sorted = new long[valueOffsets.length];
+                for (int j = 0; j < sorted.length; j++) {
+                    sorted[j] = (long) keyIndices[j] << 32 | j;
+                }
+                Arrays.sort(sorted);
+                for (final long entry : sorted) {
+                    out.writeInt(keyIndices[(int) entry]);
+                    out.writeInt(valueOffsets[(int) entry]);
+                }
+            }
+            if (childOffsets.length > INDEX_THRESHOLD) {
+                // the position in the low bits keeps the sort stable
+                final long[] sorted = new long[childOffsets.length];
+                for (int j = 0; j < sorted.length; j++) {
+                    sorted[j] = (long) stringIndices.get(children.get(j).getName()) << 32 | j;
+                }
+                Arrays.sort(sorted);
+                for (final long entry : sorted) {
+                    out.writeInt(childOffsets[(int) entry]);
+                }
+            }
+            return offset;
+        }
+
+        private int writeValue(final SJValue value) throws IOException {
+            final int offset = position();
+            final Object object = value.getValue();
+            if (object instanceof List) {
+                final List<?> list = (List<?>) object;
+                out.writeByte(LIST);
+                out.writeInt(list.size());
+                for (final Object element : list) {
+                    writeString(element.toString());
+                }
+            } else {
+                out.writeByte(STRING);
+                writeString(object.toString());
+            }
+            return offset;
+        }
+
+        private void writeString(final String s) throws IOException {
+            final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private int position() throws IOException {
+            // DataOutputStream#size() stops counting at Integer.MAX_VALUE
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("binary sanjo data larger than 2GB");
+            }
+            return out.size();
+        }
+    }
+
+    /**
+     * A class whose record is written once
+     * the records of all of its children are.
+     */
+    private static final class PendingClass {
+        private final SJClass clazz;
+        private final int[] childOffsets;
+        private int written;
+
+        private PendingClass(final SJClass clazz) {
+            this.clazz = clazz;
+            childOffsets = new int[clazz.getChildren().size()];
+        }
+    }
+
+    private static final class Decoder {
+        private final ByteBuffer buffer;
+        private MetaInf metaInf;
+        private String[] strings;
+
+        private Decoder(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private SJClass decode() throws IOException {
+            try {
+                final int stringTablePosition = stringTablePosition(buffer);
+                metaInf = new MetaInf(buffer.getInt(4), readString(buffer, 8),
+                        readString(buffer, 12 + buffer.getInt(8)));
+                final int stringCount = buffer.getInt(stringTablePosition);
+                if (stringCount < 0 || stringCount > buffer.limit() / 4) {
+                    throw new IOException("corrupt binary sanjo data");
+                }
+                strings = new String[stringCount];
+                for (int i = 0; i < strings.length; i++) {
+                    strings[i] = readString(buffer, buffer.getInt(stringTablePosition + 4 + 4 * i));
+                }
+                final int rootOffset = buffer.getInt(buffer.limit() - 4);
+                checkRange(rootOffset, 12, 1, buffer.limit() - 4);
+                final SJClass root = new SJClass(strings[buffer.getInt(rootOffset)], metaInf);
+                readTree(root, rootOffset);
+                return root;
+            } catch (final IndexOutOfBoundsException e) {
+                throw corrupt(e);
+            }
+        }
+
+        /**
+         * Reads the values and subclasses of the given class,
+         * walking the tree with an explicit stack so that deep
+         * trees don't overflow the call stack.
+         */
+        private void readTree(final SJClass root, final int rootOffset) throws IOException {
+            final Deque<SJClass> classes = new ArrayDeque<>();
+            final Deque<Integer> offsets = new ArrayDeque<>();
+            classes.push(root);
+            offsets.push(rootOffset);
+            while (!classes.isEmpty()) {
+                final SJClass clazz = classes.pop();
+                final int offset = offsets.pop();
+                final int valueCount = buffer.getInt(offset + 4);
+                final int childCount = buffer.getInt(offset + 8);
+                checkRange(offset + 12, 8, valueCount, offset + 12 + 8L * valueCount + 4L * childCount);
+                int position = offset + 12;
+                for (int i = 0; i < valueCount; i++, position += 8) {
+                    final String key = strings[buffer.getInt(position)];
+                    clazz.getValues().put(key, new SJValue(key, readValue(buffer.getInt(position + 4))));
+                }
+                for (int i = 0; i < childCount; i++, position += 4) {
+                    final int childOffset = buffer.getInt(position);
+                    // children are written before their parent, which
+                    // also rules out cycles in corrupt data
+                    if (childOffset < 0 || childOffset >= offset) {
+                        throw corrupt(null);
+                    }
+                    checkRange(childOffset, 12, 1, offset);
+                    final SJClass child = new SJClass(strings[buffer.getInt(childOffset)], clazz, metaInf);
+                    clazz.getChildren().add(child);
+                    classes.push(child);
+                    offsets.push(childOffset);
+                }
+            }
+        }
+
+        /**
+         * Checks that the given number of elements of the given
+         * size starting at the given position end before the given limit.
+         */
+        private void checkRange(final int position, final int elementSize, final int count, final long limit) throws IOException {
+            if (position < 0 || count < 0 || limit > buffer.limit() || position + (long) elementSize * count > limit) {
+                throw corrupt(null);
+            }
+        }
+
+        private static IOException corrupt(final Exception cause) {
+            return new IOException("corrupt binary sanjo data", cause);
+        }
+
+        private Object readValue(final int offset) throws IOException {
+            if (buffer.get(offset) == LIST) {
+                final int size = buffer.getInt(offset + 1);
+                // every element takes at least its length
+                checkRange(offset + 5, 4, size, buffer.limit());
+                final List<String> list = new ArrayList<>(size);
+                int position = offset + 5;
+                for (int i = 0; i < size; i++) {
+                    list.add(readString(buffer, position));
+                    position += 4 + buffer.getInt(position);
+                }
+                return list;
+            }
+            return readString(buffer, offset + 1);
+        }
+    }
+}
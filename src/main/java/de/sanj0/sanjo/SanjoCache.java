@@ -0,0 +1,346 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A size-bounded cache of {@link SJClass#freeze() frozen} trees
+ * of parsed {@link SanjoFile files}.
+ * <p>A file is parsed again only when it changed since it was cached:
+ * by default, when its size or modification time changed. With {@link
+ * #setHashContents(boolean) content hashing}, the contents of the
+ * file are hashed on every lookup instead, which also detects changes
+ * that keep size and modification time, and keeps the cached tree when
+ * a file is only touched.
+ * <p>The cache holds trees up to a total weight, which is the number
+ * of classes and values in them, and evicts the least recently used
+ * trees beyond it. Threads that look up the same changed file at the
+ * same time wait for a single parse of it. All files are parsed with
+ * one {@link SanjoInternPool}, so names are deduplicated across files.
+ * <p>The cache is thread-safe. The returned trees are frozen, so
+ * they can be shared between any number of threads and components.
+ *
+ * @see SanjoFile#parseCached()
+ */
+public class SanjoCache {
+
+    /**
+     * The maximum weight of the {@link #shared() shared} cache,
+     * the total number of classes and values in its trees
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 1 << 20;
+    private static final SanjoCache SHARED = new SanjoCache(DEFAULT_MAX_WEIGHT);
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int HASH_BUFFER_SIZE = 8192;
+
+    private final long maxWeight;
+    private final SanjoInternPool internPool = new SanjoInternPool();
+    /**
+     * The entries in access order, guarded by <code>this</code>
+     */
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hitCount;
+    private long missCount;
+    private volatile boolean hashContents = false;
+
+    /**
+     * @param maxWeight the maximum total number of
+     *                  classes and values in the cached trees
+     */
+    public SanjoCache(final long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the cache shared by the whole JVM, which holds trees
+     * with up to {@link #DEFAULT_MAX_WEIGHT} classes and values.
+     *
+     * @return the shared cache
+     */
+    public static SanjoCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the frozen tree of the given file, which is
+     * parsed only if it isn't cached or changed since then.
+     * A file that doesn't exist results in an empty tree.
+     *
+     * @param file the file to parse
+     * @return the frozen default class of the file
+     * @throws IOException if something goes wrong reading the file
+     * @throws SanjoParser.SanjoParserError if the file is not valid sanjo data
+     */
+    public SJClass get(final SanjoFile file) throws IOException {
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        final Stamp stamp = stamp(path);
+        final Entry entry;
+        final boolean load;
+        synchronized (this) {
+            final Entry cached = entries.get(path);
+            if (cached != null && cached.stamp.matches(stamp)) {
+                cached.stamp = stamp;
+                hitCount++;
+                entry = cached;
+                load = false;
+            } else {
+                if (cached != null) {
+                    weight -= cached.weight;
+                }
+                entry = new Entry(stamp, new FutureTask<>(() -> parse(file)));
+                entries.put(path, entry);
+                missCount++;
+                load = true;
+            }
+        }
+
+        if (load) {
+            entry.task.run();
+        }
+        final SJClass root;
+        try {
+            root = entry.task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while parsing " + file, e);
+        } catch (final ExecutionException e) {
+            synchronized (this) {
+                entries.remove(path, entry);
+            }
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        if (load) {
+            final long entryWeight = weigh(root);
+            synchronized (this) {
+                if (entries.get(path) == entry) {
+                    entry.weight = entryWeight;
+                    weight += entryWeight;
+                    evict();
+                }
+            }
+        }
+        return root;
+    }
+
+    private SJClass parse(final SanjoFile file) throws IOException {
+        final SanjoParser parser = file.parser();
+        parser.setInternPool(internPool);
+        return parser.parse().freeze();
+    }
+
+    /**
+     * Removes the least recently used trees
+     * until the weight is within the maximum.
+     */
+    private void evict() {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            // trees that are still being parsed weigh nothing yet
+            if (entry.task.isDone()) {
+                weight -= entry.weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of classes and values in the given tree.
+     */
+    private static long weigh(final SJClass root) {
+        long weight = 0;
+        final Deque<SJClass> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final SJClass clazz = stack.pop();
+            weight += 1 + clazz.getValues().size();
+            for (final SJClass child : clazz.getChildren()) {
+                stack.push(child);
+            }
+        }
+        return weight;
+    }
+
+    private Stamp stamp(final Path path) throws IOException {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (final NoSuchFileException e) {
+            return new Stamp(-1, -1, null);
+        }
+        return new Stamp(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size(),
+                hashContents ? hash(path) : null);
+    }
+
+    private static byte[] hash(final Path path) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            // every platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (final InputStream in = Files.newInputStream(path)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Removes the tree of the given file from this cache.
+     *
+     * @param file the file to remove the tree of
+     */
+    public synchronized void invalidate(final SanjoFile file) {
+        final Entry entry = entries.remove(file.toPath().toAbsolutePath().normalize());
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    /**
+     * Removes all trees from this cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Sets whether or not the contents of files should be hashed
+     * on every lookup to decide if they changed, instead of comparing
+     * their modification time. Hashing detects every change at the cost
+     * of reading the whole file on every lookup.
+     * <p>Content hashing is disabled by default.
+     *
+     * @param hashContents whether or not the contents of files should be hashed
+     */
+    public void setHashContents(final boolean hashContents) {
+        this.hashContents = hashContents;
+    }
+
+    public boolean isHashContents() {
+        return hashContents;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Returns the total number of classes and values in the cached trees.
+     *
+     * @return the weight of the cached trees
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the number of cached trees,
+     * including the ones that are being parsed.
+     *
+     * @return the number of cached trees
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that returned a cached tree.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that parsed their file.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * The state of a file when it was last looked up.
+     */
+    private static final class Stamp {
+        private final long modified;
+        private final long size;
+        /**
+         * The hash of the contents or <code>null</code>
+         */
+        private final byte[] hash;
+
+        private Stamp(final long modified, final long size, final byte[] hash) {
+            this.modified = modified;
+            this.size = size;
+            this.hash = hash;
+        }
+
+        private boolean matches(final Stamp stamp) {
+            if (size != stamp.size) {
+                return false;
+            }
+            if (hash != null && stamp.hash != null) {
+                return Arrays.equals(hash, stamp.hash);
+            }
+            return modified == stamp.modified && hash == null && stamp.hash == null;
+        }
+    }
+
+    private static final class Entry {
+        private final FutureTask<SJClass> task;
+        private Stamp stamp;
+        private long weight;
+
+        private Entry(final Stamp stamp, final FutureTask<SJClass> task) {
+            this.stamp = stamp;
+            this.task = task;
+        }
+    }
+}
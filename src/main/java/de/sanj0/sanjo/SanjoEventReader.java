@@ -0,0 +1,477 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static de.sanj0.sanjo.SanjoParser.*;
+
+/**
+ * Reads sanjo data line by line and reports its structure
+ * to a {@link SanjoHandler} without building a tree.
+ * <p>This is the low-level counterpart of the {@link SanjoParser},
+ * which is itself built on top of this class. Consumers that are only
+ * interested in a few keys of large documents can use this class
+ * directly and skip the tree entirely:
+ * <pre>
+ * new SanjoEventReader().read(reader, new SanjoHandler() {
+ *     public void value(CharSequence key, CharSequence value, boolean list, int depth, int lineNumber) {
+ *         if (depth == 0 &amp;&amp; "version".contentEquals(key)) {
+ *             System.out.println(value);
+ *         }
+ *     }
+ * });
+ * </pre>
+ * Reading can be ended early by calling {@link #stop()}
+ * from within a handler.
+ * <p>A {@link SJClass#META meta} class in the first line of a
+ * document (after comments) specifies the format of the rest of
+ * the document:
+ * <pre>
+ * :meta
+ *     .indentation=2
+ *     .list_suffix=[]
+ *     .list_separator=;
+ * </pre>
+ * The meta class itself is reported like any other class, its
+ * lines may be indented by any number of spaces (so that it can be
+ * written in the format it specifies) and it can't have subclasses. When it is
+ * closed, the {@link SanjoHandler#meta(MetaInf, int) meta event}
+ * is emitted and the remaining lines are read in the new format.
+ * Only the first line of a document is checked for a meta class,
+ * so documents without one are read at no extra cost.
+ * <p>Instances are not thread-safe, but may be reused
+ * for multiple documents.
+ */
+public class SanjoEventReader {
+
+    private static final int BUFFER_SIZE = 8192;
+    static final char ASSIGNMENT_CHAR = ASSIGNMENT_OPERATOR.charAt(0);
+    static final char ASSIGNMENT_CHAR_COL = ASSIGNMENT_OPERATOR_COL.charAt(0);
+
+    /**
+     * The state of a read before its first class or value
+     */
+    private static final int META_BEFORE = 0;
+    /**
+     * The state of a read inside of a leading meta class
+     */
+    private static final int META_INSIDE = 1;
+    /**
+     * The state of a read after a leading meta class
+     * or after a first line that isn't one
+     */
+    private static final int META_DONE = 2;
+
+    private final SanjoFile file;
+    private final MetaInf metaInf;
+    /**
+     * The format of the current document, the format this
+     * reader was created with or the one of a meta class
+     */
+    private MetaInf documentMetaInf;
+    /**
+     * The format specified by the meta class being read
+     */
+    private MetaInf pendingMetaInf;
+    private boolean readMeta = true;
+    private int metaState;
+    private final CharSlice name = new CharSlice();
+    private final CharSlice value = new CharSlice();
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int openClasses;
+    private int lineNumber;
+    private long charCount;
+    private boolean skipLf;
+    private boolean stopped;
+
+    public SanjoEventReader(final MetaInf metaInf, final SanjoFile file) {
+        this.metaInf = metaInf;
+        this.file = file;
+        documentMetaInf = metaInf;
+    }
+
+    public SanjoEventReader(final MetaInf metaInf) {
+        this(metaInf, null);
+    }
+
+    public SanjoEventReader() {
+        this(MetaInf.DEFAULT_META_INF);
+    }
+
+    /**
+     * Reads the {@link #getFile() file} of this reader.
+     * A file that doesn't exist is read as an empty document.
+     *
+     * @param handler the handler to report to
+     * @throws IOException if something goes wrong reading the file
+     */
+    public void read(final SanjoHandler handler) throws IOException {
+        if (!file.exists()) {
+            begin(handler);
+            end(handler);
+            return;
+        }
+        try (final Reader reader = Files.newBufferedReader(file.toPath())) {
+            read(reader, handler);
+        }
+    }
+
+    /**
+     * Reads sanjo data from the given reader until
+     * its end or until {@link #stop()} is called.
+     * The reader is not closed.
+     * <p>The reader is read in blocks into a reused buffer,
+     * lines are tokenized in place, so only the strings kept
+     * by the handler are allocated.
+     *
+     * @param reader the reader to read sanjo data from
+     * @param handler the handler to report to
+     * @throws IOException if something goes wrong reading from the reader
+     */
+    public void read(final Reader reader, final SanjoHandler handler) throws IOException {
+        begin(handler);
+        char[] chars = buffer;
+        int lineStart = 0;
+        int limit = 0;
+        int n;
+        while (!stopped && (n = reader.read(chars, limit, chars.length - limit)) != -1) {
+            limit += n;
+            charCount += n;
+            lineStart = readLines(chars, lineStart, limit, handler);
+            // move the incomplete last line to the
+            // start of the buffer, grow the buffer if
+            // the line doesn't fit into it
+            final int remaining = limit - lineStart;
+            if (remaining == chars.length) {
+                chars = buffer = Arrays.copyOf(chars, chars.length * 2);
+            } else if (lineStart != 0) {
+                System.arraycopy(chars, lineStart, chars, 0, remaining);
+            }
+            lineStart = 0;
+            limit = remaining;
+        }
+        if (!stopped && limit != 0) {
+            readLine(chars, 0, limit, handler);
+        }
+        end(handler);
+    }
+
+    /**
+     * Reads sanjo data from the given stream, decoding
+     * it with the given charset. The stream is not closed.
+     *
+     * @param in the stream to read sanjo data from
+     * @param charset the charset of the data
+     * @param handler the handler to report to
+     * @throws IOException if something goes wrong reading from the stream
+     */
+    public void read(final InputStream in, final Charset charset, final SanjoHandler handler) throws IOException {
+        read(new InputStreamReader(in, charset), handler);
+    }
+
+    /**
+     * Reads the sanjo data in the given range
+     * of the given array.
+     *
+     * @param chars the sanjo data
+     * @param offset the index of the first char to read
+     * @param length the number of chars to read
+     * @param handler the handler to report to
+     */
+    public void read(final char[] chars, final int offset, final int length, final SanjoHandler handler) {
+        begin(handler);
+        charCount = length;
+        final int limit = offset + length;
+        final int lineStart = readLines(chars, offset, limit, handler);
+        if (!stopped && lineStart != limit) {
+            readLine(chars, lineStart, limit, handler);
+        }
+        end(handler);
+    }
+
+    /**
+     * Reads the given lines of sanjo data.
+     *
+     * @param lines the lines to read
+     * @param handler the handler to report to
+     */
+    public void read(final List<String> lines, final SanjoHandler handler) {
+        begin(handler);
+        for (int i = 0; i < lines.size() && !stopped; i++) {
+            final String line = lines.get(i);
+            if (line.length() > buffer.length) {
+                buffer = new char[Math.max(line.length(), buffer.length * 2)];
+            }
+            line.getChars(0, line.length(), buffer, 0);
+            charCount += line.length() + 1;
+            readLine(buffer, 0, line.length(), handler);
+        }
+        end(handler);
+    }
+
+    /**
+     * Stops the current read after the event that
+     * is currently being handled. Classes that are still
+     * open are closed regularly.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private void begin(final SanjoHandler handler) {
+        openClasses = 0;
+        lineNumber = 0;
+        charCount = 0;
+        skipLf = false;
+        stopped = false;
+        documentMetaInf = metaInf;
+        pendingMetaInf = null;
+        metaState = readMeta ? META_BEFORE : META_DONE;
+        handler.startDocument();
+    }
+
+    private void end(final SanjoHandler handler) {
+        closeClasses(0, handler);
+        handler.endDocument();
+    }
+
+    /**
+     * Reads all complete lines in the given range, i.e.
+     * all lines that are terminated by \n, \r or \r\n.
+     *
+     * @return the start of the first incomplete line
+     */
+    private int readLines(final char[] chars, final int from, final int limit, final SanjoHandler handler) {
+        int lineStart = from;
+        if (skipLf && lineStart < limit) {
+            skipLf = false;
+            if (chars[lineStart] == '\n') {
+                lineStart++;
+            }
+        }
+        for (int i = lineStart; i < limit; i++) {
+            final char c = chars[i];
+            if (c == '\n' || c == '\r') {
+                readLine(chars, lineStart, i, handler);
+                if (c == '\r') {
+                    if (i + 1 == limit) {
+                        skipLf = true;
+                    } else if (chars[i + 1] == '\n') {
+                        i++;
+                    }
+                }
+                lineStart = i + 1;
+                if (stopped) {
+                    break;
+                }
+            }
+        }
+        return lineStart;
+    }
+
+    /**
+     * Tokenizes the line in the given range in a single pass:
+     * indention, prefix, key and value are located by their
+     * offsets and passed to the handler as slices of the
+     * given array.
+     */
+    private void readLine(final char[] chars, final int start, final int end, final SanjoHandler handler) {
+        lineNumber++;
+        int index = start;
+        while (index < end && chars[index] == SPACE) {
+            index++;
+        }
+        if (index == end) {
+            return;
+        }
+
+        final char prefix = chars[index];
+        final boolean isClass = prefix == CLASS_PREFIX || prefix == CLASS_PREFIX_GT;
+        if (!isClass && prefix != KEY_PREFIX && prefix != KEY_PREFIX_QM) {
+            // everything else is ignored
+            // as a comment
+            return;
+        }
+
+        // a line may be indented by at most one level
+        // more than the innermost open class
+        final int indent = index - start;
+        final int depth;
+        if (metaState == META_INSIDE) {
+            // the meta class may be written in any indention width
+            depth = indent == 0 ? 0 : 1;
+        } else if (indent % documentMetaInf.indentionWidth != 0) {
+            throw indentionError();
+        } else {
+            depth = indent / documentMetaInf.indentionWidth;
+        }
+        if (depth > openClasses) {
+            throw indentionError();
+        }
+        closeClasses(depth, handler);
+        // closing the meta class switches the format of this line
+        final MetaInf metaInf = documentMetaInf;
+
+        final int nameStart = index + 1;
+        if (metaState == META_BEFORE) {
+            metaState = isClass && isMeta(chars, nameStart, end) ? META_INSIDE : META_DONE;
+            if (metaState == META_INSIDE) {
+                pendingMetaInf = new MetaInf(metaInf);
+            }
+        }
+        if (isClass) {
+            handler.startClass(name.set(chars, nameStart, end - nameStart), depth, lineNumber);
+            openClasses++;
+        } else {
+            int assignmentIndex = nameStart;
+            while (assignmentIndex < end && chars[assignmentIndex] != ASSIGNMENT_CHAR
+                    && chars[assignmentIndex] != ASSIGNMENT_CHAR_COL) {
+                assignmentIndex++;
+            }
+            if (assignmentIndex == end) {
+                throw new SanjoParserError(file, SanjoParserError.ASSIGNMENT_ERROR_MESSAGE, lineNumber);
+            }
+            int keyEnd = assignmentIndex;
+            final boolean list = endsWith(chars, nameStart, keyEnd, metaInf.listSuffix);
+            if (list) {
+                keyEnd -= metaInf.listSuffix.length();
+            }
+            if (metaState == META_INSIDE && depth == 1) {
+                metaValue(chars, nameStart, keyEnd, assignmentIndex + 1, end);
+            }
+            handler.value(name.set(chars, nameStart, keyEnd - nameStart),
+                    value.set(chars, assignmentIndex + 1, end - assignmentIndex - 1), list, depth, lineNumber);
+        }
+    }
+
+    private void closeClasses(final int depth, final SanjoHandler handler) {
+        while (openClasses > depth) {
+            openClasses--;
+            handler.endClass(openClasses, lineNumber);
+            if (openClasses == 0 && metaState == META_INSIDE) {
+                metaState = META_DONE;
+                documentMetaInf = pendingMetaInf;
+                pendingMetaInf = null;
+                handler.meta(documentMetaInf, lineNumber);
+            }
+        }
+    }
+
+    private static boolean isMeta(final char[] chars, final int start, final int end) {
+        return end - start == SJClass.META.length() && endsWith(chars, start, end, SJClass.META);
+    }
+
+    /**
+     * Applies a value of the meta class to the
+     * format of the rest of the document.
+     */
+    private void metaValue(final char[] chars, final int keyStart, final int keyEnd, final int valueStart, final int valueEnd) {
+        final CharSlice key = name.set(chars, keyStart, keyEnd - keyStart);
+        final String value = new String(chars, valueStart, valueEnd - valueStart);
+        if (INDENTATION_WIDTH_KEY.contentEquals(key)) {
+            try {
+                pendingMetaInf.indentionWidth = Integer.parseInt(value.trim());
+            } catch (final NumberFormatException e) {
+                pendingMetaInf.indentionWidth = 0;
+            }
+            if (pendingMetaInf.indentionWidth <= 0) {
+                throw new SanjoParserError(file, SanjoParserError.META_ERROR_MESSAGE, lineNumber);
+            }
+        } else if (LIST_KEY_SUFFIX_KEY.contentEquals(key)) {
+            if (value.isEmpty()) {
+                throw new SanjoParserError(file, SanjoParserError.META_ERROR_MESSAGE, lineNumber);
+            }
+            pendingMetaInf.listSuffix = value;
+        } else if (LIST_SEPARATOR.contentEquals(key)) {
+            pendingMetaInf.listSeparator = value;
+        }
+    }
+
+    private static boolean endsWith(final char[] chars, final int start, final int end, final String suffix) {
+        final int suffixStart = end - suffix.length();
+        if (suffixStart < start) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (chars[suffixStart + i] != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private SanjoParserError indentionError() {
+        return new SanjoParserError(file, SanjoParserError.INDENTION_ERROR_MESSAGE, lineNumber);
+    }
+
+    /**
+     * Returns the number of lines read so far
+     * in the current or last read.
+     *
+     * @return the number of lines read
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the number of chars read so far
+     * in the current or last read, including line
+     * separators.
+     *
+     * @return the number of chars read
+     */
+    public long getCharCount() {
+        return charCount;
+    }
+
+    public SanjoFile getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the format of the current or last read
+     * document: the one specified by its {@link SJClass#META meta}
+     * class or the one this reader was created with.
+     *
+     * @return the format of the current or last read document
+     */
+    public MetaInf getMetaInf() {
+        return documentMetaInf;
+    }
+
+    /**
+     * Sets whether or not a meta class in the first line of a
+     * document specifies the format of the rest of the document.
+     * When disabled, a leading meta class is read like any
+     * other class. Reading meta classes is enabled by default.
+     *
+     * @param readMeta whether or not leading meta classes should be read
+     */
+    public void setReadMeta(final boolean readMeta) {
+        this.readMeta = readMeta;
+    }
+
+    public boolean isReadMeta() {
+        return readMeta;
+    }
+}
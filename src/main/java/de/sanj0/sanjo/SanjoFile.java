@@ -18,10 +18,14 @@ package de.sanj0.sanjo;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URI;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A sanjo file is a file to store key-value pairs in classes following a
@@ -50,6 +54,10 @@ import java.util.List;
  *     .name=format
  *     .list_separator=,
  * </pre>
+ * If the meta class is the first class or value of a file, its
+ * {@code indentation}, {@code list_suffix} and {@code list_separator}
+ * specify the format of the rest of the file (see {@link
+ * SanjoEventReader}).
  * A more detailed example can be found in the file {@code format.sj} at the
  * root of the sources git repository or at this url:
  *
@@ -61,6 +69,8 @@ public class SanjoFile extends File {
     public static final String SJ_EXTENION = "sj";
     /**File xetension with the dot*/
     public static final String FILE_EXTENSION = ".sj";
+    /**File extension of binary sanjo files with the dot*/
+    public static final String BINARY_FILE_EXTENSION = ".sjb";
     /**
      * Instantiates the file using the
      * {@link File#File(String)} constructor.
@@ -117,6 +127,168 @@ public class SanjoFile extends File {
         return new SanjoParser(this);
     }
 
+    /**
+     * Returns the frozen tree of this file from the
+     * {@link SanjoCache#shared() shared cache}, which parses
+     * the file only if it changed since it was last parsed.
+     *
+     * @return the frozen default class of this file
+     * @throws IOException if something goes wrong reading the file
+     * @see SanjoCache#get(SanjoFile)
+     */
+    public SJClass parseCached() throws IOException {
+        return SanjoCache.shared().get(this);
+    }
+
+    /**
+     * Parses this (UTF-8) file on the
+     * {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @return the default class of the parsed tree
+     * @throws IOException if something goes wrong reading the file
+     * @see #parseParallel(ForkJoinPool)
+     */
+    public SJClass parseParallel() throws IOException {
+        return parseParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses this (UTF-8) file on the given pool.
+     * <p>The file is memory-mapped and split into chunks at
+     * lines with zero indention, which are parsed in parallel.
+     * The resulting tree is the same as the one of
+     * <code>parser().parse()</code>, it pays off for
+     * files of many megabytes with many top-level classes.
+     *
+     * @param pool the pool to parse the chunks on
+     * @return the default class of the parsed tree
+     * @throws IOException if something goes wrong reading the file
+     */
+    public SJClass parseParallel(final ForkJoinPool pool) throws IOException {
+        return new SanjoParallelParser(this, pool).parse();
+    }
+
+    /**
+     * Creates a new {@link SanjoEventReader}
+     * with <code>this</code> as the subject file
+     * and returns it.
+     *
+     * @return a {@link SanjoEventReader} subjected to this file
+     */
+    public SanjoEventReader eventReader() {
+        return new SanjoEventReader(MetaInf.DEFAULT_META_INF, this);
+    }
+
+    /**
+     * Writes the given tree to this file (UTF-8),
+     * replacing its contents. The tree is streamed
+     * through a single buffered writer.
+     *
+     * @param root the root of the tree to write, usually the default class
+     * @throws IOException if something goes wrong writing the file
+     */
+    public void write(final SJClass root) throws IOException {
+        try (final Writer writer = Files.newBufferedWriter(toPath())) {
+            root.write(writer);
+        }
+    }
+
+    /**
+     * Writes the given tree to this file, replacing its
+     * contents, with values and children in the given order.
+     *
+     * @param root the root of the tree to write, usually the default class
+     * @param order the order of values and children
+     * @throws IOException if something goes wrong writing the file
+     */
+    public void write(final SJClass root, final SanjoWriter.Order order) throws IOException {
+        try (final Writer writer = Files.newBufferedWriter(toPath())) {
+            final SanjoWriter sanjoWriter = new SanjoWriter(writer, root.getMetaInf());
+            sanjoWriter.setOrder(order);
+            sanjoWriter.write(root);
+        }
+    }
+
+    /**
+     * Parses this file into a {@link SanjoIncrementalParser},
+     * which keeps the lines of the file to reparse only
+     * the edited parts of it later on.
+     *
+     * @return an incremental parser for the current content of this file
+     * @throws IOException if something goes wrong reading the file
+     */
+    public SanjoIncrementalParser incrementalParser() throws IOException {
+        return new SanjoIncrementalParser(this, readLines());
+    }
+
+    /**
+     * Parses this file and keeps reparsing it in the background
+     * whenever it changes, with the
+     * {@link SanjoWatcher#DEFAULT_DEBOUNCE_MILLIS default debounce time}.
+     *
+     * @return a watcher that publishes the current tree of this file
+     * @throws IOException if something goes wrong reading or watching the file
+     * @see SanjoWatcher
+     */
+    public SanjoWatcher watch() throws IOException {
+        return watch(SanjoWatcher.DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Parses this file and keeps reparsing it in the
+     * background whenever it changes.
+     *
+     * @param debounceMillis the time in milliseconds without further
+     *                       changes after which the file is reparsed
+     * @return a watcher that publishes the current tree of this file
+     * @throws IOException if something goes wrong reading or watching the file
+     * @see SanjoWatcher
+     */
+    public SanjoWatcher watch(final long debounceMillis) throws IOException {
+        return new SanjoWatcher(this, debounceMillis);
+    }
+
+    /**
+     * Writes the given tree to this file in the
+     * {@link SanjoBinary binary encoding}, replacing
+     * its contents.
+     *
+     * @param root the root of the tree to write, usually the default class
+     * @throws IOException if something goes wrong writing the file
+     */
+    public void writeBinary(final SJClass root) throws IOException {
+        try (final OutputStream out = Files.newOutputStream(toPath())) {
+            SanjoBinary.write(root, out);
+        }
+    }
+
+    /**
+     * Reads the tree stored in this file in the
+     * {@link SanjoBinary binary encoding} with a
+     * single bulk read.
+     *
+     * @return the root of the tree stored in this file
+     * @throws IOException if something goes wrong reading the file
+     * or if it doesn't contain binary sanjo data
+     */
+    public SJClass readBinary() throws IOException {
+        return SanjoBinary.read(toPath());
+    }
+
+    /**
+     * Maps this file into memory and returns a read-only
+     * view of the tree stored in it in the {@link SanjoBinary
+     * binary encoding}, without copying it onto the heap.
+     *
+     * @return a view of the root class stored in this file
+     * @throws IOException if something goes wrong mapping the file
+     * or if it doesn't contain binary sanjo data
+     * @see SanjoBinary#map(Path)
+     */
+    public SJClassView mapBinary() throws IOException {
+        return SanjoBinary.map(toPath());
+    }
+
     /**
      * Reads all lines from this file and
      * returns them as a list.
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+/**
+ * Receives the events emitted by a {@link SanjoEventReader}
+ * while it reads sanjo data.
+ * <p>Events are emitted in document order: a class is
+ * opened with {@link #startClass(CharSequence, int, int)},
+ * followed by the events of all of its values and subclasses
+ * and closed with {@link #endClass(int, int)}.
+ * Values and classes with zero indention belong to the
+ * {@link SJClass#DEFAULT default} class, which is never
+ * opened or closed explicitly.
+ * <p>The depth of an event is its indention level: zero for
+ * the contents of the default class, one for the contents of a
+ * top-level class and so on.
+ * <p>The {@link CharSequence CharSequences} passed to the handler
+ * are only guaranteed to be valid for the duration of the callback,
+ * handlers have to copy (e.g. <code>toString()</code>) them in order
+ * to keep them.
+ * <p>All methods do nothing by default, so that implementations only
+ * need to override the events they are interested in.
+ */
+public interface SanjoHandler {
+
+    /**
+     * Called once before the first line is read.
+     */
+    default void startDocument() { }
+
+    /**
+     * Called for every class definition.
+     *
+     * @param name the name of the class without its prefix
+     * @param depth the indention level of the class definition
+     * @param lineNumber the line of the class definition, starting at 1
+     */
+    default void startClass(final CharSequence name, final int depth, final int lineNumber) { }
+
+    /**
+     * Called for every key-value pair.
+     * <p>List values are passed unsplit, splitting
+     * them at the {@link MetaInf#getListSeparator() list separator}
+     * is up to the handler.
+     *
+     * @param key the key without its prefix and without the list suffix
+     * @param value the raw string after the assignment operator
+     * @param list whether or not the key carries the list suffix
+     * @param depth the indention level of the key-value pair
+     * @param lineNumber the line of the key-value pair, starting at 1
+     */
+    default void value(final CharSequence key, final CharSequence value, final boolean list, final int depth, final int lineNumber) { }
+
+    /**
+     * Called when a leading {@link SJClass#META meta} class is
+     * closed, before the first line after it. The lines after
+     * the meta class are read in the format it specifies.
+     *
+     * @param metaInf the format of the rest of the document
+     * @param lineNumber the line that caused the meta class to be closed
+     * @see SanjoEventReader#setReadMeta(boolean)
+     */
+    default void meta(final MetaInf metaInf, final int lineNumber) { }
+
+    /**
+     * Called when a class is closed, i.e. when a line
+     * with an indention that is smaller than the
+     * class' contents' is read or the document ends.
+     *
+     * @param depth the indention level of the closed class' definition
+     * @param lineNumber the line that caused the class to be closed
+     */
+    default void endClass(final int depth, final int lineNumber) { }
+
+    /**
+     * Called once after the last line is read
+     * and all classes have been closed.
+     */
+    default void endDocument() { }
+}
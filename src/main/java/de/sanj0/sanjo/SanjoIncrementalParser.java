@@ -0,0 +1,537 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.util.*;
+
+/**
+ * Keeps a parsed document together with its lines and
+ * reparses only the part of it that is affected by an edit.
+ * <p>Every line with zero indention that defines a class or
+ * a key-value pair closes all open classes, so the document
+ * consists of independent blocks that start at such lines:
+ * a top-level class with all of its contents, or a single
+ * top-level value. An {@link #edit(int, int, List) edit} only
+ * reparses the blocks that contain edited lines, replaces their
+ * classes and values in the tree and returns the {@link SJDiff
+ * difference} between the old and the new blocks.
+ * <p>Reparsing the edited blocks is the dominant cost of an edit,
+ * but it isn't the only one: the lines and block offsets are kept
+ * in arrays, so every edit also shifts the ones after it. That
+ * takes time linear in the number of lines of the document, but
+ * it is a plain memory move that is far cheaper than parsing.
+ * Edits of top-level values whose keys are also defined outside
+ * the edited blocks, or that change the order of the keys, also
+ * read the first line of every top-level value block. Edits that
+ * change the format specified by a leading {@link SJClass#META meta}
+ * class reparse the whole document.
+ * <p>The tree is modified in place. The parser is not thread-safe.
+ *
+ * @see SanjoFile#incrementalParser()
+ */
+public class SanjoIncrementalParser {
+
+    private static final int NO_BLOCK = 0;
+    private static final int CLASS_BLOCK = 1;
+    private static final int VALUE_BLOCK = 2;
+
+    private final SanjoFile file;
+    private final List<String> lines;
+    private final SJClass root;
+    /**
+     * The first line of every block
+     */
+    private int[] blockStarts;
+    /**
+     * Whether or not a block is a single top-level value
+     */
+    private boolean[] valueBlocks;
+    /**
+     * Whether or not a value block is the
+     * first definition of its key
+     */
+    private boolean[] firstDefinitions;
+    private int blockCount;
+    /**
+     * The number of value blocks of every top-level key
+     */
+    private final Map<String, Integer> definitionCounts = new HashMap<>();
+
+    /**
+     * Parses the given lines.
+     *
+     * @param lines the lines of the document
+     * @throws SanjoParser.SanjoParserError if the lines are not valid sanjo data
+     */
+    public SanjoIncrementalParser(final List<String> lines) {
+        this(null, lines);
+    }
+
+    SanjoIncrementalParser(final SanjoFile file, final List<String> lines) {
+        this.file = file;
+        this.lines = new ArrayList<>(lines);
+        root = new SanjoParser(file).parse(this.lines);
+        blockStarts = new int[16];
+        valueBlocks = new boolean[16];
+        firstDefinitions = new boolean[16];
+        scanBlocks(this.lines, 0);
+        // share the keys of the tree instead of copying every key
+        for (final String key : root.getValues().keySet()) {
+            definitionCounts.put(key, 0);
+        }
+        for (int i = 0; i < blockCount; i++) {
+            if (valueBlocks[i]) {
+                firstDefinitions[i] = definitionCounts.merge(key(this.lines.get(blockStarts[i])), 1, Integer::sum) == 1;
+            }
+        }
+    }
+
+    /**
+     * Replaces lines of the document and updates the tree.
+     * <p>If the edited document is not valid sanjo data, neither
+     * the lines nor the tree are modified.
+     *
+     * @param fromLine the index of the first replaced line
+     * @param removedLines the number of replaced lines
+     * @param insertedLines the lines to insert instead
+     * @return the changes to the tree
+     * @throws SanjoParser.SanjoParserError if the edited document is not valid sanjo data
+     */
+    public SJDiff edit(final int fromLine, final int removedLines, final List<String> insertedLines) {
+        if (fromLine < 0 || removedLines < 0 || fromLine + removedLines > lines.size()) {
+            throw new IndexOutOfBoundsException("lines " + fromLine + " to " + (fromLine + removedLines)
+                    + " of " + lines.size());
+        }
+
+        // the blocks that contain a replaced line and the block the
+        // inserted lines are appended to, which is the one of the line
+        // before the edit because indented lines continue the block
+        // before them
+        final int first = fromLine == 0 ? -1 : blockOf(fromLine - 1);
+        int last = removedLines == 0 ? first : Math.max(first, blockOf(fromLine + removedLines - 1));
+        final int firstBlock = first == -1 ? 0 : first;
+        final int regionStart = first == -1 ? 0 : blockStarts[first];
+        int regionEnd = last + 1 < blockCount ? blockStarts[last + 1] : lines.size();
+
+        List<String> region = region(regionStart, regionEnd, fromLine, removedLines, insertedLines);
+        SJClass parsed = parse(region, regionStart);
+        if (regionStart == 0 && !parsed.getMetaInf().equals(root.getMetaInf())) {
+            // the meta class changed the format of the whole document
+            last = blockCount - 1;
+            regionEnd = lines.size();
+            region = region(regionStart, regionEnd, fromLine, removedLines, insertedLines);
+            parsed = parse(region, regionStart);
+        }
+
+        // the top-level classes and values of the old blocks
+        int firstChild = 0;
+        for (int i = 0; i < firstBlock; i++) {
+            if (!valueBlocks[i]) {
+                firstChild++;
+            }
+        }
+        int childCount = 0;
+        final List<String> removedKeys = new ArrayList<>();
+        for (int i = firstBlock; i <= last; i++) {
+            if (valueBlocks[i]) {
+                removedKeys.add(key(lines.get(blockStarts[i])));
+            } else {
+                childCount++;
+            }
+        }
+        final Set<String> keys = new LinkedHashSet<>(parsed.getValues().keySet());
+        keys.addAll(removedKeys);
+
+        final List<SJDiff.Change> changes = new ArrayList<>();
+        final List<SJClass> children = root.getChildren().subList(firstChild, firstChild + childCount);
+        SJDiff.compareChildren("", new ArrayList<>(children), parsed.getChildren(), changes);
+
+        lines.subList(regionStart, regionEnd).clear();
+        lines.addAll(regionStart, region);
+        final int regionBlocks = updateBlocks(firstBlock, last, regionStart, region);
+
+        children.clear();
+        for (final SJClass child : parsed.getChildren()) {
+            child.parentClass = root;
+        }
+        root.getChildren().addAll(firstChild, parsed.getChildren());
+        root.setMetaInf(parsed.getMetaInf());
+
+        if (!keys.isEmpty()) {
+            final Map<String, SJValue> before = new LinkedHashMap<>();
+            for (final String key : keys) {
+                final SJValue value = root.getValues().get(key);
+                if (value != null) {
+                    before.put(key, value);
+                }
+            }
+            updateValues(keys, removedKeys, parsed.getValues(), firstBlock, firstBlock + regionBlocks);
+            final Map<String, SJValue> after = new LinkedHashMap<>();
+            for (final String key : keys) {
+                final SJValue value = root.getValues().get(key);
+                if (value != null) {
+                    after.put(key, value);
+                }
+            }
+            SJDiff.compareValues("", before, after, changes);
+        }
+
+        return new SJDiff(changes);
+    }
+
+    /**
+     * Returns the lines from the given start to the given end
+     * of the document with the given edit applied.
+     */
+    private List<String> region(final int regionStart, final int regionEnd, final int fromLine,
+                                final int removedLines, final List<String> insertedLines) {
+        final List<String> region = new ArrayList<>(regionEnd - regionStart - removedLines + insertedLines.size());
+        region.addAll(lines.subList(regionStart, fromLine));
+        region.addAll(insertedLines);
+        region.addAll(lines.subList(fromLine + removedLines, regionEnd));
+        return region;
+    }
+
+    /**
+     * Parses the given lines that start at the given line of the
+     * document. Only lines at the start of the document can contain
+     * a meta class, all others are parsed in the current format.
+     */
+    private SJClass parse(final List<String> region, final int regionStart) {
+        final SanjoParser parser = new SanjoParser(file, regionStart == 0 ? MetaInf.DEFAULT_META_INF : root.getMetaInf());
+        parser.setReadMeta(regionStart == 0);
+        try {
+            return parser.parse(region);
+        } catch (final SanjoParser.SanjoParserError e) {
+            throw e.withLineOffset(regionStart);
+        }
+    }
+
+    /**
+     * Replaces the document with the given lines. Only the
+     * lines between the first and the last line that differ
+     * from the current document are reparsed.
+     *
+     * @param newLines the new lines of the document
+     * @return the changes to the tree
+     * @throws SanjoParser.SanjoParserError if the lines are not valid sanjo data
+     */
+    public SJDiff update(final List<String> newLines) {
+        final int common = Math.min(lines.size(), newLines.size());
+        int prefix = 0;
+        while (prefix < common && lines.get(prefix).equals(newLines.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < common - prefix
+                && lines.get(lines.size() - 1 - suffix).equals(newLines.get(newLines.size() - 1 - suffix))) {
+            suffix++;
+        }
+        return edit(prefix, lines.size() - prefix - suffix, newLines.subList(prefix, newLines.size() - suffix));
+    }
+
+    /**
+     * Sets the top-level values with the given keys to
+     * their last definition in the document and removes the
+     * ones that aren't defined anymore.
+     * <p>Like in a full parse, the values are kept in the order
+     * of the first definition of their keys: values are replaced
+     * in place unless the edit changed that order, in which
+     * case the values are reinserted in document order.
+     * <p>If the edited keys are only defined in the reparsed blocks
+     * and in the same order as before, the values of the reparsed
+     * blocks are used directly. Otherwise the value blocks of all
+     * keys are scanned, but only the ones of the given keys are
+     * reparsed: the first definitions of all other keys are outside
+     * the edited blocks and therefore unchanged.
+     *
+     * @param keys the keys defined in the old or the new blocks
+     * @param removedKeys the keys of the old value blocks
+     * @param regionValues the values of the new blocks
+     * @param regionFirst the index of the first new block
+     * @param regionEnd the index after the last new block
+     */
+    private void updateValues(final Set<String> keys, final List<String> removedKeys,
+                              final Map<String, SJValue> regionValues, final int regionFirst, final int regionEnd) {
+        for (final String key : removedKeys) {
+            definitionCounts.merge(key, -1, (count, delta) -> count + delta == 0 ? null : count + delta);
+        }
+        int regionDefinitions = 0;
+        for (int i = regionFirst; i < regionEnd; i++) {
+            if (valueBlocks[i]) {
+                final String key = key(lines.get(blockStarts[i]));
+                firstDefinitions[i] = definitionCounts.merge(key, 1, Integer::sum) == 1;
+                regionDefinitions++;
+            }
+        }
+        if (isLocal(removedKeys, regionValues.keySet(), regionDefinitions)) {
+            final Map<String, SJValue> values = root.getValues();
+            for (final Map.Entry<String, SJValue> entry : regionValues.entrySet()) {
+                values.put(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+
+        final String[] edited = keys.toArray(new String[0]);
+        final boolean[] defined = new boolean[edited.length];
+        final int[] lastDefinitions = new int[edited.length];
+        for (int i = 0; i < blockCount; i++) {
+            if (valueBlocks[i]) {
+                final int key = editedKey(lines.get(blockStarts[i]), edited, keys);
+                if (key != -1) {
+                    firstDefinitions[i] = !defined[key];
+                    defined[key] = true;
+                    lastDefinitions[key] = blockStarts[i];
+                }
+            }
+        }
+        final List<String> definitions = new ArrayList<>(edited.length);
+        for (int key = 0; key < edited.length; key++) {
+            if (defined[key]) {
+                definitions.add(lines.get(lastDefinitions[key]));
+            }
+        }
+        final SanjoParser parser = new SanjoParser(file, root.getMetaInf());
+        parser.setReadMeta(false);
+        final Map<String, SJValue> parsed = parser.parse(definitions).getValues();
+
+        final Map<String, SJValue> values = root.getValues();
+        for (int key = 0; key < edited.length; key++) {
+            if (defined[key]) {
+                values.put(edited[key], parsed.get(edited[key]));
+            } else {
+                values.remove(edited[key]);
+            }
+        }
+        if (!inDocumentOrder(values.keySet())) {
+            final Map<String, SJValue> ordered = new LinkedHashMap<>();
+            for (int i = 0; i < blockCount; i++) {
+                if (valueBlocks[i] && firstDefinitions[i]) {
+                    final String key = key(lines.get(blockStarts[i]));
+                    ordered.put(key, values.get(key));
+                }
+            }
+            values.clear();
+            values.putAll(ordered);
+        }
+    }
+
+    /**
+     * Returns whether or not an edit of top-level values is
+     * local to the reparsed blocks: the old and the new blocks
+     * define the same keys in the same order, and none of them
+     * is defined outside of the blocks.
+     */
+    private boolean isLocal(final List<String> removedKeys, final Set<String> regionKeys, final int regionDefinitions) {
+        if (!new ArrayList<>(new LinkedHashSet<>(removedKeys)).equals(new ArrayList<>(regionKeys))) {
+            return false;
+        }
+        // every count includes the definitions in the blocks
+        int definitions = 0;
+        for (final String key : regionKeys) {
+            definitions += definitionCounts.get(key);
+        }
+        return definitions == regionDefinitions;
+    }
+
+    /**
+     * Returns whether or not the given keys are in the
+     * order of the first definitions in the document.
+     */
+    private boolean inDocumentOrder(final Set<String> keys) {
+        final Iterator<String> iterator = keys.iterator();
+        for (int i = 0; i < blockCount; i++) {
+            if (valueBlocks[i] && firstDefinitions[i]
+                    && (!iterator.hasNext() || !definesKey(lines.get(blockStarts[i]), iterator.next()))) {
+                return false;
+            }
+        }
+        return !iterator.hasNext();
+    }
+
+    /**
+     * Returns the index of the key of the given line in the given
+     * keys or -1 if it isn't one of them. Few keys are compared
+     * directly, so that the key of the line doesn't need to be copied.
+     */
+    private int editedKey(final String line, final String[] edited, final Set<String> keys) {
+        if (edited.length <= 4) {
+            for (int key = 0; key < edited.length; key++) {
+                if (definesKey(line, edited[key])) {
+                    return key;
+                }
+            }
+            return -1;
+        }
+        final String key = key(line);
+        if (!keys.contains(key)) {
+            return -1;
+        }
+        for (int i = 0; i < edited.length; i++) {
+            if (edited[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether or not the given line
+     * defines a value with the given key.
+     */
+    private boolean definesKey(final String line, final String key) {
+        return keyEnd(line) == key.length() + 1 && line.startsWith(key, 1);
+    }
+
+    /**
+     * Returns the key of a line with zero indention that
+     * defines a value, without the list suffix.
+     */
+    private String key(final String line) {
+        return line.substring(1, keyEnd(line));
+    }
+
+    private int keyEnd(final String line) {
+        int end = 1;
+        while (end < line.length() && line.charAt(end) != SanjoEventReader.ASSIGNMENT_CHAR
+                && line.charAt(end) != SanjoEventReader.ASSIGNMENT_CHAR_COL) {
+            end++;
+        }
+        final String listSuffix = root.getMetaInf().getListSuffix();
+        if (line.startsWith(listSuffix, end - listSuffix.length()) && end - listSuffix.length() >= 1) {
+            end -= listSuffix.length();
+        }
+        return end;
+    }
+
+    /**
+     * Replaces the blocks first to last with the blocks of
+     * the given reparsed region and returns their number.
+     */
+    private int updateBlocks(final int first, final int last, final int regionStart, final List<String> region) {
+        final int tail = last + 1;
+        final int tailLength = blockCount - tail;
+        final int shift = regionStart + region.size() - (tailLength == 0 ? 0 : blockStarts[tail]);
+        int regionBlocks = 0;
+        for (final String line : region) {
+            if (blockType(line) != NO_BLOCK) {
+                regionBlocks++;
+            }
+        }
+        // move the blocks after the region in place
+        ensureCapacity(first + regionBlocks + tailLength);
+        System.arraycopy(blockStarts, tail, blockStarts, first + regionBlocks, tailLength);
+        System.arraycopy(valueBlocks, tail, valueBlocks, first + regionBlocks, tailLength);
+        System.arraycopy(firstDefinitions, tail, firstDefinitions, first + regionBlocks, tailLength);
+        if (shift != 0) {
+            for (int i = first + regionBlocks; i < first + regionBlocks + tailLength; i++) {
+                blockStarts[i] += shift;
+            }
+        }
+        int block = first;
+        for (int i = 0; i < region.size(); i++) {
+            final int type = blockType(region.get(i));
+            if (type != NO_BLOCK) {
+                blockStarts[block] = regionStart + i;
+                valueBlocks[block] = type == VALUE_BLOCK;
+                firstDefinitions[block] = false;
+                block++;
+            }
+        }
+        blockCount = first + regionBlocks + tailLength;
+        return regionBlocks;
+    }
+
+    private void scanBlocks(final List<String> lines, final int offset) {
+        for (int i = 0; i < lines.size(); i++) {
+            final int type = blockType(lines.get(i));
+            if (type != NO_BLOCK) {
+                ensureCapacity(blockCount + 1);
+                blockStarts[blockCount] = offset + i;
+                valueBlocks[blockCount] = type == VALUE_BLOCK;
+                blockCount++;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the given line starts a class block,
+     * a value block or no block at all.
+     */
+    private static int blockType(final String line) {
+        if (line.isEmpty()) {
+            return NO_BLOCK;
+        }
+        final char c = line.charAt(0);
+        if (c == SanjoParser.CLASS_PREFIX || c == SanjoParser.CLASS_PREFIX_GT) {
+            return CLASS_BLOCK;
+        } else if (c == SanjoParser.KEY_PREFIX || c == SanjoParser.KEY_PREFIX_QM) {
+            return VALUE_BLOCK;
+        }
+        return NO_BLOCK;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > blockStarts.length) {
+            final int length = Math.max(capacity, blockStarts.length * 2);
+            blockStarts = Arrays.copyOf(blockStarts, length);
+            valueBlocks = Arrays.copyOf(valueBlocks, length);
+            firstDefinitions = Arrays.copyOf(firstDefinitions, length);
+        }
+    }
+
+    /**
+     * Returns the index of the block that contains the
+     * given line or -1 if it is before the first block.
+     */
+    private int blockOf(final int line) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (blockStarts[mid] <= line) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns the default class of the parsed
+     * document, which is modified by every edit.
+     *
+     * @return the default class of the parsed document
+     */
+    public SJClass getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the current lines of the document.
+     *
+     * @return an unmodifiable view of the lines of the document
+     */
+    public List<String> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public SanjoFile getFile() {
+        return file;
+    }
+}
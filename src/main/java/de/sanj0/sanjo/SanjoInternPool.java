@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+/**
+ * A bounded pool of Strings that lets a parser reuse one
+ * instance for every occurrence of the same key or class name.
+ * <p>The pool is a direct-mapped cache: every String has exactly
+ * one slot, chosen by its hash, and a String that maps to an occupied
+ * slot replaces the one in it. The pool therefore never grows beyond
+ * its capacity and never needs to be cleared, at the cost of a few
+ * duplicates when different names collide.
+ * <p>A pool can be shared by any number of parsers and threads.
+ * Slots are read and written without synchronization, which is safe
+ * because Strings are immutable: a racing thread at worst misses the
+ * pooled instance and creates its own.
+ *
+ * @see SanjoParser#setInternPool(SanjoInternPool)
+ */
+public final class SanjoInternPool {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    /**
+     * The maximum length of values that are interned
+     * with {@link SanjoParser#setInternValues(boolean)}
+     */
+    public static final int MAX_VALUE_LENGTH = 16;
+
+    private final String[] table;
+    private final int mask;
+
+    public SanjoInternPool(final int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        table = new String[size];
+        mask = size - 1;
+    }
+
+    public SanjoInternPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns a String with the given chars, which is the
+     * same instance as the one returned for the last equal
+     * chars that were interned in the same slot.
+     *
+     * @param chars the chars of the String
+     * @return a String with the given chars
+     */
+    public String intern(final CharSequence chars) {
+        final int length = chars.length();
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        final int slot = (hash ^ (hash >>> 16)) & mask;
+        final String pooled = table[slot];
+        if (pooled != null && pooled.hashCode() == hash && contentEquals(pooled, chars)) {
+            return pooled;
+        }
+        final String s = CharSlice.substring(chars, 0, length);
+        table[slot] = s;
+        return s;
+    }
+
+    private static boolean contentEquals(final String s, final CharSequence chars) {
+        if (s.length() != chars.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) != chars.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getCapacity() {
+        return table.length;
+    }
+}
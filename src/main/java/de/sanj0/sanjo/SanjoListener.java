@@ -0,0 +1,50 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+/**
+ * Receives measurements of parses and lookups once it is
+ * installed through {@link SanjoMetrics#setListener(SanjoListener)}.
+ * <p>Listeners are called synchronously on the thread that
+ * parsed or looked up, possibly from many threads at once,
+ * so implementations have to be thread-safe and fast.
+ * <p>All methods do nothing by default, so that implementations only
+ * need to override the events they are interested in.
+ *
+ * @see SanjoMetrics
+ */
+public interface SanjoListener {
+
+    /**
+     * Called after a document was parsed successfully by a
+     * {@link SanjoParser} or {@link SanjoFile#parseParallel(java.util.concurrent.ForkJoinPool)
+     * in parallel}.
+     *
+     * @param stats the measurements of the parse
+     */
+    default void parsed(final SanjoMetrics.ParseStats stats) { }
+
+    /**
+     * Called after an {@link SJAddress} was resolved
+     * against a tree or a {@link SJClassView view}.
+     *
+     * @param address the address that was resolved
+     * @param found whether or not the target of the address exists
+     * @param nanos the time the lookup took in nanoseconds
+     */
+    default void lookup(final SJAddress address, final boolean found, final long nanos) { }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Parses many {@link SanjoFile files} concurrently and
+ * merges them into a single tree.
+ * <p>Files are merged in the order they are given in, so that later
+ * files override earlier ones, e.g. a base configuration followed by
+ * overlays for an environment and a tenant:
+ * <pre>
+ * SJClass config = new SanjoLoader().load(base, production, tenant);
+ * </pre>
+ * Values of a later file replace the values with the same key,
+ * classes are merged with the class of the same name (the n-th class
+ * of a name with the n-th class of that name) and added if there is
+ * none. Files that don't exist are empty.
+ * <p>Every file is parsed as a separate task on the {@link
+ * #setExecutor(Executor) executor} of the loader, which is a
+ * virtual thread per task where available (Java 21 and newer) and the
+ * {@link ForkJoinPool#commonPool() common pool} otherwise. All files
+ * share one {@link SanjoInternPool}, so names are deduplicated
+ * across files.
+ * <p>A loader can be used by several threads as long as its
+ * settings aren't changed.
+ */
+public class SanjoLoader {
+
+    private static final Executor DEFAULT_EXECUTOR = virtualThreadExecutor();
+
+    private Executor executor = DEFAULT_EXECUTOR;
+    private boolean lazy = false;
+
+    /**
+     * Parses the given files and merges them in the given order.
+     *
+     * @param files the files to load, later files override earlier ones
+     * @return the merged default class of the files
+     * @throws IOException if something goes wrong reading a file
+     * @throws SanjoParser.SanjoParserError if a file is not valid sanjo data
+     */
+    public SJClass load(final List<? extends SanjoFile> files) throws IOException {
+        final List<Future<SJClass>> tasks = submit(files);
+        if (tasks.isEmpty()) {
+            return SJClass.defaultClass();
+        }
+        boolean joined = false;
+        try {
+            // every tree is merged as soon as it is parsed, so that
+            // the overridden parts of it don't stay reachable
+            final SJClass root = join(tasks.get(0), files.get(0));
+            for (int i = 1; i < tasks.size(); i++) {
+                final SJClass tree = join(tasks.get(i), files.get(i));
+                tasks.set(i, null);
+                merge(root, tree);
+            }
+            joined = true;
+            return root;
+        } finally {
+            if (!joined) {
+                cancel(tasks);
+            }
+        }
+    }
+
+    /**
+     * Parses the given files and merges them in the given order.
+     *
+     * @param files the files to load, later files override earlier ones
+     * @return the merged default class of the files
+     * @throws IOException if something goes wrong reading a file
+     * @throws SanjoParser.SanjoParserError if a file is not valid sanjo data
+     * @see #load(List)
+     */
+    public SJClass load(final SanjoFile... files) throws IOException {
+        return load(Arrays.asList(files));
+    }
+
+    /**
+     * Parses the given files concurrently without merging them.
+     * <p>If several files fail to parse, the
+     * error of the first of them is thrown.
+     *
+     * @param files the files to parse
+     * @return the default class of every file, in the given order
+     * @throws IOException if something goes wrong reading a file
+     * @throws SanjoParser.SanjoParserError if a file is not valid sanjo data
+     */
+    public List<SJClass> parseAll(final List<? extends SanjoFile> files) throws IOException {
+        final List<Future<SJClass>> tasks = submit(files);
+        final List<SJClass> trees = new ArrayList<>(files.size());
+        boolean joined = false;
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                trees.add(join(tasks.get(i), files.get(i)));
+            }
+            joined = true;
+            return trees;
+        } finally {
+            if (!joined) {
+                cancel(tasks);
+            }
+        }
+    }
+
+    private List<Future<SJClass>> submit(final List<? extends SanjoFile> files) {
+        final SanjoInternPool internPool = new SanjoInternPool();
+        final List<Future<SJClass>> tasks = new ArrayList<>(files.size());
+        boolean submitted = false;
+        try {
+            for (final SanjoFile file : files) {
+                final FutureTask<SJClass> task = new FutureTask<>(() -> parse(file, internPool));
+                executor.execute(task);
+                tasks.add(task);
+            }
+            submitted = true;
+            return tasks;
+        } finally {
+            if (!submitted) {
+                cancel(tasks);
+            }
+        }
+    }
+
+    /**
+     * Cancels the tasks that haven't completed yet, so that
+     * no files are parsed after the load has failed.
+     */
+    private static void cancel(final List<Future<SJClass>> tasks) {
+        for (final Future<SJClass> task : tasks) {
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    private SJClass parse(final SanjoFile file, final SanjoInternPool internPool) throws IOException {
+        final SanjoParser parser = file.parser();
+        parser.setLazy(lazy);
+        parser.setInternPool(internPool);
+        return parser.parse();
+    }
+
+    private static SJClass join(final Future<SJClass> task, final SanjoFile file) throws IOException {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while parsing " + file, e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Merges the values and classes of the given overlay into
+     * the given class. Values of the overlay replace the values with
+     * the same key, the n-th subclass of a name of the overlay is
+     * merged into the n-th subclass of that name of the target or
+     * added to the target if it has no such subclass.
+     * <p>The overlay is consumed: its values and classes are moved
+     * into the target instead of being copied.
+     *
+     * @param target the class to merge into
+     * @param overlay the class whose values and classes override the target's
+     * @return the target
+     */
+    public static SJClass merge(final SJClass target, final SJClass overlay) {
+        for (final SJValue value : overlay.getValues().values()) {
+            target.getValues().put(value.getKey(), value);
+        }
+        if (overlay.getChildren().isEmpty()) {
+            return target;
+        }
+        // the children of the target by name, in order
+        final Map<String, Deque<SJClass>> candidates = new HashMap<>();
+        for (final SJClass child : target.getChildren()) {
+            candidates.computeIfAbsent(child.getName(), name -> new ArrayDeque<>()).add(child);
+        }
+        for (final SJClass child : overlay.getChildren()) {
+            final Deque<SJClass> sameName = candidates.get(child.getName());
+            final SJClass match = sameName == null ? null : sameName.poll();
+            if (match == null) {
+                target.addChild(child);
+            } else {
+                merge(match, child);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for
+     * every task or the {@link ForkJoinPool#commonPool() common pool}
+     * on versions without virtual threads.
+     */
+    private static Executor virtualThreadExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) factory.invoke(null);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            return ForkJoinPool.commonPool();
+        }
+    }
+
+    /**
+     * Returns the executor files are parsed on by default:
+     * a virtual thread per task where available and the
+     * {@link ForkJoinPool#commonPool() common pool} otherwise.
+     *
+     * @return the default executor of loaders
+     */
+    public static Executor defaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Sets the executor to parse files on.
+     *
+     * @param executor the executor to parse files on
+     */
+    public void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets whether or not files should be {@link
+     * SanjoParser#setLazy(boolean) parsed lazily}.
+     *
+     * @param lazy whether or not files should be parsed lazily
+     */
+    public void setLazy(final boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+}
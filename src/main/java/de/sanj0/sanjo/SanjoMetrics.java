@@ -0,0 +1,487 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The instrumentation hook of sanjo and a {@link SanjoListener}
+ * that aggregates what it receives: parse times, throughput and
+ * tree shapes as well as lookup hits, misses and latencies.
+ * <p>Instrumentation is disabled until a listener is installed
+ * with {@link #setListener(SanjoListener)}, parsers and addresses
+ * then only read a single volatile field. An instance of this class
+ * can be installed through {@link #install()} and published
+ * through JMX with {@link #register()}:
+ * <pre>
+ * final SanjoMetrics metrics = new SanjoMetrics().install();
+ * metrics.register();
+ * </pre>
+ */
+public class SanjoMetrics implements SanjoListener, SanjoMetricsMBean {
+
+    /**
+     * The name {@link #register()} registers metrics with
+     */
+    public static final String OBJECT_NAME = "de.sanj0.sanjo:type=SanjoMetrics";
+
+    static volatile SanjoListener listener;
+
+    private final LongAdder parseCount = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder parsedBytes = new LongAdder();
+    private final LongAdder parsedLines = new LongAdder();
+    private final LongAdder parsedClasses = new LongAdder();
+    private final LongAdder parsedValues = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final Histogram parseTimes = new Histogram();
+    private final LongAdder lookupHits = new LongAdder();
+    private final Histogram lookupTimes = new Histogram();
+    private volatile ParseStats lastParse;
+
+    /**
+     * Installs the given listener, which is then called
+     * after every parse and lookup, replacing the current one.
+     *
+     * @param listener the listener to install or <code>null</code>
+     *                 to disable instrumentation
+     */
+    public static void setListener(final SanjoListener listener) {
+        SanjoMetrics.listener = listener;
+    }
+
+    /**
+     * Returns the installed listener.
+     *
+     * @return the installed listener or <code>null</code>
+     * if instrumentation is disabled
+     */
+    public static SanjoListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Installs these metrics as the {@link #setListener(SanjoListener) listener}.
+     *
+     * @return these metrics
+     */
+    public SanjoMetrics install() {
+        setListener(this);
+        return this;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean
+     * server under the name {@link #OBJECT_NAME}.
+     *
+     * @return the name of the registered MBean
+     * @throws JMException if the MBean can't be registered, e.g.
+     * because other metrics are already registered
+     */
+    public ObjectName register() throws JMException {
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        return name;
+    }
+
+    /**
+     * Unregisters the metrics registered under the name
+     * {@link #OBJECT_NAME} from the platform MBean server.
+     *
+     * @throws JMException if there are no registered metrics
+     */
+    public void unregister() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+    }
+
+    @Override
+    public void parsed(final ParseStats stats) {
+        parseCount.increment();
+        parseNanos.add(stats.nanos);
+        parsedBytes.add(stats.size);
+        parsedLines.add(stats.lines);
+        parsedClasses.add(stats.classes);
+        parsedValues.add(stats.values);
+        maxDepth.accumulate(stats.maxDepth);
+        parseTimes.record(stats.nanos);
+        lastParse = stats;
+    }
+
+    @Override
+    public void lookup(final SJAddress address, final boolean found, final long nanos) {
+        if (found) {
+            lookupHits.increment();
+        }
+        lookupTimes.record(nanos);
+    }
+
+    /**
+     * Returns the measurements of the last parse.
+     *
+     * @return the measurements of the last parse or <code>null</code>
+     */
+    public ParseStats getLastParse() {
+        return lastParse;
+    }
+
+    public Histogram getParseTimes() {
+        return parseTimes;
+    }
+
+    public Histogram getLookupTimes() {
+        return lookupTimes;
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseCount.sum();
+    }
+
+    @Override
+    public double getParseTimeMillis() {
+        return parseNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getMeanParseMillis() {
+        return parseTimes.getMean() / 1e6;
+    }
+
+    @Override
+    public double getParseP99Millis() {
+        return parseTimes.getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getMaxParseMillis() {
+        return parseTimes.getMax() / 1e6;
+    }
+
+    @Override
+    public long getParsedBytes() {
+        return parsedBytes.sum();
+    }
+
+    @Override
+    public long getParsedLines() {
+        return parsedLines.sum();
+    }
+
+    @Override
+    public long getParsedClasses() {
+        return parsedClasses.sum();
+    }
+
+    @Override
+    public long getParsedValues() {
+        return parsedValues.sum();
+    }
+
+    @Override
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return perSecond(parsedBytes.sum(), parseNanos.sum());
+    }
+
+    @Override
+    public double getLinesPerSecond() {
+        return perSecond(parsedLines.sum(), parseNanos.sum());
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookupTimes.getCount();
+    }
+
+    @Override
+    public long getLookupHits() {
+        return lookupHits.sum();
+    }
+
+    @Override
+    public long getLookupMisses() {
+        return Math.max(0, lookupTimes.getCount() - lookupHits.sum());
+    }
+
+    @Override
+    public double getLookupHitRatio() {
+        final long count = lookupTimes.getCount();
+        return count == 0 ? 0 : Math.min(1, (double) lookupHits.sum() / count);
+    }
+
+    @Override
+    public double getMeanLookupNanos() {
+        return lookupTimes.getMean();
+    }
+
+    @Override
+    public long getLookupP50Nanos() {
+        return lookupTimes.getPercentile(50);
+    }
+
+    @Override
+    public long getLookupP99Nanos() {
+        return lookupTimes.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxLookupNanos() {
+        return lookupTimes.getMax();
+    }
+
+    /**
+     * Resets all measurements. Measurements that are
+     * recorded concurrently may be partially lost.
+     */
+    @Override
+    public void reset() {
+        parseCount.reset();
+        parseNanos.reset();
+        parsedBytes.reset();
+        parsedLines.reset();
+        parsedClasses.reset();
+        parsedValues.reset();
+        maxDepth.reset();
+        parseTimes.reset();
+        lookupHits.reset();
+        lookupTimes.reset();
+        lastParse = null;
+    }
+
+    private static double perSecond(final long amount, final long nanos) {
+        return nanos == 0 ? 0 : amount * 1e9 / nanos;
+    }
+
+    /**
+     * The measurements of a single parse.
+     */
+    public static final class ParseStats {
+        private final SanjoFile file;
+        private final long size;
+        private final int lines;
+        private final int classes;
+        private final int values;
+        private final int maxDepth;
+        private final long nanos;
+
+        ParseStats(final SanjoFile file, final long size, final int lines,
+                   final int classes, final int values, final int maxDepth, final long nanos) {
+            this.file = file;
+            this.size = size;
+            this.lines = lines;
+            this.classes = classes;
+            this.values = values;
+            this.maxDepth = maxDepth;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the parsed file or <code>null</code>
+         * if other sanjo data was parsed
+         */
+        public SanjoFile getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the size of the parsed data: the length
+         * of the file in bytes for files and the number of
+         * chars for other sources.
+         *
+         * @return the size of the parsed data
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public int getLines() {
+            return lines;
+        }
+
+        /**
+         * @return the number of classes, not counting the default class
+         */
+        public int getClasses() {
+            return classes;
+        }
+
+        /**
+         * @return the number of key-value pairs
+         */
+        public int getValues() {
+            return values;
+        }
+
+        /**
+         * @return the number of levels of classes below the default class
+         */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double getBytesPerSecond() {
+            return perSecond(size, nanos);
+        }
+
+        public double getLinesPerSecond() {
+            return perSecond(lines, nanos);
+        }
+
+        @Override
+        public String toString() {
+            return "ParseStats{file=" + file + ", size=" + size + ", lines=" + lines + ", classes=" + classes
+                    + ", values=" + values + ", maxDepth=" + maxDepth + ", nanos=" + nanos + "}";
+        }
+    }
+
+    /**
+     * A concurrent histogram of non-negative durations with
+     * four buckets per power of two, so that percentiles are
+     * accurate to within 25%.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 2;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKET_COUNT = (64 - SUB_BITS) * SUB_COUNT;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(final long value) {
+            final long clamped = Math.max(0, value);
+            buckets[bucket(clamped)].increment();
+            count.increment();
+            sum.add(clamped);
+            max.accumulate(clamped);
+        }
+
+        void reset() {
+            for (final LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        static int bucket(final long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        /**
+         * @return the smallest value that falls into the given bucket
+         */
+        static long lowerBound(final int bucket) {
+            if (bucket < SUB_COUNT) {
+                return bucket;
+            }
+            final int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+            return (long) (SUB_COUNT + bucket % SUB_COUNT) << (exponent - SUB_BITS);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            final long count = getCount();
+            return count == 0 ? 0 : (double) getSum() / count;
+        }
+
+        /**
+         * Returns an upper bound of the given percentile
+         * of the recorded values.
+         *
+         * @param percentile the percentile between 0 and 100
+         * @return the upper bound of the bucket that contains the
+         * percentile or 0 if nothing was recorded
+         */
+        public long getPercentile(final double percentile) {
+            final long[] counts = getBucketCounts();
+            long total = 0;
+            for (final long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    final long upperBound = i == counts.length - 1 ? Long.MAX_VALUE : lowerBound(i + 1) - 1;
+                    return Math.min(upperBound, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        /**
+         * Returns the number of recorded values in every bucket,
+         * bucket <code>i</code> holds the values from
+         * {@link #getBucketLowerBound(int) getBucketLowerBound(i)}
+         * until the lower bound of the next bucket.
+         *
+         * @return the number of recorded values in every bucket
+         */
+        public long[] getBucketCounts() {
+            final long[] counts = new long[buckets.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        public long getBucketLowerBound(final int bucket) {
+            return lowerBound(bucket);
+        }
+    }
+}
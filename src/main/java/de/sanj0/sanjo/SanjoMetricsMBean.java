@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+/**
+ * The JMX management interface of {@link SanjoMetrics}.
+ * Times are given in milliseconds for parses and in
+ * nanoseconds for lookups.
+ */
+public interface SanjoMetricsMBean {
+
+    long getParseCount();
+
+    double getParseTimeMillis();
+
+    double getMeanParseMillis();
+
+    double getParseP99Millis();
+
+    double getMaxParseMillis();
+
+    long getParsedBytes();
+
+    long getParsedLines();
+
+    long getParsedClasses();
+
+    long getParsedValues();
+
+    long getMaxDepth();
+
+    double getBytesPerSecond();
+
+    double getLinesPerSecond();
+
+    long getLookupCount();
+
+    long getLookupHits();
+
+    long getLookupMisses();
+
+    double getLookupHitRatio();
+
+    double getMeanLookupNanos();
+
+    long getLookupP50Nanos();
+
+    long getLookupP99Nanos();
+
+    long getMaxLookupNanos();
+
+    void reset();
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a (UTF-8) {@link SanjoFile} on a {@link ForkJoinPool}.
+ * <p>Every line with zero indention that defines a class or a
+ * key-value pair closes all open classes, so the file can be split
+ * at such lines into chunks that are parsed independently. The
+ * chunks are read from memory-mapped regions of the file and their
+ * top-level classes and values are then added to the default class
+ * in file order, which results in the same tree as the sequential
+ * {@link SanjoParser}.
+ * <p>A leading {@link SJClass#META meta} class is read before the
+ * chunks are parsed, so that every chunk is parsed in the format
+ * it specifies. Only the first chunk reads it as a meta class.
+ *
+ * @see SanjoFile#parseParallel(ForkJoinPool)
+ */
+final class SanjoParallelParser {
+
+    /**
+     * The minimum size of a chunk in bytes,
+     * smaller files are parsed as a single chunk
+     */
+    static final long MIN_CHUNK_SIZE = 1 << 20;
+    /**
+     * The size of the chunks is aimed at
+     * this size in bytes for large files
+     */
+    static final long MAX_CHUNK_SIZE = 1 << 26;
+    /**
+     * The number of chunks per thread of the pool,
+     * more chunks than threads even out the load
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 1 << 16;
+    private static final int MAPPING_SIZE = 1 << 28;
+
+    private final SanjoFile file;
+    private final ForkJoinPool pool;
+    /**
+     * Shared by all chunks, so that names are
+     * deduplicated across the whole file
+     */
+    private final SanjoInternPool internPool = new SanjoInternPool();
+
+    SanjoParallelParser(final SanjoFile file, final ForkJoinPool pool) {
+        this.file = file;
+        this.pool = pool;
+    }
+
+    SJClass parse() throws IOException {
+        final SanjoListener listener = SanjoMetrics.listener;
+        final long startTime = listener == null ? 0 : System.nanoTime();
+        final SJClass defaultClass = SJClass.defaultClass();
+        if (!file.exists()) {
+            return defaultClass;
+        }
+        int classCount = 0;
+        int valueCount = 0;
+        int maxDepth = 0;
+
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long[] boundaries = chunkBoundaries(channel);
+            final MetaInf metaInf = readMeta(channel, boundaries[1]);
+            defaultClass.setMetaInf(metaInf);
+            final List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(boundaries.length - 1);
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                final long start = boundaries[i];
+                final long end = boundaries[i + 1];
+                final boolean first = i == 0;
+                tasks.add(pool.submit(() -> parseChunk(channel, start, end, first ? MetaInf.DEFAULT_META_INF : metaInf, first)));
+            }
+
+            int lineOffset = 0;
+            boolean joined = false;
+            try {
+                for (final ForkJoinTask<Chunk> task : tasks) {
+                    final Chunk chunk = join(task, lineOffset);
+                    lineOffset += chunk.lineCount;
+                    classCount += chunk.classCount;
+                    valueCount += chunk.valueCount;
+                    maxDepth = Math.max(maxDepth, chunk.maxDepth);
+                    defaultClass.getValues().putAll(chunk.root.getValues());
+                    for (final SJClass child : chunk.root.getChildren()) {
+                        defaultClass.addChild(child);
+                    }
+                }
+                joined = true;
+            } finally {
+                if (!joined) {
+                    // don't parse the rest of a file that failed
+                    for (final ForkJoinTask<Chunk> task : tasks) {
+                        task.cancel(false);
+                    }
+                }
+            }
+            if (listener != null) {
+                listener.parsed(new SanjoMetrics.ParseStats(file, boundaries[boundaries.length - 1], lineOffset,
+                        classCount, valueCount, maxDepth, System.nanoTime() - startTime));
+            }
+        }
+
+        return defaultClass;
+    }
+
+    private Chunk join(final ForkJoinTask<Chunk> task, final int lineOffset) throws IOException {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while parsing " + file, e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SanjoParser.SanjoParserError) {
+                throw ((SanjoParser.SanjoParserError) cause).withLineOffset(lineOffset);
+            } else if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private Chunk parseChunk(final FileChannel channel, final long start, final long end,
+                             final MetaInf metaInf, final boolean readMeta) {
+        final SJClass root = SJClass.defaultClass();
+        final SanjoEventReader eventReader = new SanjoEventReader(metaInf, file);
+        eventReader.setReadMeta(readMeta);
+        final SJTreeBuilder builder = new SJTreeBuilder(root, metaInf, false, internPool, false, null);
+        try (final InputStream in = new MappedInputStream(channel, start, end)) {
+            eventReader.read(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()), builder);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Chunk(root, eventReader.getLineNumber(), builder);
+    }
+
+    /**
+     * Reads the format specified by a leading meta class in
+     * the first chunk, stopping at the first line after it.
+     *
+     * @return the format of the file
+     */
+    private MetaInf readMeta(final FileChannel channel, final long end) throws IOException {
+        final SanjoEventReader eventReader = new SanjoEventReader(MetaInf.DEFAULT_META_INF, file);
+        try (final InputStream in = new MappedInputStream(channel, 0, end)) {
+            eventReader.read(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()), new SanjoHandler() {
+                @Override
+                public void startClass(final CharSequence name, final int depth, final int lineNumber) {
+                    if (depth == 0 && !SJClass.META.contentEquals(name)) {
+                        eventReader.stop();
+                    }
+                }
+
+                @Override
+                public void value(final CharSequence key, final CharSequence value, final boolean list, final int depth, final int lineNumber) {
+                    if (depth == 0) {
+                        eventReader.stop();
+                    }
+                }
+
+                @Override
+                public void meta(final MetaInf metaInf, final int lineNumber) {
+                    eventReader.stop();
+                }
+            });
+        }
+        return eventReader.getMetaInf();
+    }
+
+    /**
+     * Splits the file into chunks of roughly equal size that
+     * start at lines with zero indention that define a class or
+     * a key-value pair.
+     *
+     * @return the start of every chunk followed by the size of the file
+     */
+    private long[] chunkBoundaries(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final long chunkCount = Math.max(1, Math.min(size / MIN_CHUNK_SIZE,
+                Math.max((long) pool.getParallelism() * CHUNKS_PER_THREAD, size / MAX_CHUNK_SIZE)));
+        final long chunkSize = size / chunkCount;
+        final List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        for (long i = 1; i < chunkCount; i++) {
+            final long boundary = nextBoundary(channel, Math.max(i * chunkSize, boundaries.get(boundaries.size() - 1) + 1), buffer);
+            if (boundary == -1) {
+                break;
+            }
+            boundaries.add(boundary);
+        }
+        boundaries.add(size);
+
+        final long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first line start at or after the given position
+     * (that is greater than 0) whose first byte is a class or key prefix.
+     *
+     * @return the position of the line or -1 if there is none
+     */
+    private static long nextBoundary(final FileChannel channel, final long from, final ByteBuffer buffer) throws IOException {
+        // the byte before the position decides
+        // whether or not it is the start of a line
+        long position = from - 1;
+        int previous = -1;
+        while (true) {
+            buffer.clear();
+            final int n = channel.read(buffer, position);
+            if (n <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < n; i++) {
+                final int b = buffer.get(i);
+                if ((previous == '\n' || previous == '\r') && isPrefix(b)) {
+                    return position + i;
+                }
+                previous = b;
+            }
+            position += n;
+        }
+    }
+
+    private static boolean isPrefix(final int b) {
+        return b == SanjoParser.CLASS_PREFIX || b == SanjoParser.CLASS_PREFIX_GT
+                || b == SanjoParser.KEY_PREFIX || b == SanjoParser.KEY_PREFIX_QM;
+    }
+
+    private static final class Chunk {
+        private final SJClass root;
+        private final int lineCount;
+        private final int classCount;
+        private final int valueCount;
+        private final int maxDepth;
+
+        private Chunk(final SJClass root, final int lineCount, final SJTreeBuilder builder) {
+            this.root = root;
+            this.lineCount = lineCount;
+            classCount = builder.getClassCount();
+            valueCount = builder.getValueCount();
+            maxDepth = builder.getMaxDepth();
+        }
+    }
+
+    /**
+     * Reads a region of a file through consecutive
+     * memory-mapped windows.
+     */
+    private static final class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long windowEnd;
+        private MappedByteBuffer window;
+
+        private MappedInputStream(final FileChannel channel, final long start, final long end) {
+            this.channel = channel;
+            this.end = end;
+            this.windowEnd = start;
+        }
+
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (windowEnd == end) {
+                return false;
+            }
+            final long size = Math.min(MAPPING_SIZE, end - windowEnd);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, size);
+            windowEnd += size;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensureWindow() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureWindow()) {
+                return -1;
+            }
+            final int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -16,14 +16,25 @@
 
 package de.sanj0.sanjo;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.*;
 
 /**
  * Parses sanjo data (in the form of a {@link String},
- * a {@link List} of lines or a {@link SanjoFile})
+ * a {@link List} of lines, a {@link Reader}, an {@link InputStream}
+ * or a {@link SanjoFile})
  * info a tree of {@link SJClass classes} and
  * {@link SJValue values}.
+ * <p>Readers, streams and files are consumed line by line,
+ * so that the source text is never held in memory as a whole
+ * and only the resulting tree remains.
+ * <p>The parser is a {@link SJTreeBuilder tree-building} handler
+ * on top of a {@link SanjoEventReader}, which can be used directly
+ * for scans that don't need a tree.
+ * <p>Every parse is reported to the {@link SanjoListener}
+ * installed through {@link SanjoMetrics#setListener(SanjoListener)}.
  * <p>The format specifications can be found in the
  * documentation of the {@link SanjoFile} class.
  */
@@ -47,161 +58,311 @@ public class SanjoParser {
     public static final String LIST_SEPARATOR = "list_separator";
     public static final char SPACE = ' ';
 
+    private static final int READ_BUFFER_SIZE = 8192;
+
     private final SanjoFile file;
+    /**
+     * The format of documents without meta class
+     */
     private final MetaInf metaInf;
-    private int lastIndentLevel = 1;
     private final SJClass defaultClass = SJClass.defaultClass();
-    private final Map<Integer, SJClass> workingClasses = new HashMap<>();
+    private final SanjoEventReader eventReader;
+    private boolean lazy = false;
+    private SanjoInternPool internPool = new SanjoInternPool();
+    private boolean internValues = false;
+    private SJIndex index = null;
 
-    public SanjoParser(final SanjoFile file) {
+    /**
+     * Creates a parser for documents in the given format,
+     * which a leading {@link SJClass#META meta} class of a
+     * document overrides.
+     *
+     * @param file the file to parse or <code>null</code>
+     * @param metaInf the format of the documents to parse
+     */
+    public SanjoParser(final SanjoFile file, final MetaInf metaInf) {
         this.file = file;
-        metaInf = new MetaInf(DEFAULT_INDENTION_WIDTH, DEFAULT_LIST_KEY_SUFFIX, DEFAULT_LIST_SEPARATOR);
+        this.metaInf = metaInf;
+        eventReader = new SanjoEventReader(metaInf, file);
+    }
+
+    public SanjoParser(final SanjoFile file) {
+        this(file, MetaInf.DEFAULT_META_INF);
     }
 
     public SanjoParser() {
         this(null);
     }
 
-    private void parse0(final List<String> lines) {
-        workingClasses.put(0, defaultClass);
-        int lineNumber = 1;
-        for (final String rawLine : lines) {
-            String line = removeLeadingSpaces(rawLine);
-            if (line.isEmpty()) continue;
-            int currentIndent = rawLine.length() - line.length();
-            int currentIndentLevel = currentIndent / metaInf.indentionWidth + 1;
-
-            if(line.charAt(0) == CLASS_PREFIX || line.charAt(0) == CLASS_PREFIX_GT) {
-                // class definition
-                checkIndention(currentIndent, lineNumber);
-                if (currentIndentLevel > lastIndentLevel) {
-                    throw indentionError(lineNumber);
-                }
-                final SJClass newClass = new SJClass(line.substring(1));
-                if (currentIndentLevel == lastIndentLevel) {
-                    // case 1: current indent is equal to the last indent -
-                    // new class should be a direct subclass of the current class'
-                    // parent, or, in case the indent is 0, a direct child of the
-                    // default class
-                    final SJClass parent = currentIndentLevel == 0 ? defaultClass : workingClasses.get(currentIndentLevel - 1);
-                    newClass.parentClass = parent;
-                    parent.getChildren().add(newClass);
-                } else if (currentIndentLevel < lastIndentLevel) {
-                    // case 2: current indent is smaller than the last indent
-                    // new class should be a subclass of some parent of some parent
-                    // of the current class, depending on the indention delta
-                    SJClass parent = workingClasses.get(currentIndentLevel - 1);
-                    parent.getChildren().add(newClass);
-                    newClass.parentClass = parent;
-                } else {
-                    // you cannot indent a class definition
-                    throw indentionError(lineNumber);
+    /**
+     * Parses the {@link #getFile() file} of this parser.
+     * <p>The file is read line by line through a buffered
+     * reader (UTF-8), it is never loaded into memory as a whole.
+     * A file that doesn't exist results in an empty tree.
+     *
+     * @return the default class of the parsed tree
+     * @throws IOException if something goes wrong reading the file
+     */
+    public SJClass parse() throws IOException {
+        final SanjoListener listener = SanjoMetrics.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final SJTreeBuilder builder = treeBuilder();
+        if (lazy) {
+            if (file.exists()) {
+                // a UTF-8 file never has more chars than bytes
+                try (final Reader reader = Files.newBufferedReader(file.toPath())) {
+                    final CharSlice content = readFully(reader, (int) Math.min(file.length() + 1, Integer.MAX_VALUE - 8));
+                    eventReader.read(content.array(), 0, content.length(), builder);
                 }
-                workingClasses.put(currentIndentLevel, newClass);
-                // increment current indent
-                // because any following classes or
-                // k-v pairs have to be indented
-                // - allow for empty classes?
-                currentIndentLevel++;
-            } else if (line.charAt(0) == KEY_PREFIX || line.charAt(0) == KEY_PREFIX_QM) {
-                // key-value pair definition
-                checkIndention(currentIndent, lineNumber);
-                final SJValue value = createValue(line);
-                workingClasses.get(currentIndentLevel - 1).getValues().put(value.getKey(), value);
-            } else {
-                // everything else is ignored
-                // as a comment
-                continue;
             }
-            lineNumber++;
-            lastIndentLevel = currentIndentLevel;
+        } else {
+            eventReader.read(builder);
+        }
+        if (listener != null) {
+            parsed(listener, builder, file.length(), start);
         }
+        return defaultClass;
     }
 
-    public SJClass parse() throws IOException {
-        final List<String> lines = file.readLines();
-        parse0(lines);
+    /**
+     * Parses the sanjo data read from the given
+     * reader line by line. The reader is read until
+     * its end but not closed.
+     *
+     * @param reader the reader to read sanjo data from
+     * @return the default class of the parsed tree
+     * @throws IOException if something goes wrong reading from the reader
+     */
+    public SJClass parse(final Reader reader) throws IOException {
+        final SanjoListener listener = SanjoMetrics.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final SJTreeBuilder builder = treeBuilder();
+        if (lazy) {
+            final CharSlice content = readFully(reader, READ_BUFFER_SIZE);
+            eventReader.read(content.array(), 0, content.length(), builder);
+        } else {
+            eventReader.read(reader, builder);
+        }
+        if (listener != null) {
+            parsed(listener, builder, eventReader.getCharCount(), start);
+        }
         return defaultClass;
     }
 
+    /**
+     * Parses the sanjo data read from the given
+     * stream line by line, decoding it with the given charset.
+     * The stream is read until its end but not closed.
+     *
+     * @param in the stream to read sanjo data from
+     * @param charset the charset of the data
+     * @return the default class of the parsed tree
+     * @throws IOException if something goes wrong reading from the stream
+     */
+    public SJClass parse(final InputStream in, final Charset charset) throws IOException {
+        return parse(new InputStreamReader(in, charset));
+    }
+
     public SJClass parse(final String content) {
-        final List<String> lines = Arrays.asList(content.split(System.lineSeparator()));
-        parse0(lines);
+        final SanjoListener listener = SanjoMetrics.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final SJTreeBuilder builder = treeBuilder();
+        final char[] chars = content.toCharArray();
+        eventReader.read(chars, 0, chars.length, builder);
+        if (listener != null) {
+            parsed(listener, builder, chars.length, start);
+        }
         return defaultClass;
     }
 
     public SJClass parse(final List<String> lines) {
-        parse0(lines);
+        if (lazy) {
+            return parse(String.join("\n", lines));
+        }
+        final SanjoListener listener = SanjoMetrics.listener;
+        final long start = listener == null ? 0 : System.nanoTime();
+        final SJTreeBuilder builder = treeBuilder();
+        eventReader.read(lines, builder);
+        if (listener != null) {
+            parsed(listener, builder, eventReader.getCharCount(), start);
+        }
         return defaultClass;
     }
 
-    private SJValue createValue(final String snippet) {
-        final int eqIndex = snippet.indexOf(ASSIGNMENT_OPERATOR);
-        final int colIndex = snippet.indexOf(ASSIGNMENT_OPERATOR_COL);
-        int assignmentCharIndex;
-        if (eqIndex == -1) assignmentCharIndex = colIndex;
-        else if (colIndex == -1) assignmentCharIndex = eqIndex;
-        else assignmentCharIndex = Math.min(eqIndex, colIndex);
-
-        String keyString = snippet.substring(0, assignmentCharIndex);
-        final String valueString = snippet.substring(assignmentCharIndex + 1);
-        Object value;
-        if (keyString.endsWith(metaInf.listSuffix)) {
-            value = new ArrayList<>(Arrays.asList(valueString.split(metaInf.listSeparator)));
-            keyString = keyString.substring(0, keyString.length() - metaInf.listSuffix.length());
-        } else {
-            value = valueString;
+    private SJTreeBuilder treeBuilder() {
+        defaultClass.setMetaInf(metaInf);
+        return new SJTreeBuilder(defaultClass, metaInf, lazy, internPool, internValues, index);
+    }
+
+    /**
+     * Reports the parse that started at the given
+     * time to the given listener.
+     */
+    private void parsed(final SanjoListener listener, final SJTreeBuilder builder, final long size, final long start) {
+        final long nanos = System.nanoTime() - start;
+        listener.parsed(new SanjoMetrics.ParseStats(file, size, eventReader.getLineNumber(),
+                builder.getClassCount(), builder.getValueCount(), builder.getMaxDepth(), nanos));
+    }
+
+    /**
+     * Reads all chars from the given reader into
+     * an array of the given initial size.
+     *
+     * @return a slice of the chars read
+     */
+    private static CharSlice readFully(final Reader reader, final int initialSize) throws IOException {
+        char[] chars = new char[Math.max(initialSize, 1)];
+        int length = 0;
+        int n;
+        while ((n = reader.read(chars, length, chars.length - length)) != -1) {
+            length += n;
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
         }
+        return new CharSlice(chars, 0, length);
+    }
 
-        return new SJValue(keyString.replaceFirst(String.valueOf(KEY_PREFIX), ""), value);
+    /**
+     * Sets whether or not values should be parsed lazily.
+     * <p>In lazy mode, the whole source text is read into memory
+     * and every {@link SJValue} only keeps a reference to its range
+     * of the text. The String or list of a value is only created
+     * when it is first accessed, numbers and booleans are parsed
+     * straight from the text. This makes parsing faster and the tree
+     * smaller when only a few values of a document are actually
+     * used, at the cost of keeping the source text in memory as
+     * long as any value that hasn't been accessed is.
+     * <p>Lazy parsing is disabled by default.
+     *
+     * @param lazy whether or not values should be parsed lazily
+     */
+    public void setLazy(final boolean lazy) {
+        this.lazy = lazy;
     }
 
-    private boolean isIndentionLegal(final int indention) {
-        return indention % metaInf.indentionWidth == 0;
+    public boolean isLazy() {
+        return lazy;
     }
 
-    private void checkIndention(final int indention, final int lineNumber) {
-        if(!isIndentionLegal(indention)) {
-            throw indentionError(lineNumber);
-        }
+    /**
+     * Sets the pool that keys and class names are interned with,
+     * so that every occurrence of the same name in the parsed tree
+     * is the same String instance.
+     * <p>Every parser has its own pool by default. A pool can
+     * be shared by several parsers to deduplicate names across
+     * documents, <code>null</code> disables interning.
+     *
+     * @param internPool the pool to intern names with or <code>null</code>
+     */
+    public void setInternPool(final SanjoInternPool internPool) {
+        this.internPool = internPool;
+    }
+
+    public SanjoInternPool getInternPool() {
+        return internPool;
     }
 
     /**
-     * Removes the leading from the given
-     * String.
+     * Sets whether or not single values of at most
+     * {@link SanjoInternPool#MAX_VALUE_LENGTH} chars, e.g.
+     * <code>true</code> or small numbers, should be interned
+     * along with the names. Values of {@link #setLazy(boolean)
+     * lazily} parsed documents are never interned.
+     * <p>Value interning is disabled by default.
      *
-     * @return the given String but without leading spaces
+     * @param internValues whether or not short values should be interned
      */
-    private String removeLeadingSpaces(final String s) {
-        int spaceCount = 0;
-        for (final char c : s.toCharArray()) {
-            if (c == SPACE) {
-                spaceCount++;
-            } else {
-                break;
-            }
-        }
+    public void setInternValues(final boolean internValues) {
+        this.internValues = internValues;
+    }
 
-        return s.substring(spaceCount);
+    public boolean isInternValues() {
+        return internValues;
     }
 
-    private SanjoParserError indentionError(final int lineNumber) {
-        return new SanjoParserError(SanjoParserError.INDENTION_ERROR_MESSAGE, lineNumber);
+    /**
+     * Sets the index that the values of parsed documents
+     * are added to, so that classes can be looked up by their
+     * keys without walking the tree afterwards. Addresses in the
+     * index are relative to the {@link SJClass#DEFAULT default}
+     * class of this parser.
+     * <p>No index is filled by default.
+     *
+     * @param index the index to add parsed values to or <code>null</code>
+     * @see SJIndex#build(SJClass, boolean)
+     */
+    public void setIndex(final SJIndex index) {
+        this.index = index;
+    }
+
+    public SJIndex getIndex() {
+        return index;
     }
 
     public SanjoFile getFile() {
         return file;
     }
 
+    /**
+     * Sets whether or not a {@link SJClass#META meta} class in
+     * the first line of a document specifies the format of the
+     * rest of the document, e.g. its indention width or list
+     * separator. Reading meta classes is enabled by default.
+     *
+     * @param readMeta whether or not leading meta classes should be read
+     * @see SanjoEventReader#setReadMeta(boolean)
+     */
+    public void setReadMeta(final boolean readMeta) {
+        eventReader.setReadMeta(readMeta);
+    }
+
+    public boolean isReadMeta() {
+        return eventReader.isReadMeta();
+    }
+
+    /**
+     * Returns the format of the last parsed document,
+     * which is also the {@link SJClass#getMetaInf() format}
+     * of the default class of the parsed tree.
+     *
+     * @return the format of the last parsed document
+     */
     public MetaInf getMetaInf() {
-        return metaInf;
+        return eventReader.getMetaInf();
     }
 
-    public class SanjoParserError extends RuntimeException {
-        private static final String INDENTION_ERROR_MESSAGE = "Illegal indention";
-        public SanjoParserError(final String message, final int lineNumber) {
-            super("\n    Error parsing file " + file.getAbsolutePath() + ": "
+    public static class SanjoParserError extends RuntimeException {
+        static final String INDENTION_ERROR_MESSAGE = "Illegal indention";
+        static final String ASSIGNMENT_ERROR_MESSAGE = "Missing assignment operator";
+        static final String META_ERROR_MESSAGE = "Illegal meta value";
+
+        private final SanjoFile file;
+        private final String reason;
+        private final int lineNumber;
+
+        public SanjoParserError(final SanjoFile file, final String message, final int lineNumber) {
+            super("\n    Error parsing " + (file == null ? "sanjo data" : "file " + file.getAbsolutePath()) + ": "
                     + message + " in line " + lineNumber);
+            this.file = file;
+            this.reason = message;
+            this.lineNumber = lineNumber;
+        }
+
+        /**
+         * Returns a copy of this error with its line number
+         * shifted by the given offset, used to map errors in a
+         * part of a document to the line in the whole document.
+         *
+         * @param offset the number of lines before the part
+         * @return a copy of this error with a shifted line number
+         */
+        SanjoParserError withLineOffset(final int offset) {
+            return new SanjoParserError(file, reason, lineNumber + offset);
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
         }
     }
 }
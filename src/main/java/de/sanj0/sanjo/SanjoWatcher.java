@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a {@link SanjoFile} for changes and reparses it
+ * in the background.
+ * <p>Changes are detected through a {@link WatchService} on the
+ * directory of the file. A burst of changes, e.g. an editor
+ * that writes a file in several steps, is collected until no
+ * further change occurs for the debounce time, and the file is
+ * then parsed once. The new tree replaces the {@link #getRoot()
+ * current tree} in a single volatile write, so readers never wait
+ * for a reload and never see a partially parsed tree. Listeners
+ * are notified with the {@link SJDiff difference} to the previous
+ * tree afterwards.
+ * <p>Published trees are {@link SJClass#freeze() frozen}, so
+ * they can be shared between all readers and listeners without
+ * locking. A file that doesn't exist or can't be parsed doesn't
+ * replace the current tree, and the watcher keeps watching.
+ *
+ * @see SanjoFile#watch(long)
+ */
+public class SanjoWatcher implements Closeable {
+
+    /**
+     * The default time in milliseconds without further
+     * changes after which a changed file is reparsed
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+    private final SanjoFile file;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Path fileName;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile SJClass root;
+
+    /**
+     * Parses the given file and starts watching it.
+     *
+     * @param file the file to watch
+     * @param debounceMillis the time in milliseconds without further
+     *                       changes after which the file is reparsed
+     * @throws IOException if something goes wrong reading the file
+     * or registering the watch service
+     */
+    public SanjoWatcher(final SanjoFile file, final long debounceMillis) throws IOException {
+        this.file = file;
+        this.debounceMillis = debounceMillis;
+        final Path path = file.getAbsoluteFile().toPath();
+        fileName = path.getFileName();
+        root = new SanjoParser(file).parse().freeze();
+        watchService = path.getFileSystem().newWatchService();
+        path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        thread = new Thread(this::watch, "sanjo-watcher-" + fileName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!isRelevant(watchService.take())) {
+                    continue;
+                }
+                // wait until the burst of changes is over
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    isRelevant(key);
+                }
+                try {
+                    reload();
+                } catch (final RuntimeException e) {
+                    // keep watching for the next change
+                    final Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                }
+            }
+        } catch (final ClosedWatchServiceException | InterruptedException e) {
+            // closed
+        }
+    }
+
+    private boolean isRelevant(final WatchKey key) {
+        boolean relevant = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    /**
+     * Reparses the file now, publishes the new tree and
+     * notifies the listeners if it differs from the current one.
+     * This is done automatically when the file changes.
+     *
+     * @return the difference between the previous and the new tree
+     * or <code>null</code> if the file doesn't exist or can't be parsed
+     */
+    public synchronized SJDiff reload() {
+        if (!file.exists()) {
+            return null;
+        }
+        final SJClass newRoot;
+        try {
+            newRoot = new SanjoParser(file).parse().freeze();
+        } catch (final IOException | RuntimeException e) {
+            for (final Listener listener : listeners) {
+                notify(() -> listener.failed(e));
+            }
+            return null;
+        }
+        final SJDiff diff = SJDiff.compare(root, newRoot);
+        root = newRoot;
+        if (!diff.isEmpty()) {
+            for (final Listener listener : listeners) {
+                notify(() -> listener.reloaded(newRoot, diff));
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Runs a listener callback, passing exceptions to the
+     * uncaught exception handler so that the watcher keeps running.
+     */
+    private static void notify(final Runnable callback) {
+        try {
+            callback.run();
+        } catch (final RuntimeException e) {
+            final Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, e);
+        }
+    }
+
+    /**
+     * Returns the most recently published tree.
+     *
+     * @return the default class of the current version of the file
+     */
+    public SJClass getRoot() {
+        return root;
+    }
+
+    public void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public SanjoFile getFile() {
+        return file;
+    }
+
+    /**
+     * Stops watching the file.
+     *
+     * @throws IOException if something goes wrong closing the watch service
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    /**
+     * Receives the trees published by a {@link SanjoWatcher}.
+     * Listeners are called on the thread of the watcher.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a changed file has been parsed
+         * and its new tree has been published.
+         *
+         * @param root the new tree
+         * @param diff the difference to the previous tree
+         */
+        void reloaded(SJClass root, SJDiff diff);
+
+        /**
+         * Called when a changed file can't be parsed,
+         * the previous tree remains published.
+         *
+         * @param e the error
+         */
+        default void failed(final Exception e) {
+        }
+    }
+}
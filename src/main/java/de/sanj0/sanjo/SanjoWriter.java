@@ -0,0 +1,242 @@
+/*
+ * Copyright 2022 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package de.sanj0.sanjo;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Writes trees of {@link SJClass classes} and
+ * {@link SJValue values} as sanjo data directly to an
+ * {@link Appendable}, e.g. a {@link java.io.Writer} or a
+ * {@link StringBuilder}.
+ * <p>Every line is appended to the sink as soon as it is
+ * written, no intermediate strings are built per class,
+ * so the cost of writing a tree is linear in its size
+ * regardless of its depth. The indention of every level is
+ * computed only once.
+ * <p>Values and children are written in the {@link Order order}
+ * set with {@link #setOrder(Order)}. Both orders are deterministic,
+ * so writing the same tree twice produces the same output. The
+ * first {@link SJClass#META meta} class of a root class is always
+ * written first, before the values of the root class and regardless
+ * of the order, so that the output is read in its format again.
+ * Lines are separated by the platform's line separator in
+ * {@link Order#INSERTION insertion} order and by <code>\n</code>
+ * in {@link Order#SORTED sorted} order, so that sorted output is
+ * byte-stable across platforms, unless a separator is set with
+ * {@link #setLineSeparator(String)}.
+ * <p>Instances are not thread-safe.
+ *
+ * @see SJClass#write(Appendable)
+ * @see SanjoFile#write(SJClass)
+ */
+public class SanjoWriter {
+
+    /**
+     * The line separator of {@link Order#SORTED sorted} output
+     */
+    public static final String SORTED_LINE_SEPARATOR = "\n";
+    private static final Comparator<SJValue> KEY_ORDER = Comparator.comparing(SJValue::getKey);
+    private static final Comparator<SJClass> NAME_ORDER = Comparator.comparing(SJClass::getName);
+
+    private final Appendable out;
+    private final MetaInf metaInf;
+    private String startIndention = "";
+    private String[] indentions = new String[0];
+    private Order order = Order.INSERTION;
+    private String lineSeparator;
+
+    public SanjoWriter(final Appendable out, final MetaInf metaInf) {
+        this.out = out;
+        this.metaInf = metaInf;
+    }
+
+    public SanjoWriter(final Appendable out) {
+        this(out, MetaInf.DEFAULT_META_INF);
+    }
+
+    /**
+     * Writes the given class with its values and subclasses.
+     * <p>Just like with {@link SJClass#write(String...)}, the
+     * class itself is only written if it has a parent class,
+     * otherwise (e.g. for the default class) only its contents
+     * are written without indention.
+     *
+     * @param clazz the class to write
+     * @throws IOException if something goes wrong writing to the sink
+     */
+    public void write(final SJClass clazz) throws IOException {
+        write(clazz, "");
+    }
+
+    /**
+     * Writes the given class with its values and subclasses,
+     * prepending the given indention to every line.
+     *
+     * @param clazz the class to write
+     * @param startIndention the indention of the class
+     * @throws IOException if something goes wrong writing to the sink
+     */
+    public void write(final SJClass clazz, final String startIndention) throws IOException {
+        if (!startIndention.equals(this.startIndention)) {
+            this.startIndention = startIndention;
+            indentions = new String[0];
+        }
+        writeClass(clazz, 0);
+    }
+
+    /**
+     * Writes the given value as a single line
+     * without indention and line separator.
+     *
+     * @param value the value to write
+     * @throws IOException if something goes wrong writing to the sink
+     */
+    public void write(final SJValue value) throws IOException {
+        value.write(out, metaInf);
+    }
+
+    private void writeClass(final SJClass clazz, final int depth) throws IOException {
+        writeClass(clazz, depth, getLineSeparator());
+    }
+
+    private void writeClass(final SJClass clazz, int depth, final String lineSeparator) throws IOException {
+        final SJClass meta;
+        if (clazz.getParentClass() != null) {
+            out.append(indention(depth)).append(SanjoParser.CLASS_PREFIX).append(clazz.getName()).append(lineSeparator);
+            depth++;
+            meta = null;
+        } else {
+            // the meta class only applies in the first line
+            meta = meta(clazz);
+            if (meta != null) {
+                writeClass(meta, depth, lineSeparator);
+            }
+        }
+        final String indention = indention(depth);
+        final Collection<SJValue> values = clazz.getValues().values();
+        for (final SJValue value : order == Order.SORTED ? sorted(values, KEY_ORDER) : values) {
+            out.append(indention);
+            value.write(out, metaInf);
+            out.append(lineSeparator);
+        }
+        final List<SJClass> children = clazz.getChildren();
+        for (final SJClass child : order == Order.SORTED ? sorted(children, NAME_ORDER) : children) {
+            if (child != meta) {
+                writeClass(child, depth, lineSeparator);
+            }
+        }
+    }
+
+    private static SJClass meta(final SJClass root) {
+        for (final SJClass child : root.getChildren()) {
+            if (SJClass.META.equals(child.getName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static < T > List<T> sorted(final Collection<T> elements, final Comparator<? super T> comparator) {
+        if (elements.size() < 2) {
+            return elements instanceof List ? (List<T>) elements : new ArrayList<>(elements);
+        }
+        final List<T> sorted = new ArrayList<>(elements);
+        // stable, so that classes of the same name keep their order
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+    private String indention(final int depth) {
+        if (depth >= indentions.length) {
+            final int oldLength = indentions.length;
+            indentions = Arrays.copyOf(indentions, Math.max(depth + 1, oldLength * 2));
+            final char[] spaces = new char[metaInf.getIndentionWidth()];
+            Arrays.fill(spaces, SanjoParser.SPACE);
+            final String level = new String(spaces);
+            for (int i = oldLength; i < indentions.length; i++) {
+                indentions[i] = i == 0 ? startIndention : indentions[i - 1] + level;
+            }
+        }
+        return indentions[depth];
+    }
+
+    /**
+     * Sets the order in which the values and
+     * children of every class are written.
+     *
+     * @param order the order of values and children
+     */
+    public void setOrder(final Order order) {
+        this.order = order;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Sets the separator written after every line.
+     *
+     * @param lineSeparator the line separator or <code>null</code> for
+     *                      the default separator of the {@link #getOrder() order}
+     */
+    public void setLineSeparator(final String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * Returns the separator written after every line: the one set
+     * with {@link #setLineSeparator(String)}, {@link #SORTED_LINE_SEPARATOR}
+     * in sorted order or the platform's line separator.
+     *
+     * @return the separator written after every line
+     */
+    public String getLineSeparator() {
+        if (lineSeparator != null) {
+            return lineSeparator;
+        }
+        return order == Order.SORTED ? SORTED_LINE_SEPARATOR : System.lineSeparator();
+    }
+
+    public Appendable getOut() {
+        return out;
+    }
+
+    public MetaInf getMetaInf() {
+        return metaInf;
+    }
+
+    /**
+     * The order in which values and children are written.
+     */
+    public enum Order {
+        /**
+         * The order in which values and children were added,
+         * which is the order of the source for parsed trees.
+         */
+        INSERTION,
+        /**
+         * Values sorted by key and children sorted by name,
+         * independent of how the tree was built. Children
+         * of the same name keep their order. The meta class
+         * of a root class still comes first.
+         */
+        SORTED
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJValue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AddressTest {
+
+    @Test
+    @DisplayName("Test resolving and creating addresses in a class with many children")
+    public void testFindAndCreate() {
+        final SJClass root = SJClass.defaultClass();
+        for (int i = 0; i < 100; i++) {
+            root.addChild("child" + i).addValue("index", String.valueOf(i));
+        }
+
+        final SJAddress address = SJAddress.forString(":child42.index");
+        assertSame(address, SJAddress.forString(":child42.index"));
+        assertEquals(42, ((SJValue) address.find(root).get()).intValue());
+        assertFalse(SJAddress.forString(":child100.index").find(root).isPresent());
+        assertFalse(SJAddress.forString(":child42:missing").find(root).isPresent());
+
+        // the name index follows renames, removals and insertions
+        root.getChild("child42").get().setName("renamed");
+        assertFalse(address.find(root).isPresent());
+        assertEquals(42, ((SJValue) SJAddress.forString(":renamed.index").find(root).get()).intValue());
+        root.getChildren().remove(0);
+        assertFalse(root.getChild("child0").isPresent());
+        final SJClass duplicate = new SJClass("child1");
+        root.getChildren().add(0, duplicate);
+        assertSame(duplicate, root.getChild("child1").get());
+
+        final Optional<?> created = (Optional<?>) SJAddress.forString(":new:sub.key").create(root);
+        assertEquals("key", ((SJValue) created.get()).getKey());
+        assertSame(created.get(), SJAddress.forString(":new:sub.key").find(root).get());
+        assertSame(root, root.getChild("new").get().getParentClass());
+    }
+
+    @Test
+    @DisplayName("Test concurrent lookups while the name index is built")
+    public void testConcurrentLookups() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 50; round++) {
+                final SJClass root = SJClass.defaultClass();
+                for (int i = 0; i < 500; i++) {
+                    root.addChild("child" + i);
+                }
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<Integer>> misses = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    misses.add(executor.submit(() -> {
+                        start.await();
+                        int count = 0;
+                        for (int i = 499; i >= 0; i--) {
+                            if (!root.getChild("child" + i).isPresent()) {
+                                count++;
+                            }
+                        }
+                        return count;
+                    }));
+                }
+                start.countDown();
+                for (final Future<Integer> future : misses) {
+                    assertEquals(0, future.get().intValue());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJClassView;
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SJValueView;
+import de.sanj0.sanjo.SanjoBinary;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryTest {
+
+    private static final String DOCUMENT = String.join("\n",
+            ".topLevel=value",
+            ".umlaut=äöü €",
+            ":one",
+            "    .one=1",
+            "    .list[]=a,b,,c",
+            "    :two",
+            "        .two=2",
+            "        .empty[]=",
+            "    :two",
+            "        .duplicate=true",
+            ":three",
+            "    .three=");
+
+    @Test
+    @DisplayName("Test a lossless round trip through the binary encoding")
+    public void testRoundTrip(@TempDir final Path dir) throws IOException {
+        final SJClass text = new SanjoParser().parse(DOCUMENT);
+        final SanjoFile file = new SanjoFile(dir.resolve("test" + SanjoFile.BINARY_FILE_EXTENSION).toString());
+        file.writeBinary(text);
+        final SJClass binary = file.readBinary();
+
+        assertEquals(text.write(), binary.write());
+        assertEquals(SJClass.DEFAULT, binary.getName());
+        assertNull(binary.getParentClass());
+        final SJClass one = binary.getChild("one").get();
+        assertEquals(binary, one.getParentClass());
+        assertEquals(Arrays.asList("a", "b", "", "c"), one.getValue("list").get().getList());
+        assertEquals(2, one.getChildren().size());
+        assertEquals(2, one.getChildren().get(0).getValue("two").get().intValue());
+        assertTrue(one.getChildren().get(1).getValue("duplicate").get().booleanValue());
+        assertEquals("äöü €", binary.getValue("umlaut").get().string());
+
+        final SanjoParser lazyParser = new SanjoParser();
+        lazyParser.setLazy(true);
+        assertArrayEquals(SanjoBinary.toBytes(text), SanjoBinary.toBytes(lazyParser.parse(DOCUMENT)));
+    }
+
+    @Test
+    @DisplayName("Test navigating a mapped file through views")
+    public void testMappedView(@TempDir final Path dir) throws Exception {
+        final SJClass tree = new SanjoParser().parse(DOCUMENT);
+        final SanjoFile file = new SanjoFile(dir.resolve("test" + SanjoFile.BINARY_FILE_EXTENSION).toString());
+        file.writeBinary(tree);
+        final SJClassView root = file.mapBinary();
+
+        assertEquals(SJClass.DEFAULT, root.getName());
+        assertEquals(tree.getChildren().size(), root.getChildren().size());
+        final SJClassView one = root.getChild("one").get();
+        assertEquals(Arrays.asList("a", "b", "", "c"), one.getValue("list").get().getList());
+        assertTrue(one.getValue("list").get().isList());
+        assertEquals(1, one.getValue("one").get().intValue());
+        assertEquals(2, one.getChildren().size());
+        assertEquals(one.getChildren().get(0), one.getChild("two").get());
+        assertFalse(root.getChild("two").isPresent());
+        assertFalse(root.getChild("missing").isPresent());
+        assertFalse(root.getValue("missing").isPresent());
+        assertEquals("äöü €", root.getValue("umlaut").get().string());
+        assertEquals("", root.getChild("three").get().getValue("three").get().string());
+
+        final SJValueView two = (SJValueView) SJAddress.forString(":one:two.two").find(root).get();
+        assertEquals(2L, two.longValue());
+        assertEquals("two", two.getKey());
+        assertEquals(one, SJAddress.forString(":one").find(root).get());
+        assertFalse(SJAddress.forString(":one:missing.two").find(root).isPresent());
+        assertEquals(tree.getValues().size(), root.getValues().size());
+
+        // views are serialized as detached frozen values
+        for (final SJValueView view : Arrays.asList(two, one.getValue("list").get())) {
+            final SJValue value = (SJValue) Serialization.roundTrip(view);
+            assertEquals(view.getKey(), value.getKey());
+            assertEquals(view.isList() ? view.getList() : view.string(), value.getValue());
+            assertEquals(view.string(), value.string());
+            assertThrows(UnsupportedOperationException.class, () -> value.setValue("x"));
+        }
+    }
+
+    @Test
+    @DisplayName("Test looking up values and children of large classes through their index")
+    public void testIndexedView() throws IOException {
+        final SJClass tree = SJClass.defaultClass();
+        for (int i = 0; i < 100; i++) {
+            tree.addValue("key" + i, String.valueOf(i));
+            tree.addChild("child" + (99 - i) % 50).addValue("i", String.valueOf(i));
+        }
+        final SJClassView root = SanjoBinary.view(ByteBuffer.wrap(SanjoBinary.toBytes(tree)));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, root.getValue("key" + i).get().intValue());
+        }
+        for (int i = 0; i < 50; i++) {
+            // the first of the two children with the name
+            assertEquals(49 - i, root.getChild("child" + i).get().getValue("i").get().intValue());
+        }
+        assertFalse(root.getChild("child50").isPresent());
+        assertFalse(root.getValue("key100").isPresent());
+        assertTrue(SanjoBinary.read(ByteBuffer.wrap(SanjoBinary.toBytes(tree))).write().equals(tree.write()));
+    }
+
+    @Test
+    @DisplayName("Test rejecting data that isn't binary sanjo")
+    public void testInvalidData() {
+        assertThrows(IOException.class, () -> SanjoBinary.read(ByteBuffer.wrap(DOCUMENT.getBytes())));
+        assertThrows(IOException.class, () -> SanjoBinary.view(ByteBuffer.wrap(DOCUMENT.getBytes())));
+        final byte[] truncated = Arrays.copyOf(SanjoBinary.toBytes(new SanjoParser().parse(DOCUMENT)), 40);
+        assertThrows(IOException.class, () -> SanjoBinary.read(ByteBuffer.wrap(truncated)));
+    }
+
+    @Test
+    @DisplayName("Test rejecting truncated and corrupted data")
+    public void testCorruptData() {
+        final byte[] bytes = SanjoBinary.toBytes(new SanjoParser().parse(DOCUMENT));
+        // the data is either rejected with an IOException or happens to
+        // be valid, no other exception or error may be thrown
+        for (int length = 0; length < bytes.length; length++) {
+            readOrReject(Arrays.copyOf(bytes, length));
+        }
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            final byte[] corrupted = bytes.clone();
+            final int position = 4 + random.nextInt(corrupted.length - 4);
+            corrupted[position] = (byte) (random.nextBoolean() ? 0x7F : random.nextInt());
+            readOrReject(corrupted);
+        }
+    }
+
+    private static void readOrReject(final byte[] bytes) {
+        try {
+            SanjoBinary.read(ByteBuffer.wrap(bytes));
+        } catch (final IOException e) {
+            // rejected
+        }
+    }
+
+    @Test
+    @DisplayName("Test encoding and decoding deeply nested trees")
+    public void testDeepTree() throws IOException {
+        final SJClass root = SJClass.defaultClass();
+        SJClass clazz = root;
+        for (int i = 0; i < 100000; i++) {
+            clazz = clazz.addChild("c");
+            clazz.addValue("depth", i);
+        }
+        SJClass decoded = SanjoBinary.read(ByteBuffer.wrap(SanjoBinary.toBytes(root)));
+        for (int i = 0; i < 100000; i++) {
+            decoded = decoded.getChildren().get(0);
+            assertEquals(i, decoded.getValue("depth").get().intValue());
+        }
+        assertTrue(decoded.getChildren().isEmpty());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJBinder;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJKey;
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class BindTest {
+
+    private static final SJClass SERVER = new SanjoParser().parse(String.join("\n",
+            ".host=localhost",
+            ".port=8080",
+            ".ratio=0.5",
+            ".debug=true",
+            ".mode=FAST",
+            ".ports[]=1,2,3",
+            ".names[]=a,b",
+            ".max-connections=100",
+            ":tls",
+            "    .enabled=true",
+            ":route",
+            "    .path=/a",
+            ":route",
+            "    .path=/b")).freeze();
+
+    public enum Mode {
+        SLOW, FAST
+    }
+
+    public static class Tls {
+        private boolean enabled;
+    }
+
+    public static class Route {
+        private String path;
+    }
+
+    public static class Base {
+        protected String host;
+    }
+
+    public static class Server extends Base {
+        private static int ignoredStatic = 1;
+        private int port;
+        private double ratio;
+        private Boolean debug;
+        private Mode mode;
+        private int[] ports;
+        private List<String> names;
+        private List<Long> longPorts;
+        @SJKey("max-connections")
+        private long maxConnections;
+        private Tls tls;
+        @SJKey("route")
+        private List<Route> routes;
+        private SJValue rawPort;
+        private String missing = "default";
+        private transient String host2;
+        private int setterCalls;
+
+        public void setPort(final int port) {
+            this.port = port;
+            setterCalls++;
+        }
+    }
+
+    public static class Invalid {
+        private int host;
+    }
+
+    public static class Small {
+        private short s;
+        private Byte b;
+        private Mode mode;
+    }
+
+    public static class NoDefaultConstructor {
+        public NoDefaultConstructor(final int i) { }
+    }
+
+    @Test
+    @DisplayName("Test binding classes to objects")
+    public void testBind() {
+        final Server server = SJBinder.bind(SERVER, Server.class);
+        assertEquals("localhost", server.host);
+        assertEquals(8080, server.port);
+        assertEquals(1, server.setterCalls);
+        assertEquals(0.5, server.ratio);
+        assertEquals(true, server.debug);
+        assertEquals(Mode.FAST, server.mode);
+        assertArrayEquals(new int[] {1, 2, 3}, server.ports);
+        assertEquals(Arrays.asList("a", "b"), server.names);
+        assertNull(server.longPorts);
+        assertEquals(100, server.maxConnections);
+        assertTrue(server.tls.enabled);
+        assertEquals(2, server.routes.size());
+        assertEquals("/b", server.routes.get(1).path);
+        assertNull(server.rawPort);
+        assertEquals("default", server.missing);
+        assertNull(server.host2);
+
+        assertEquals(2, SJBinder.bindAll(SERVER.getChildren().subList(1, 3), Route.class).size());
+        assertEquals(Collections.emptyList(), SJBinder.bindAll(Collections.emptyList(), Route.class));
+    }
+
+    @Test
+    @DisplayName("Test errors binding classes")
+    public void testBindErrors() {
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SJBinder.bind(SERVER, Invalid.class));
+        assertTrue(e.getMessage().contains("host"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> SJBinder.bind(SERVER, NoDefaultConstructor.class));
+        assertThrows(IllegalArgumentException.class, () -> SJBinder.bind(SERVER, List.class));
+        assertThrows(IllegalArgumentException.class, () -> SJBinder.bind(SERVER, int.class));
+    }
+
+    @Test
+    @DisplayName("Test binding shorts, bytes and enums")
+    public void testBindSmall() {
+        final Small small = SJBinder.bind(new SanjoParser().parse(".s=-300\n.b=12\n.mode=SLOW"), Small.class);
+        assertEquals(-300, small.s);
+        assertEquals((byte) 12, small.b);
+        assertEquals(Mode.SLOW, small.mode);
+
+        assertThrows(IllegalArgumentException.class, () -> SJBinder.bind(new SanjoParser().parse(".s=40000"), Small.class));
+        assertThrows(IllegalArgumentException.class, () -> SJBinder.bind(new SanjoParser().parse(".b=128"), Small.class));
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> SJBinder.bind(new SanjoParser().parse(".mode=MEDIUM"), Small.class));
+        assertTrue(e.getMessage().contains("MEDIUM"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Test binding classes to records")
+    public void testBindRecord(@TempDir final Path dir) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null && !System.getProperty("java.specification.version").startsWith("1.")
+                && Integer.parseInt(System.getProperty("java.specification.version")) >= 16);
+        final Path source = Files.write(dir.resolve("Endpoint.java"), String.join("\n",
+                "public record Endpoint(String host, int port, @de.sanj0.sanjo.SJKey(\"ports\") int[] list, double missing) { }")
+                .getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, compiler.run(null, null, null, "-cp", System.getProperty("java.class.path"),
+                "-d", dir.toString(), source.toString()));
+
+        try (final URLClassLoader loader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, getClass().getClassLoader())) {
+            final Class<?> type = loader.loadClass("Endpoint");
+            final Object endpoint = SJBinder.bind(SERVER, type);
+            assertEquals("localhost", type.getMethod("host").invoke(endpoint));
+            assertEquals(8080, type.getMethod("port").invoke(endpoint));
+            assertArrayEquals(new int[] {1, 2, 3}, (int[]) type.getMethod("list").invoke(endpoint));
+            assertEquals(0.0, type.getMethod("missing").invoke(endpoint));
+        }
+    }
+}
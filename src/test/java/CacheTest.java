@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoCache;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheTest {
+
+    private static final FileTime TIME = FileTime.fromMillis(1600000000000L);
+
+    @Test
+    @DisplayName("Test that cached trees are reused until their file changes")
+    public void testCache(@TempDir final Path dir) throws IOException {
+        final SanjoCache cache = new SanjoCache(SanjoCache.DEFAULT_MAX_WEIGHT);
+        final SanjoFile file = write(dir.resolve("a.sj"), ".value=1", TIME);
+
+        final SJClass first = cache.get(file);
+        assertTrue(first.isFrozen());
+        assertSame(first, cache.get(new SanjoFile(dir.resolve("./a.sj").toString())));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getWeight());
+
+        // same size and modification time
+        write(dir.resolve("a.sj"), ".value=2", TIME);
+        assertSame(first, cache.get(file));
+        write(dir.resolve("a.sj"), ".value=3", FileTime.fromMillis(TIME.toMillis() + 1000));
+        assertEquals(3, cache.get(file).getValue("value").get().intValue());
+
+        cache.setHashContents(true);
+        final SJClass hashed = cache.get(file);
+        assertNotSame(first, hashed);
+        write(dir.resolve("a.sj"), ".value=4", FileTime.fromMillis(TIME.toMillis() + 1000));
+        assertEquals(4, cache.get(file).getValue("value").get().intValue());
+        // touched without changes
+        final SJClass touched = cache.get(file);
+        Files.setLastModifiedTime(file.toPath(), TIME);
+        assertSame(touched, cache.get(file));
+
+        cache.invalidate(file);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+        assertNotSame(touched, cache.get(file));
+
+        final SanjoFile missing = new SanjoFile(dir.resolve("missing.sj").toString());
+        assertTrue(cache.get(missing).getChildren().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test evicting the least recently used trees")
+    public void testEviction(@TempDir final Path dir) throws IOException {
+        final SanjoCache cache = new SanjoCache(10);
+        final SanjoFile a = write(dir.resolve("a.sj"), ":a\n    .1=1\n    .2=2", TIME);
+        final SanjoFile b = write(dir.resolve("b.sj"), ":b\n    .1=1\n    .2=2", TIME);
+        final SanjoFile c = write(dir.resolve("c.sj"), ":c\n    .1=1\n    .2=2", TIME);
+        final SJClass treeA = cache.get(a);
+        cache.get(b);
+        assertSame(treeA, cache.get(a));
+        cache.get(c);
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getWeight());
+        assertSame(treeA, cache.get(a));
+        final long misses = cache.getMissCount();
+        cache.get(b);
+        assertEquals(misses + 1, cache.getMissCount());
+
+        final SanjoCache tiny = new SanjoCache(1);
+        tiny.get(a);
+        assertEquals(0, tiny.size());
+    }
+
+    @Test
+    @DisplayName("Test that concurrent lookups of a file parse it once")
+    public void testConcurrentLookups(@TempDir final Path dir) throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            content.append(":class").append(i).append("\n    .value=").append(i).append('\n');
+        }
+        final SanjoFile file = write(dir.resolve("large.sj"), content.toString(), TIME);
+        final SanjoCache cache = new SanjoCache(SanjoCache.DEFAULT_MAX_WEIGHT);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<SJClass>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(file);
+                }));
+            }
+            start.countDown();
+            final SJClass tree = futures.get(0).get();
+            for (final Future<SJClass> future : futures) {
+                assertSame(tree, future.get());
+            }
+            assertEquals(1, cache.getMissCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test that invalid files aren't cached")
+    public void testInvalidFile(@TempDir final Path dir) throws IOException {
+        final SanjoCache cache = new SanjoCache(SanjoCache.DEFAULT_MAX_WEIGHT);
+        final SanjoFile file = write(dir.resolve("invalid.sj"), ":a\n        .b=c", TIME);
+        assertEquals(2, assertThrows(SanjoParser.SanjoParserError.class, () -> cache.get(file)).getLineNumber());
+        assertEquals(0, cache.size());
+        assertThrows(SanjoParser.SanjoParserError.class, () -> cache.get(file));
+        assertEquals(2, cache.getMissCount());
+        write(dir.resolve("invalid.sj"), ":a\n    .b=c", TIME);
+        assertEquals("c", cache.get(file).getChildren().get(0).getValue("b").get().string());
+    }
+
+    private static SanjoFile write(final Path path, final String content, final FileTime time) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path, time);
+        return new SanjoFile(path.toString());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.ConcurrentSJClass;
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJValue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20000;
+
+    @Test
+    @DisplayName("Test creating and updating addresses from many threads")
+    public void testConcurrentCreate() throws Exception {
+        final ConcurrentSJClass root = ConcurrentSJClass.concurrentDefaultClass();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    final Random random = new Random(thread);
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        final int a = random.nextInt(10);
+                        final int b = random.nextInt(10);
+                        final SJValue value = (SJValue) ((Optional<?>) SJAddress.forString(
+                                ":a" + a + ":b" + b + ".count").create(root)).get();
+                        synchronized (value) {
+                            value.setValue(String.valueOf(Integer.parseInt("0" + value.string()) + 1));
+                        }
+                        root.getChild("a" + a).get().addValue("thread" + thread, String.valueOf(i));
+                        if (i % 1000 == 0) {
+                            root.addChild("appended");
+                            for (final SJClass child : root.getChildren()) {
+                                assertNotNull(child.getName());
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final Set<String> names = new HashSet<>();
+        int count = 0;
+        int appended = 0;
+        for (final SJClass a : root.getChildren()) {
+            if (a.getName().equals("appended")) {
+                appended++;
+                continue;
+            }
+            assertTrue(names.add(a.getName()), "duplicate " + a.getName());
+            assertEquals(10, a.getChildren().size());
+            assertEquals(THREADS, a.getValues().size());
+            for (final SJClass b : a.getChildren()) {
+                assertEquals(root, a.getParentClass());
+                assertEquals(a, b.getParentClass());
+                count += b.getValue("count").get().intValue();
+            }
+        }
+        assertEquals(10, names.size());
+        assertEquals(THREADS * OPERATIONS, count);
+        assertEquals(THREADS * OPERATIONS / 1000, appended);
+        assertEquals(root.getChildren().get(0), root.getChild(root.getChildren().get(0).getName()).get());
+    }
+
+    @Test
+    @DisplayName("Test the name index of concurrent children after modifications")
+    public void testChildModifications() {
+        final ConcurrentSJClass root = ConcurrentSJClass.concurrentDefaultClass();
+        for (int i = 0; i < 10000; i++) {
+            root.addChild("child" + i % 100);
+        }
+        assertEquals(10000, root.getChildren().size());
+        final SJClass first = root.getChildren().get(5);
+        assertSame(first, root.getChild("child5").get());
+
+        root.getChildren().remove(5);
+        assertSame(root.getChildren().get(104), root.getChild("child5").get());
+        root.getChildren().remove(root.getChildren().get(104));
+        assertSame(root.getChildren().get(203), root.getChild("child5").get());
+        root.getChildren().add(0, first);
+        assertSame(first, root.getChild("child5").get());
+        assertEquals(9999, root.getChildren().size());
+        final SJClass replacement = new ConcurrentSJClass("replacement");
+        root.getChildren().set(0, replacement);
+        assertSame(replacement, root.getChild("replacement").get());
+        assertSame(root.getChildren().get(204), root.getChild("child5").get());
+
+        final Iterator<SJClass> iterator = root.getChildren().iterator();
+        root.getChildren().clear();
+        assertFalse(root.getChild("child5").isPresent());
+        int iterated = 0;
+        while (iterator.hasNext()) {
+            assertNotNull(iterator.next());
+            iterated++;
+        }
+        assertEquals(9999, iterated);
+        assertThrows(IndexOutOfBoundsException.class, () -> root.getChildren().get(0));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJDiff;
+import de.sanj0.sanjo.SanjoIncrementalParser;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiffTest {
+
+    private static final List<String> DOCUMENT = Arrays.asList(
+            "# a comment",
+            ".version=1",
+            ":one",
+            "    .a=1",
+            "    :nested",
+            "        .b=2",
+            ":two",
+            "    .c=3",
+            ".version=2",
+            ":one",
+            "    .d=4");
+
+    @Test
+    @DisplayName("Test the structural difference of two trees")
+    public void testCompare() {
+        final SJClass before = new SanjoParser().parse(DOCUMENT);
+        final List<String> lines = new ArrayList<>(DOCUMENT);
+        lines.set(3, "    .a=changed");
+        lines.remove(7);
+        lines.add("    :added");
+        final SJClass after = new SanjoParser().parse(lines);
+
+        final List<String> changes = new ArrayList<>();
+        for (final SJDiff.Change change : SJDiff.compare(before, after).getChanges()) {
+            changes.add(change.toString());
+        }
+        assertEquals(Arrays.asList("~ :one.a", "- :two.c", "+ :one:added"), changes);
+        assertTrue(SJDiff.compare(before, new SanjoParser().parse(DOCUMENT)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test reparsing only the edited blocks of a document")
+    public void testEdit() {
+        final SanjoIncrementalParser parser = new SanjoIncrementalParser(DOCUMENT);
+
+        SJDiff diff = parser.edit(5, 1, Arrays.asList("        .b=changed", "        .e=5"));
+        assertEquals(2, diff.getChanges().size());
+        assertEquals(SJDiff.Kind.CHANGED, diff.getChanges().get(0).getKind());
+        assertEquals("changed", parser.getRoot().get(diff.getChanges().get(0).getAddress())
+                .map(value -> value.toString()).get());
+        assertEquals(":one:nested.e", diff.getChanges().get(1).getAddress().toString());
+        TreeAssertions.assertTreeEquals(new SanjoParser().parse(parser.getLines()), parser.getRoot());
+
+        diff = parser.edit(9, 1, Collections.emptyList());
+        assertEquals("~ .version", diff.getChanges().get(0).toString());
+        assertEquals(1, parser.getRoot().getValue("version").get().intValue());
+
+        // removing a class line moves its contents into the class before
+        parser.edit(7, 1, Collections.emptyList());
+        TreeAssertions.assertTreeEquals(new SanjoParser().parse(parser.getLines()), parser.getRoot());
+        assertEquals(3, parser.getRoot().getChildren().get(0).getValue("c").get().intValue());
+
+        final List<String> before = new ArrayList<>(parser.getLines());
+        final SanjoParser.SanjoParserError error = assertThrows(SanjoParser.SanjoParserError.class,
+                () -> parser.edit(2, 0, Collections.singletonList("            .deep=1")));
+        assertEquals(3, error.getLineNumber());
+        assertEquals(before, parser.getLines());
+    }
+
+    @Test
+    @DisplayName("Test edits of and after a leading meta class")
+    public void testMetaEdit() {
+        final SanjoIncrementalParser parser = new SanjoIncrementalParser(Arrays.asList(
+                ":meta",
+                "    .list_separator=,",
+                ":one",
+                "    .l[]=1;2",
+                ".t[]=3;4"));
+        assertEquals(Arrays.asList("1;2"), parser.getRoot().getChildren().get(1).getValue("l").get().getList());
+
+        SJDiff diff = parser.edit(1, 1, Collections.singletonList("    .list_separator=;"));
+        final List<String> changes = new ArrayList<>();
+        for (final SJDiff.Change change : diff.getChanges()) {
+            changes.add(change.toString());
+        }
+        assertEquals(Arrays.asList("~ :meta.list_separator", "~ :one.l", "~ .t"), changes);
+        assertEquals(";", parser.getRoot().getMetaInf().getListSeparator());
+        TreeAssertions.assertTreeEquals(new SanjoParser().parse(parser.getLines()), parser.getRoot());
+
+        parser.edit(3, 1, Collections.singletonList("    .l[]=5;6"));
+        assertEquals(Arrays.asList("5", "6"), parser.getRoot().getChildren().get(1).getValue("l").get().getList());
+
+        diff = parser.edit(0, 2, Collections.emptyList());
+        assertEquals(",", parser.getRoot().getMetaInf().getListSeparator());
+        assertEquals(Arrays.asList("3;4"), parser.getRoot().getValue("t").get().getList());
+        TreeAssertions.assertTreeEquals(new SanjoParser().parse(parser.getLines()), parser.getRoot());
+    }
+
+    @Test
+    @DisplayName("Test that edits keep top-level values in document order")
+    public void testValueOrder() {
+        final SanjoIncrementalParser parser = new SanjoIncrementalParser(Arrays.asList(
+                ".a=1", ".b=2", ":one", "    .x=1", ".c=3"));
+
+        parser.edit(1, 1, Collections.singletonList(".b=changed"));
+        assertEquals(new SanjoParser().parse(parser.getLines()).write(), parser.getRoot().write());
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(parser.getRoot().getValues().keySet()));
+
+        // swapping two definitions
+        parser.edit(0, 2, Arrays.asList(".b=2", ".a=1"));
+        assertEquals(new SanjoParser().parse(parser.getLines()).write(), parser.getRoot().write());
+        assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<>(parser.getRoot().getValues().keySet()));
+
+        // a redefinition keeps the position of the first definition
+        parser.edit(5, 0, Arrays.asList(".b=3", ".d=4"));
+        assertEquals(new SanjoParser().parse(parser.getLines()).write(), parser.getRoot().write());
+        assertEquals(Arrays.asList("b", "a", "c", "d"), new ArrayList<>(parser.getRoot().getValues().keySet()));
+
+        parser.edit(0, 1, Collections.emptyList());
+        assertEquals(new SanjoParser().parse(parser.getLines()).write(), parser.getRoot().write());
+        assertEquals(Arrays.asList("a", "c", "b", "d"), new ArrayList<>(parser.getRoot().getValues().keySet()));
+
+        // values only defined in the edited lines are replaced in place
+        parser.edit(0, 1, Arrays.asList(".a=5", ".a=6"));
+        assertEquals("6", parser.getRoot().getValue("a").get().string());
+        assertEquals(new SanjoParser().parse(parser.getLines()).write(), parser.getRoot().write());
+
+        // reordering many keys at once
+        final SanjoIncrementalParser many = new SanjoIncrementalParser(Arrays.asList(
+                ".a=1", ".b=2", ".c=3", ".d=4", ".e=5", ".f=6", ".b=7"));
+        many.edit(0, 6, Arrays.asList(".f=1", ".e=2", ".d=3", ".c=4", ".b=5", ".a=6"));
+        assertEquals(Arrays.asList("f", "e", "d", "c", "b", "a"), new ArrayList<>(many.getRoot().getValues().keySet()));
+        assertEquals("7", many.getRoot().getValue("b").get().string());
+        assertEquals(new SanjoParser().parse(many.getLines()).write(), many.getRoot().write());
+    }
+
+    @Test
+    @DisplayName("Test random edits against a full reparse")
+    public void testRandomEdits() {
+        final String[] templates = {":a", ":b", ">c", "    :a", "    .x=1", "    .y[]=1,2", ".x=2", ".z=3",
+                "        .x=4", "", "comment", "    :b", "        :c", ".u=5", ".v[]=6,7", ".w=8", ".x=9"};
+        final Random random = new Random(42);
+        final List<String> lines = new ArrayList<>(DOCUMENT);
+        final SanjoIncrementalParser parser = new SanjoIncrementalParser(lines);
+        for (int i = 0; i < 2000; i++) {
+            final int from = random.nextInt(lines.size() + 1);
+            final int removed = random.nextInt(Math.min(3, lines.size() - from) + 1);
+            final List<String> inserted = new ArrayList<>();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                inserted.add(templates[random.nextInt(templates.length)]);
+            }
+            final List<String> edited = new ArrayList<>(lines);
+            edited.subList(from, from + removed).clear();
+            edited.addAll(from, inserted);
+
+            final SJClass expected;
+            try {
+                expected = new SanjoParser().parse(edited);
+            } catch (final SanjoParser.SanjoParserError e) {
+                assertThrows(SanjoParser.SanjoParserError.class, () -> parser.edit(from, removed, inserted));
+                continue;
+            }
+            final SJClass before = new SanjoParser().parse(lines);
+            final SJDiff diff = parser.edit(from, removed, inserted);
+            lines.clear();
+            lines.addAll(edited);
+            assertEquals(lines, parser.getLines());
+            TreeAssertions.assertTreeEquals(expected, parser.getRoot());
+            assertEquals(expected.write(), parser.getRoot().write());
+            assertEquals(SJDiff.compare(before, expected).isEmpty(), diff.isEmpty());
+        }
+    }
+}
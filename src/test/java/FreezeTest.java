@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.MetaInf;
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJDiff;
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreezeTest {
+
+    @Test
+    @DisplayName("Test serializing frozen values")
+    public void testSerialization() throws Exception {
+        final SJClass frozen = new SanjoParser().parse(".number=42\n.list[]=a,b").freeze();
+        for (final SJValue value : frozen.getValues().values()) {
+            final SJValue read = (SJValue) Serialization.roundTrip(value);
+            assertSame(value.getClass(), read.getClass());
+            assertEquals(value.getKey(), read.getKey());
+            assertEquals(value.getValue(), read.getValue());
+            assertThrows(UnsupportedOperationException.class, () -> read.setValue("x"));
+        }
+        final SJValue number = (SJValue) Serialization.roundTrip(frozen.getValue("number").get());
+        assertEquals(42, number.intValue());
+        final SJValue list = (SJValue) Serialization.roundTrip(frozen.getValue("list").get());
+        assertEquals(Arrays.asList("a", "b"), list.getList());
+        assertThrows(UnsupportedOperationException.class, () -> list.getList().add("c"));
+    }
+
+    @Test
+    @DisplayName("Test freezing a lazily parsed tree")
+    public void testFreeze() {
+        final List<String> lines = new ArrayList<>(Arrays.asList(".top=1", ":parent", "    .list[]=a,b"));
+        for (int i = 0; i < 20; i++) {
+            lines.add("    :child" + (i % 10));
+            lines.add("        .i=" + i);
+        }
+        final SanjoParser parser = new SanjoParser();
+        parser.setLazy(true);
+        final SJClass tree = parser.parse(String.join("\n", lines));
+        final SJClass frozen = tree.freeze();
+
+        assertTrue(frozen.isFrozen());
+        assertFalse(tree.isFrozen());
+        assertSame(frozen, frozen.freeze());
+        assertTrue(SJDiff.compare(tree, frozen).isEmpty());
+        assertEquals(tree.write(), frozen.write());
+
+        final SJClass parent = frozen.getChild("parent").get();
+        assertEquals(frozen, parent.getParentClass());
+        assertEquals(parent, parent.getChildren().get(3).getParentClass());
+        assertEquals(3, parent.getChild("child3").get().getValue("i").get().intValue());
+        assertFalse(parent.getChild("child10").isPresent());
+        assertEquals(3, ((SJValue) SJAddress.forString(":parent:child3.i").find(frozen).get()).intValue());
+        assertEquals(Arrays.asList("a", "b"), parent.getValue("list").get().getList());
+
+        assertThrows(UnsupportedOperationException.class, () -> frozen.addValue("key", "value"));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.addChild("child"));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getValues().remove("top"));
+        assertThrows(UnsupportedOperationException.class, () -> parent.getChildren().remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> parent.getValue("list").get().getList().add("c"));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getValue("top").get().setValue("2"));
+        assertThrows(UnsupportedOperationException.class, () -> SJAddress.forString(":new.key").create(frozen));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.setMetaInf(MetaInf.DEFAULT_META_INF));
+        assertSame(frozen.getMetaInf(), parent.getMetaInf());
+        final SJClass custom = new SanjoParser().parse(":meta\n    .indentation=2\n:a\n  .b=c");
+        final SJClass frozenCustom = custom.freeze();
+        assertEquals(custom.getMetaInf(), frozenCustom.getMetaInf());
+        assertNotSame(custom.getMetaInf(), frozenCustom.getMetaInf());
+        assertEquals(custom.write(), frozenCustom.write());
+    }
+
+    @Test
+    @DisplayName("Test reading a frozen tree from several threads")
+    public void testConcurrentReads() throws Exception {
+        final SJClass root = SJClass.defaultClass();
+        for (int i = 0; i < 100; i++) {
+            root.addChild("child" + i).addValue("value", String.valueOf(i));
+        }
+        final SJClass frozen = root.freeze();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Long>> sums = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                sums.add(executor.submit(() -> {
+                    long sum = 0;
+                    for (int n = 0; n < 100; n++) {
+                        for (int i = 0; i < 100; i++) {
+                            final SJValue value = (SJValue) SJAddress.forString(":child" + i + ".value").find(frozen).get();
+                            sum += value.intValue();
+                        }
+                    }
+                    return sum;
+                }));
+            }
+            for (final Future<Long> sum : sums) {
+                assertEquals(100 * 4950L, sum.get().longValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJIndex;
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexTest {
+
+    private static final String DOCUMENT = String.join("\n",
+            ".id=0",
+            ":users",
+            "    :alice",
+            "        .id=1",
+            "        .role=admin",
+            "    :bob",
+            "        .id=2",
+            "        .role=user",
+            "        .tags[]=a,b",
+            ":groups",
+            "    :admins",
+            "        .role=admin",
+            "        .id=3",
+            "        .id=4");
+
+    @Test
+    @DisplayName("Test indexes filled while parsing")
+    public void testParseIndex() {
+        for (final boolean lazy : new boolean[] {false, true}) {
+            final SanjoParser parser = new SanjoParser();
+            parser.setLazy(lazy);
+            parser.setIndex(new SJIndex(true));
+            final SJClass root = parser.parse(DOCUMENT);
+            assertIndex(parser.getIndex(), root);
+        }
+    }
+
+    @Test
+    @DisplayName("Test indexes built for existing trees")
+    public void testBuiltIndex() {
+        final SJClass root = new SanjoParser().parse(DOCUMENT);
+        assertIndex(SJIndex.build(root, true), root);
+        assertIndex(SJIndex.build(root.freeze(), true), root);
+
+        final SJIndex keysOnly = SJIndex.build(root);
+        assertEquals(4, keysOnly.classesWithKey("id").size());
+        assertThrows(IllegalStateException.class, () -> keysOnly.classesWithValue("id", "1"));
+
+        final SJClass users = root.getChild("users").get();
+        assertEquals(Arrays.asList(":alice.id", ":bob.id"), strings(SJIndex.build(users).addresses("id")));
+    }
+
+    private static void assertIndex(final SJIndex index, final SJClass root) {
+        assertEquals(Arrays.asList("default", "alice", "bob", "admins"), names(index.classesWithKey("id")));
+        assertEquals(Arrays.asList("alice", "bob", "admins"), names(index.classesWithKey("role")));
+        assertEquals(Arrays.asList("bob"), names(index.classesWithKey("tags")));
+        assertTrue(index.classesWithKey("missing").isEmpty());
+
+        assertEquals(Arrays.asList("alice", "admins"), names(index.classesWithValue("role", "admin")));
+        assertEquals(Arrays.asList("bob"), names(index.classesWithValue("role", "user")));
+        // the last of several values with the same key wins
+        assertEquals(Arrays.asList("admins"), names(index.classesWithValue("id", "4")));
+        assertTrue(index.classesWithValue("id", "3").isEmpty());
+        assertTrue(index.classesWithValue("tags", "a,b").isEmpty());
+
+        assertEquals(Arrays.asList("0", "1", "2", "4"),
+                index.values("id").stream().map(SJValue::string).collect(Collectors.toList()));
+        final List<SJAddress> addresses = index.addresses("role", "admin");
+        assertEquals(Arrays.asList(":users:alice.role", ":groups:admins.role"), strings(addresses));
+        for (final SJAddress address : addresses) {
+            assertEquals("admin", ((SJValue) address.find(root).get()).string());
+        }
+        assertTrue(index.keys().containsAll(Arrays.asList("id", "role", "tags")));
+    }
+
+    private static List<String> names(final List<SJClass> classes) {
+        return classes.stream().map(SJClass::getName).collect(Collectors.toList());
+    }
+
+    private static List<String> strings(final List<SJAddress> addresses) {
+        return addresses.stream().map(SJAddress::getAddress).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoLoader;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoaderTest {
+
+    @Test
+    @DisplayName("Test loading and merging several files")
+    public void testLoad(@TempDir final Path dir) throws IOException {
+        final SanjoFile base = file(dir, "base.sj",
+                ".name=service",
+                ".port=80",
+                ":db",
+                "    .host=localhost",
+                "    .user=admin",
+                ":worker",
+                "    .threads=1",
+                ":worker",
+                "    .threads=2");
+        final SanjoFile production = file(dir, "production.sj",
+                ".port=443",
+                ":db",
+                "    .host=db.example.com",
+                "    :pool",
+                "        .size=10",
+                ":worker",
+                "    .threads=4",
+                ":worker",
+                ":worker",
+                "    .threads=8");
+        final SanjoFile tenant = file(dir, "tenant.sj",
+                ":db",
+                "    .user=tenant");
+        final SanjoFile missing = new SanjoFile(dir.resolve("missing.sj").toString());
+
+        final SJClass config = new SanjoLoader().load(base, production, missing, tenant);
+        assertEquals("service", get(config, ".name"));
+        assertEquals("443", get(config, ".port"));
+        assertEquals("db.example.com", get(config, ":db.host"));
+        assertEquals("tenant", get(config, ":db.user"));
+        assertEquals("10", get(config, ":db:pool.size"));
+        final List<String> threads = new ArrayList<>();
+        for (final SJClass child : config.getChildren()) {
+            if (child.getName().equals("worker")) {
+                threads.add(child.getValue("threads").get().string());
+            }
+        }
+        assertEquals(Arrays.asList("4", "2", "8"), threads);
+        assertEquals(config, config.getChildren().get(0).getParentClass());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final SanjoLoader loader = new SanjoLoader();
+            loader.setExecutor(executor);
+            loader.setLazy(true);
+            assertEquals(new SanjoParser().parse(config.write()).write(),
+                    loader.load(Arrays.asList(base, production, missing, tenant)).write());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, new SanjoLoader().load().getChildren().size());
+    }
+
+    @Test
+    @DisplayName("Test errors loading several files")
+    public void testLoadErrors(@TempDir final Path dir) throws IOException {
+        final SanjoFile valid = file(dir, "valid.sj", ":a", "    .b=c");
+        final SanjoFile invalid = file(dir, "invalid.sj", ":a", "        .b=c");
+        final SanjoParser.SanjoParserError error = assertThrows(SanjoParser.SanjoParserError.class,
+                () -> new SanjoLoader().load(valid, invalid, valid));
+        assertEquals(2, error.getLineNumber());
+
+        // the first file fails while the others are still queued
+        final List<Runnable> queued = new ArrayList<>();
+        assertThrows(SanjoParser.SanjoParserError.class, () -> queuing(queued).load(invalid, valid, valid));
+        assertEquals(2, queued.size());
+        assertThrows(SanjoParser.SanjoParserError.class, () -> queuing(queued).parseAll(Arrays.asList(invalid, valid)));
+        assertEquals(3, queued.size());
+        for (final Runnable task : queued) {
+            assertTrue(((Future<?>) task).isCancelled());
+        }
+    }
+
+    /**
+     * Returns a loader that parses the first file at once
+     * and adds the tasks of all other files to the given list.
+     */
+    private static SanjoLoader queuing(final List<Runnable> queued) {
+        final SanjoLoader loader = new SanjoLoader();
+        final boolean[] first = {true};
+        loader.setExecutor(task -> {
+            if (first[0]) {
+                first[0] = false;
+                task.run();
+            } else {
+                queued.add(task);
+            }
+        });
+        return loader;
+    }
+
+    private static String get(final SJClass root, final String address) {
+        return root.get(SJAddress.forString(address)).map(Object::toString).orElse(null);
+    }
+
+    private static SanjoFile file(final Path dir, final String name, final String... lines) throws IOException {
+        return new SanjoFile(Files.write(dir.resolve(name), String.join("\n", lines).getBytes(StandardCharsets.UTF_8)).toString());
+    }
+}
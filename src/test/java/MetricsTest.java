@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    private static final String DATA = ".version=1\n" +
+            ":server\n" +
+            "    .port=8080\n" +
+            "    :tls\n" +
+            "        .enabled=true\n" +
+            "        .ciphers[]=a,b\n" +
+            ":client\n" +
+            "    .timeout=5\n";
+
+    @AfterEach
+    public void uninstall() {
+        SanjoMetrics.setListener(null);
+    }
+
+    @Test
+    @DisplayName("Test reporting parses to the installed listener")
+    public void testParseStats(@TempDir final Path dir) throws Exception {
+        final List<SanjoMetrics.ParseStats> reported = new ArrayList<>();
+        SanjoMetrics.setListener(new SanjoListener() {
+            @Override
+            public void parsed(final SanjoMetrics.ParseStats stats) {
+                reported.add(stats);
+            }
+        });
+
+        new SanjoParser().parse(DATA);
+        assertEquals(1, reported.size());
+        final SanjoMetrics.ParseStats stats = reported.get(0);
+        assertNull(stats.getFile());
+        assertEquals(DATA.length(), stats.getSize());
+        assertEquals(8, stats.getLines());
+        assertEquals(3, stats.getClasses());
+        assertEquals(5, stats.getValues());
+        assertEquals(2, stats.getMaxDepth());
+        assertTrue(stats.getNanos() > 0);
+        assertTrue(stats.getLinesPerSecond() > 0);
+
+        final Path path = dir.resolve("metrics.sj");
+        Files.write(path, DATA.getBytes(StandardCharsets.UTF_8));
+        final SanjoFile file = new SanjoFile(path.toString());
+        file.parser().parse();
+        file.parseParallel();
+        final SanjoParser lazyParser = file.parser();
+        lazyParser.setLazy(true);
+        lazyParser.parse();
+        assertEquals(4, reported.size());
+        for (final SanjoMetrics.ParseStats fileStats : reported.subList(1, 4)) {
+            assertEquals(file, fileStats.getFile());
+            assertEquals(Files.size(path), fileStats.getSize());
+            assertEquals(8, fileStats.getLines());
+            assertEquals(3, fileStats.getClasses());
+            assertEquals(5, fileStats.getValues());
+            assertEquals(2, fileStats.getMaxDepth());
+        }
+
+        SanjoMetrics.setListener(null);
+        new SanjoParser().parse(DATA);
+        assertEquals(4, reported.size());
+    }
+
+    @Test
+    @DisplayName("Test aggregating parses and lookups")
+    public void testMetrics() {
+        final SanjoMetrics metrics = new SanjoMetrics().install();
+        assertSame(metrics, SanjoMetrics.getListener());
+        final SJClass root = new SanjoParser().parse(DATA);
+        new SanjoParser().parse(DATA);
+        assertEquals(2, metrics.getParseCount());
+        assertEquals(16, metrics.getParsedLines());
+        assertEquals(6, metrics.getParsedClasses());
+        assertEquals(10, metrics.getParsedValues());
+        assertEquals(2, metrics.getMaxDepth());
+        assertEquals(2L * DATA.length(), metrics.getParsedBytes());
+        assertTrue(metrics.getBytesPerSecond() > 0);
+        assertNotNull(metrics.getLastParse());
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(SJAddress.forString(":server:tls.enabled").find(root).isPresent());
+        }
+        assertFalse(SJAddress.forString(":server:missing.port").find(root).isPresent());
+        assertFalse(root.get(SJAddress.forString(":client.missing")).isPresent());
+        assertEquals(5, metrics.getLookupCount());
+        assertEquals(3, metrics.getLookupHits());
+        assertEquals(2, metrics.getLookupMisses());
+        assertEquals(0.6, metrics.getLookupHitRatio(), 1e-9);
+        assertTrue(metrics.getLookupP50Nanos() <= metrics.getLookupP99Nanos());
+        assertTrue(metrics.getLookupP99Nanos() <= metrics.getMaxLookupNanos());
+
+        metrics.reset();
+        assertEquals(0, metrics.getParseCount());
+        assertEquals(0, metrics.getLookupCount());
+        assertNull(metrics.getLastParse());
+    }
+
+    @Test
+    @DisplayName("Test histogram buckets and percentiles")
+    public void testHistogram() {
+        final SanjoMetrics metrics = new SanjoMetrics();
+        final SanjoMetrics.Histogram histogram = metrics.getLookupTimes();
+        final SJAddress address = new SJAddress(".a");
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            metrics.lookup(address, true, nanos);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+        assertEquals(1000, histogram.getMax());
+        final long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 500 && p50 < 500 * 1.25, "p50 " + p50);
+        final long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99 " + p99);
+        assertEquals(1, histogram.getPercentile(0));
+
+        final long[] counts = histogram.getBucketCounts();
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+            if (i > 0) {
+                assertTrue(histogram.getBucketLowerBound(i) > histogram.getBucketLowerBound(i - 1));
+            }
+        }
+        assertEquals(1000, total);
+        assertEquals(0, metrics.getParseTimes().getPercentile(99));
+    }
+
+    @Test
+    @DisplayName("Test publishing metrics through JMX")
+    public void testJmx() throws Exception {
+        final SanjoMetrics metrics = new SanjoMetrics().install();
+        final ObjectName name = metrics.register();
+        try {
+            final SJClass root = new SanjoParser().parse(DATA);
+            SJAddress.forString(":client.timeout").find(root);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "ParseCount"));
+            assertEquals(5L, server.getAttribute(name, "ParsedValues"));
+            assertEquals(1L, server.getAttribute(name, "LookupHits"));
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0L, server.getAttribute(name, "ParseCount"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
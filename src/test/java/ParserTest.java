@@ -14,18 +14,35 @@
  *    limitations under the License.
  */
 
+import de.sanj0.sanjo.MetaInf;
 import de.sanj0.sanjo.SJAddress;
 import de.sanj0.sanjo.SJClass;
 import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoEventReader;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoHandler;
+import de.sanj0.sanjo.SanjoInternPool;
 import de.sanj0.sanjo.SanjoParser;
+import de.sanj0.sanjo.SanjoWriter;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ParserTest {
 
@@ -65,4 +82,270 @@ public class ParserTest {
 
         assertEquals("Hello There", ((SJValue) root.get(SJAddress.forString(":class:subclass.subsubvalue")).get()).getValue());
     }
+
+    @Test
+    @DisplayName("Test reading classes and values from a reader and a stream")
+    public void testReadStreamed() throws IOException {
+        final String content = String.join("\n", testContent);
+        final SJClass fromReader = new SanjoParser().parse(new StringReader(content));
+        final SJClass fromStream = new SanjoParser().parse(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        final SJClass fromList = new SanjoParser().parse(testContent);
+
+        assertEquals(fromList.write(), fromReader.write());
+        assertEquals(fromList.write(), fromStream.write());
+        assertEquals("Hello There", ((SJValue) fromReader.get(SJAddress.forString(":class:subclass.subsubvalue")).get()).getValue());
+    }
+
+    @Test
+    @DisplayName("Test the events reported while reading the list of lines")
+    public void testEvents() {
+        final StringBuilder events = new StringBuilder();
+        new SanjoEventReader().read(testContent, new SanjoHandler() {
+            @Override
+            public void startClass(final CharSequence name, final int depth, final int lineNumber) {
+                events.append(':').append(name).append(depth).append(' ');
+            }
+
+            @Override
+            public void value(final CharSequence key, final CharSequence value, final boolean list, final int depth, final int lineNumber) {
+                events.append('.').append(key).append(list ? "[]" : "").append(depth).append(' ');
+            }
+
+            @Override
+            public void endClass(final int depth, final int lineNumber) {
+                events.append('/').append(depth).append(' ');
+            }
+        });
+        assertEquals(".key0 .10 .eminem0 :empty_class0 /0 .me0 :empty-class20 /0 :class0 .subvalue1 .something1 "
+                + ".array[]1 :subclass1 .subsubvalue2 /1 /0 .something0 ", events.toString());
+    }
+
+    @Test
+    @DisplayName("Test that illegal indention is rejected")
+    public void testIllegalIndention() {
+        assertThrows(SanjoParser.SanjoParserError.class, () -> new SanjoParser().parse(Arrays.asList(":a", "      .b=c")));
+        assertThrows(SanjoParser.SanjoParserError.class, () -> new SanjoParser().parse(Arrays.asList(".a=b", "    :c")));
+        assertThrows(SanjoParser.SanjoParserError.class, () -> new SanjoParser().parse(Arrays.asList(":a", "    .b")));
+    }
+
+    @Test
+    @DisplayName("Test reading lines split across buffer boundaries with any line terminator")
+    public void testReadLineTerminators() throws IOException {
+        final StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longValue.append(i % 10);
+        }
+        final String content = ".a=1\r\n:b\r    .c[]=x,y,,\n    .long=" + longValue + "\r\n.d:2";
+        final Reader trickle = new FilterReader(new StringReader(content)) {
+            @Override
+            public int read(final char[] cbuf, final int off, final int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 3));
+            }
+        };
+
+        for (final SJClass root : Arrays.asList(new SanjoParser().parse(trickle), new SanjoParser().parse(content))) {
+            assertEquals("1", root.getValue("a").get().string());
+            assertEquals("2", root.getValue("d").get().string());
+            assertEquals(Arrays.asList("x", "y"), root.getChild("b").get().getValue("c").get().getList());
+            assertEquals(longValue.toString(), root.getChild("b").get().getValue("long").get().string());
+        }
+    }
+
+    @Test
+    @DisplayName("Test that parsing a file in parallel results in the same tree as parsing it sequentially")
+    public void testParseParallel(@TempDir final Path dir) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        int i = 0;
+        while (content.length() < 5 << 20) {
+            content.append(":class").append(i).append("\r\n");
+            content.append("    .value=").append(i).append('\n');
+            content.append("    .list[]=").append(i).append(',').append(i + 1).append('\n');
+            content.append("    :subclass\n");
+            content.append("        .value=").append(-i).append('\n');
+            content.append("a comment\n");
+            content.append(".top").append(i % 100).append('=').append(i).append('\n');
+            i++;
+        }
+        final SanjoFile file = new SanjoFile(Files.write(dir.resolve("parallel.sj"),
+                content.toString().getBytes(StandardCharsets.UTF_8)).toString());
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TreeAssertions.assertTreeEquals(file.parser().parse(), file.parseParallel(pool));
+
+            content.append("    :indented_class\n");
+            Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+            final int expectedLine = assertThrows(SanjoParser.SanjoParserError.class, () -> file.parser().parse()).getLineNumber();
+            assertEquals(expectedLine, assertThrows(SanjoParser.SanjoParserError.class, () -> file.parseParallel(pool)).getLineNumber());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test that a leading meta class specifies the format of the document")
+    public void testMeta(@TempDir final Path dir) throws IOException {
+        final List<String> lines = Arrays.asList(
+                "a comment",
+                ":meta",
+                "    .indentation=2",
+                "    .list_suffix=<>",
+                "    .list_separator=; ",
+                ":class",
+                "  .list<>=1; 2; 3",
+                "  .comma<>=a,b",
+                "  :subclass",
+                "    .value=x");
+        for (final boolean lazy : new boolean[] {false, true}) {
+            final SanjoParser parser = new SanjoParser();
+            parser.setLazy(lazy);
+            final SJClass root = parser.parse(lines);
+            final MetaInf expected = new MetaInf(2, "<>", "; ");
+            assertEquals(expected, parser.getMetaInf());
+            assertEquals(expected, root.getMetaInf());
+            assertEquals("2", root.get(SJAddress.forString(":meta.indentation")).map(Object::toString).get());
+            assertEquals(Arrays.asList("1", "2", "3"), ((SJValue) root.get(SJAddress.forString(":class.list")).get()).getList());
+            assertEquals(Arrays.asList("a,b"), ((SJValue) root.get(SJAddress.forString(":class.comma")).get()).getList());
+            assertEquals("x", root.get(SJAddress.forString(":class:subclass.value")).map(Object::toString).get());
+            TreeAssertions.assertTreeEquals(root, new SanjoParser().parse(root.write()));
+        }
+
+        // a value directly after the meta class is read in its format
+        final List<String> valueFirst = Arrays.asList(
+                ":meta",
+                "    .list_suffix=<>",
+                "    .list_separator=;",
+                ".a<>=1;2",
+                ".b<>=4;5");
+        for (final boolean lazy : new boolean[] {false, true}) {
+            final SanjoParser parser = new SanjoParser();
+            parser.setLazy(lazy);
+            final SJClass root = parser.parse(valueFirst);
+            assertEquals(Arrays.asList("a", "b"), new ArrayList<>(root.getValues().keySet()));
+            assertEquals(Arrays.asList("1", "2"), root.getValues().get("a").getList());
+            assertEquals(Arrays.asList("4", "5"), root.getValues().get("b").getList());
+        }
+
+        // the meta class is written first, before root values and in any order
+        final SJClass withValues = new SanjoParser().parse(Arrays.asList(
+                ":meta",
+                "  .indentation=2",
+                "  .list_suffix=<>",
+                ".x=1",
+                ".list<>=a,b",
+                ":b",
+                "  .y=2",
+                ":a",
+                "  .z=3"));
+        TreeAssertions.assertTreeEquals(withValues, new SanjoParser().parse(withValues.write()));
+        for (final SanjoWriter.Order order : SanjoWriter.Order.values()) {
+            final StringBuilder written = new StringBuilder();
+            final SanjoWriter writer = new SanjoWriter(written, withValues.getMetaInf());
+            writer.setOrder(order);
+            writer.write(withValues);
+            assertTrue(written.toString().startsWith(":meta"), written.toString());
+            final SanjoParser reparser = new SanjoParser();
+            final SJClass reparsed = reparser.parse(written.toString());
+            assertEquals(withValues.getMetaInf(), reparser.getMetaInf());
+            assertEquals(withValues.getValues().keySet(), reparsed.getValues().keySet());
+            assertEquals(Arrays.asList("a", "b"), reparsed.getValues().get("list").getList());
+            assertEquals("3", reparsed.get(SJAddress.forString(":a.z")).map(Object::toString).get());
+        }
+
+        final List<MetaInf> events = new ArrayList<>();
+        new SanjoEventReader().read(lines, new SanjoHandler() {
+            @Override
+            public void meta(final MetaInf metaInf, final int lineNumber) {
+                assertEquals(6, lineNumber);
+                events.add(metaInf);
+            }
+        });
+        assertEquals(1, events.size());
+
+        final SanjoParser ignoring = new SanjoParser();
+        ignoring.setReadMeta(false);
+        assertEquals(7, assertThrows(SanjoParser.SanjoParserError.class, () -> ignoring.parse(lines)).getLineNumber());
+        final SanjoParser notLeading = new SanjoParser();
+        notLeading.parse(Arrays.asList(".key=value", ":meta", "    .indentation=2"));
+        assertEquals(MetaInf.DEFAULT_META_INF, notLeading.getMetaInf());
+        assertEquals(2, assertThrows(SanjoParser.SanjoParserError.class,
+                () -> new SanjoParser().parse(Arrays.asList(":meta", "    .indentation=0"))).getLineNumber());
+
+        final StringBuilder content = new StringBuilder(String.join("\n", lines.subList(0, 5))).append('\n');
+        int i = 0;
+        while (content.length() < 3 << 20) {
+            content.append(":class").append(i).append('\n');
+            content.append("  .list<>=").append(i).append("; ").append(i + 1).append('\n');
+            content.append("  :subclass\n");
+            content.append("    .value=").append(-i).append('\n');
+            content.append(":meta\n");
+            content.append("  .indentation=4\n");
+            i++;
+        }
+        final SanjoFile file = new SanjoFile(Files.write(dir.resolve("meta.sj"),
+                content.toString().getBytes(StandardCharsets.UTF_8)).toString());
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final SJClass parallel = file.parseParallel(pool);
+            TreeAssertions.assertTreeEquals(file.parser().parse(), parallel);
+            assertEquals(new MetaInf(2, "<>", "; "), parallel.getMetaInf());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test that lazily parsed values equal eagerly parsed ones")
+    public void testLazy() throws IOException {
+        final List<String> lines = new ArrayList<>(testContent);
+        lines.add(".int=-2147483648");
+        lines.add(".long=9223372036854775807");
+        lines.add(".overflow=9223372036854775808");
+        lines.add(".bool=TRUE");
+        lines.add(".empty[]=");
+
+        final SanjoParser lazyParser = new SanjoParser();
+        lazyParser.setLazy(true);
+        final SJClass lazy = lazyParser.parse(new StringReader(String.join("\r\n", lines)));
+        final SJClass eager = new SanjoParser().parse(lines);
+
+        assertEquals(Integer.MIN_VALUE, lazy.getValue("int").get().intValue());
+        assertEquals(Long.MAX_VALUE, lazy.getValue("long").get().longValue());
+        assertThrows(NumberFormatException.class, () -> lazy.getValue("overflow").get().longValue());
+        assertThrows(NumberFormatException.class, () -> lazy.getValue("long").get().intValue());
+        assertThrows(NumberFormatException.class, () -> lazy.getValue("key").get().intValue());
+        assertEquals(true, lazy.getValue("bool").get().booleanValue());
+        assertEquals(eager.getValue("something").get().write(MetaInf.DEFAULT_META_INF),
+                lazy.getValue("something").get().write(MetaInf.DEFAULT_META_INF));
+        TreeAssertions.assertTreeEquals(eager, lazy);
+    }
+
+    @Test
+    @DisplayName("Test interning keys, class names and short values")
+    public void testInterning() {
+        final String document = String.join("\n", ":entry", "    .id=true", ":entry", "    .id=true");
+        final SJClass interned = new SanjoParser().parse(document);
+        assertSame(interned.getChildren().get(0).getName(), interned.getChildren().get(1).getName());
+        assertSame(interned.getChildren().get(0).getValues().keySet().iterator().next(),
+                interned.getChildren().get(1).getValues().keySet().iterator().next());
+        assertNotSame(interned.getChildren().get(0).getValue("id").get().string(),
+                interned.getChildren().get(1).getValue("id").get().string());
+
+        final SanjoInternPool pool = new SanjoInternPool(16);
+        final SanjoParser first = new SanjoParser();
+        first.setInternPool(pool);
+        first.setInternValues(true);
+        final SanjoParser second = new SanjoParser();
+        second.setInternPool(pool);
+        final SJClass shared = first.parse(document);
+        assertSame(shared.getChildren().get(0).getValue("id").get().string(),
+                shared.getChildren().get(1).getValue("id").get().string());
+        assertSame(shared.getChildren().get(0).getName(), second.parse(document).getChildren().get(1).getName());
+
+        final SanjoParser disabled = new SanjoParser();
+        disabled.setInternPool(null);
+        final SJClass notInterned = disabled.parse(document);
+        assertNotSame(notInterned.getChildren().get(0).getName(), notInterned.getChildren().get(1).getName());
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJAddress;
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJQuery;
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryTest {
+
+    private static final SJClass TREE = new SanjoParser().parse(String.join("\n",
+            ".port=1",
+            ":service",
+            "    :web",
+            "        .port=80",
+            "        :nested",
+            "            .port=8080",
+            "    :db",
+            "        .port=5432",
+            "        .user=admin",
+            ":other",
+            "    :web",
+            "        .port=81"));
+
+    @Test
+    @DisplayName("Test wildcards and recursive descent")
+    public void testQuery() {
+        assertEquals(Arrays.asList("80", "5432"), strings(":service:*.port"));
+        assertEquals(Arrays.asList("1", "80", "8080", "5432", "81"), strings(":**.port"));
+        assertEquals(Arrays.asList("80", "8080", "5432"), strings(":service:**.port"));
+        assertEquals(Arrays.asList("8080"), strings(":**:nested.port"));
+        assertEquals(Arrays.asList("80", "81"), strings(":*:web.port"));
+        assertEquals(Arrays.asList("5432", "admin"), strings(":service:db.*"));
+        assertEquals(Arrays.asList("80"), strings(":service:web.port"));
+        assertTrue(strings(":service:missing.port").isEmpty());
+
+        final List<Object> classes = SJQuery.forString(":**:web").findAll(TREE);
+        assertEquals(2, classes.size());
+        assertEquals(SJAddress.forString(":service:web").find(TREE).get(), classes.get(0));
+        assertEquals(SJAddress.Target.CLASS, SJQuery.forString(":**:web").getTargetType());
+        assertEquals(7, SJQuery.forString(":**").findAll(TREE).size());
+        assertEquals(SJAddress.Target.VALUE, SJAddress.forString(":*.port").toQuery().getTargetType());
+        assertThrows(IllegalArgumentException.class, () -> SJQuery.forString(".**"));
+    }
+
+    @Test
+    @DisplayName("Test evaluating a query in parallel over a wide tree")
+    public void testParallel() {
+        final SJClass root = SJClass.defaultClass();
+        for (int i = 0; i < 1000; i++) {
+            final SJClass child = root.addChild("child" + i);
+            for (int j = 0; j < 10; j++) {
+                child.addChild("sub").addValue("value", String.valueOf(i * 10 + j));
+            }
+        }
+        final List<Integer> sequential = SJQuery.forString(":*:sub.value").stream(root)
+                .map(value -> ((SJValue) value).intValue()).collect(Collectors.toList());
+        final List<Integer> parallel = SJQuery.forString(":*:sub.value").parallelStream(root)
+                .map(value -> ((SJValue) value).intValue()).collect(Collectors.toList());
+        assertEquals(10000, sequential.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(i, sequential.get(i).intValue());
+        }
+        assertEquals(sequential, parallel);
+        assertEquals(10000, SJQuery.forString(":**.value").parallelStream(root).count());
+    }
+
+    private static List<String> strings(final String query) {
+        final List<String> strings = new ArrayList<>();
+        for (final Object match : SJQuery.forString(query).findAll(TREE)) {
+            strings.add(((SJValue) match).string());
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJDiff;
+import de.sanj0.sanjo.SJValue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Assertions on trees shared by the tests.
+ */
+final class TreeAssertions {
+
+    private TreeAssertions() {
+    }
+
+    /**
+     * Asserts that both trees have the same names, values and
+     * children in the same order, and that every child of the
+     * actual tree points to its parent.
+     */
+    static void assertTreeEquals(final SJClass expected, final SJClass actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertTrue(SJDiff.compare(expected, actual).isEmpty(), () -> SJDiff.compare(expected, actual).toString());
+        assertEquals(expected.getValues().keySet(), actual.getValues().keySet());
+        for (final SJValue value : expected.getValues().values()) {
+            assertEquals(value.getValue(), actual.getValue(value.getKey()).get().getValue());
+        }
+        assertEquals(expected.getChildren().size(), actual.getChildren().size());
+        for (int i = 0; i < expected.getChildren().size(); i++) {
+            assertEquals(actual, actual.getChildren().get(i).getParentClass());
+            assertTreeEquals(expected.getChildren().get(i), actual.getChildren().get(i));
+        }
+    }
+}
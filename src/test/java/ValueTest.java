@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJValue;
+import de.sanj0.sanjo.SanjoParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValueTest {
+
+    private static final List<String> LINES = Arrays.asList(
+            ".ints[]=1,-2,2147483647,,",
+            ".longs[]=9223372036854775807,-9223372036854775808",
+            ".doubles[]=0.1,-2.5e3,1e-7,123456789.123456789,1e400,NaN,-0,.5",
+            ".single=42",
+            ".broken[]=1,,2");
+
+    @Test
+    @DisplayName("Test decoding list values into primitive arrays")
+    public void testPrimitiveArrays() {
+        final SanjoParser lazyParser = new SanjoParser();
+        lazyParser.setLazy(true);
+        for (final SJClass root : Arrays.asList(new SanjoParser().parse(LINES), lazyParser.parse(LINES))) {
+            final SJValue ints = root.getValue("ints").get();
+            assertArrayEquals(new int[]{1, -2, Integer.MAX_VALUE}, ints.intArray());
+            assertArrayEquals(new long[]{1, -2, Integer.MAX_VALUE}, ints.longArray());
+            assertArrayEquals(new long[]{Long.MAX_VALUE, Long.MIN_VALUE}, root.getValue("longs").get().longArray());
+            assertThrows(NumberFormatException.class, () -> root.getValue("longs").get().intArray());
+            assertArrayEquals(new double[]{0.1, -2.5e3, 1e-7, 123456789.123456789, Double.POSITIVE_INFINITY, Double.NaN, -0.0, 0.5},
+                    root.getValue("doubles").get().doubleArray());
+            assertArrayEquals(new int[]{42}, root.getValue("single").get().intArray());
+            assertThrows(NumberFormatException.class, () -> root.getValue("broken").get().intArray());
+
+            // the cache is invalidated and doesn't leak
+            final int[] copy = ints.intArray();
+            copy[0] = 100;
+            assertEquals(1, ints.intArray()[0]);
+            ints.setValue(Arrays.asList("3", "4"));
+            assertArrayEquals(new int[]{3, 4}, ints.intArray());
+        }
+    }
+
+    @Test
+    @DisplayName("Test that doubles decoded from the source text equal Double.parseDouble")
+    public void testDoubleArrayRounding() {
+        final Random random = new Random(42);
+        final String[] elements = new String[2000];
+        for (int i = 0; i < elements.length; i++) {
+            switch (i % 4) {
+                case 0:
+                    elements[i] = Double.toString(random.nextDouble());
+                    break;
+                case 1:
+                    elements[i] = (random.nextLong() % 100000000000000L) + "." + random.nextInt(1000);
+                    break;
+                case 2:
+                    elements[i] = random.nextInt(100000) + "e" + (random.nextInt(60) - 30);
+                    break;
+                default:
+                    elements[i] = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20));
+            }
+        }
+        final SanjoParser lazyParser = new SanjoParser();
+        lazyParser.setLazy(true);
+        final double[] decoded = lazyParser.parse(".list[]=" + String.join(",", elements)).getValue("list").get().doubleArray();
+        for (int i = 0; i < elements.length; i++) {
+            assertEquals(Double.parseDouble(elements[i]), decoded[i], elements[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Test that cached scalar conversions follow value changes")
+    public void testScalarCache() {
+        final SJValue value = new SJValue("key", "12");
+        assertEquals(12, value.intValue());
+        assertEquals(12, value.intValue());
+        assertEquals(12.0, value.doubleValue());
+        assertEquals(12L, value.longValue());
+        assertEquals(12f, value.floatValue());
+        assertFalse(value.booleanValue());
+        value.setValue("true");
+        assertTrue(value.booleanValue());
+        assertThrows(NumberFormatException.class, value::intValue);
+        value.setValue("-7");
+        assertEquals(-7, value.intValue());
+        assertEquals(-7.0, value.doubleValue());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SJDiff;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoListener;
+import de.sanj0.sanjo.SanjoMetrics;
+import de.sanj0.sanjo.SanjoWatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatcherTest {
+
+    @Test
+    @DisplayName("Test reloading a changed file in the background")
+    public void testWatch(@TempDir final Path dir) throws IOException, InterruptedException {
+        final Path path = dir.resolve("watched.sj");
+        Files.write(path, Arrays.asList(":server", "    .port=80"));
+        final SanjoFile file = new SanjoFile(path.toString());
+
+        try (final SanjoWatcher watcher = file.watch(50)) {
+            final SJClass first = watcher.getRoot();
+            assertEquals(80, first.getChild("server").get().getValue("port").get().intValue());
+
+            final BlockingQueue<SJDiff> diffs = new LinkedBlockingQueue<>();
+            watcher.addListener((root, diff) -> diffs.add(diff));
+            Files.write(path, Arrays.asList(":server", "    .port=8080"));
+            Files.write(path, Arrays.asList(":server", "    .port=8080", "    .host=localhost"));
+
+            SJDiff diff = diffs.poll(10, TimeUnit.SECONDS);
+            assertNotNull(diff);
+            // the burst may be split into several reloads on slow file systems
+            while (watcher.getRoot().getChild("server").get().getValue("host").orElse(null) == null) {
+                diff = diffs.poll(10, TimeUnit.SECONDS);
+                assertNotNull(diff);
+            }
+            assertEquals(8080, watcher.getRoot().getChild("server").get().getValue("port").get().intValue());
+            assertEquals(80, first.getChild("server").get().getValue("port").get().intValue());
+
+            Files.write(path, Arrays.asList(":server", "        .port=1"));
+            assertNull(watcher.reload());
+            assertEquals(8080, watcher.getRoot().getChild("server").get().getValue("port").get().intValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Test that the watcher survives unexpected errors")
+    public void testUnexpectedError(@TempDir final Path dir) throws IOException, InterruptedException {
+        final Path path = dir.resolve("failing.sj");
+        Files.write(path, Arrays.asList(".value=1"));
+        final SanjoFile file = new SanjoFile(path.toString());
+
+        try (final SanjoWatcher watcher = file.watch(50)) {
+            final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+            watcher.addListener(new SanjoWatcher.Listener() {
+                @Override
+                public void reloaded(final SJClass root, final SJDiff diff) {
+                    events.add(root);
+                }
+
+                @Override
+                public void failed(final Exception e) {
+                    events.add(e);
+                }
+            });
+            SanjoMetrics.setListener(new SanjoListener() {
+                @Override
+                public void parsed(final SanjoMetrics.ParseStats stats) {
+                    throw new IllegalStateException("failing listener");
+                }
+            });
+            try {
+                Files.write(path, Arrays.asList(".value=2"));
+                final Object event = events.poll(10, TimeUnit.SECONDS);
+                assertTrue(event instanceof IllegalStateException, String.valueOf(event));
+            } finally {
+                SanjoMetrics.setListener(null);
+            }
+            assertEquals(1, watcher.getRoot().getValue("value").get().intValue());
+
+            Files.write(path, Arrays.asList(".value=3"));
+            Object event;
+            do {
+                event = events.poll(10, TimeUnit.SECONDS);
+                assertNotNull(event);
+            } while (!(event instanceof SJClass));
+            assertEquals(3, watcher.getRoot().getValue("value").get().intValue());
+        }
+    }
+}
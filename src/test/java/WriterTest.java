@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Malte Dostal
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+import de.sanj0.sanjo.SJClass;
+import de.sanj0.sanjo.SanjoFile;
+import de.sanj0.sanjo.SanjoParser;
+import de.sanj0.sanjo.SanjoWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WriterTest {
+
+    private static final String NL = System.lineSeparator();
+
+    @Test
+    @DisplayName("Test writing a tree to a string")
+    public void testWrite() {
+        final SJClass generated = new SJClass("generated");
+        generated.addValue("key", "value");
+        generated.addValue("empty", Arrays.asList());
+        generated.addChild("subclass").addValue("list", Arrays.asList("1", "2"));
+        generated.getChildren().get(0).addChild("subsubclass");
+
+        assertEquals(".key=value" + NL + ".empty[]=" + NL + ":subclass" + NL + "    .list[]=1,2" + NL
+                + "    :subsubclass" + NL, generated.write());
+
+        final SJClass root = SJClass.defaultClass();
+        root.addChild(generated);
+        assertEquals("  :generated" + NL + "      .key=value" + NL + "      .empty[]=" + NL + "      :subclass" + NL
+                + "          .list[]=1,2" + NL + "          :subsubclass" + NL, generated.write("  "));
+        assertEquals(":generated" + NL + "    .key=value" + NL + "    .empty[]=" + NL + "    :subclass" + NL
+                + "        .list[]=1,2" + NL + "        :subsubclass" + NL, root.write());
+    }
+
+    @Test
+    @DisplayName("Test streaming a deep tree to a file and reading it back")
+    public void testWriteFile(@TempDir final Path dir) throws IOException {
+        final SJClass root = SJClass.defaultClass();
+        SJClass current = root;
+        for (int i = 0; i < 500; i++) {
+            current = current.addChild("level" + i);
+            current.addValue("depth", String.valueOf(i));
+        }
+
+        final SanjoFile file = new SanjoFile(dir.resolve("deep.sj").toString());
+        file.write(root);
+        final SJClass read = file.parser().parse();
+        assertEquals(root.write(), read.write());
+
+        SJClass deepest = read;
+        while (!deepest.getChildren().isEmpty()) {
+            deepest = deepest.getChildren().get(0);
+        }
+        assertEquals(499, deepest.getValue("depth").get().intValue());
+    }
+
+    @Test
+    @DisplayName("Test writing values and children in insertion and sorted order")
+    public void testOrder() throws IOException {
+        final String document = String.join(NL, ".zeta=1", ".alpha=2", ".mid[]=a,b", ":b", "    .y=1", "    .x=2",
+                ":a", "    .second=2", ":b", "    .first=1") + NL;
+        final SJClass tree = new SanjoParser().parse(document);
+        assertEquals(document, tree.write());
+
+        final StringBuilder sorted = new StringBuilder();
+        final SanjoWriter writer = new SanjoWriter(sorted);
+        writer.setOrder(SanjoWriter.Order.SORTED);
+        writer.write(tree);
+        assertEquals("\n", writer.getLineSeparator());
+        assertEquals(String.join("\n", ".alpha=2", ".mid[]=a,b", ".zeta=1", ":a", "    .second=2", ":b", "    .x=2",
+                "    .y=1", ":b", "    .first=1") + "\n", sorted.toString());
+
+        // the same content built in another order
+        final SJClass reordered = SJClass.defaultClass();
+        reordered.addChild("a").addValue("second", "2");
+        reordered.addValue("mid", Arrays.asList("a", "b"));
+        final SJClass b = reordered.addChild("b");
+        b.addValue("x", "2");
+        b.addValue("y", "1");
+        reordered.addValue("alpha", "2");
+        reordered.addChild("b").addValue("first", "1");
+        reordered.addValue("zeta", "1");
+        final StringBuilder sortedReordered = new StringBuilder();
+        final SanjoWriter reorderedWriter = new SanjoWriter(sortedReordered);
+        reorderedWriter.setOrder(SanjoWriter.Order.SORTED);
+        reorderedWriter.write(reordered);
+        assertEquals(sorted.toString(), sortedReordered.toString());
+
+        final StringBuilder crlf = new StringBuilder();
+        final SanjoWriter crlfWriter = new SanjoWriter(crlf);
+        crlfWriter.setOrder(SanjoWriter.Order.SORTED);
+        crlfWriter.setLineSeparator("\r\n");
+        crlfWriter.write(tree);
+        assertEquals(sorted.toString().replace("\n", "\r\n"), crlf.toString());
+
+        // the meta class stays the leading class
+        final SJClass meta = new SanjoParser().parse(String.join("\n", ":meta", "  .indentation=2", ":z",
+                "  .b=2", ":a", "  .a=1", ".value=0"));
+        final StringBuilder sortedMeta = new StringBuilder();
+        final SanjoWriter metaWriter = new SanjoWriter(sortedMeta, meta.getMetaInf());
+        metaWriter.setOrder(SanjoWriter.Order.SORTED);
+        metaWriter.write(meta);
+        assertEquals(String.join("\n", ":meta", "  .indentation=2", ".value=0", ":a", "  .a=1", ":z", "  .b=2") + "\n",
+                sortedMeta.toString());
+        assertEquals(sortedMeta.toString(), new SanjoParser().parse(sortedMeta.toString()).write()
+                .replace(NL, "\n"));
+    }
+}